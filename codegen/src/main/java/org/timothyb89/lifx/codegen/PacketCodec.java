@@ -0,0 +1,26 @@
+package org.timothyb89.lifx.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a packet class for codec generation. For a class {@code Foo}, a
+ * {@code FooCodec} class is generated in the same package containing the
+ * payload {@code LENGTH}, an {@code OFFSET_*} constant and a static reader
+ * for each field, and static {@code decode(Foo, ByteBuffer)} and
+ * {@code encode(Foo, ByteBuffer)} methods.
+ * 
+ * <p>Every field annotated with {@link WireField} is included, in declaration
+ * order. Offsets and the total length are computed at compile time, so the
+ * generated methods are straight-line sequences of absolute buffer reads and
+ * writes. Annotated fields must not be private, since the generated codec
+ * accesses them directly.</p>
+ * @author tim
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface PacketCodec {
+	
+}
@@ -0,0 +1,400 @@
+package org.timothyb89.lifx.codegen;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates codec classes for types annotated with {@link PacketCodec}. See
+ * {@link PacketCodec} for a description of the generated code.
+ * @author tim
+ */
+public class PacketCodecProcessor extends AbstractProcessor {
+
+	private static final String CODECS = "org.timothyb89.lifx.net.field.Codecs";
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(PacketCodec.class.getName());
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(
+			Set<? extends TypeElement> annotations, RoundEnvironment env) {
+		for (Element e : env.getElementsAnnotatedWith(PacketCodec.class)) {
+			if (e.getKind() != ElementKind.CLASS) {
+				error(e, "@PacketCodec may only be applied to classes");
+				continue;
+			}
+
+			TypeElement type = (TypeElement) e;
+			List<WireMember> members = collect(type);
+			if (members == null) {
+				continue;
+			}
+
+			try {
+				write(type, members);
+			} catch (IOException ex) {
+				error(type, "Unable to write codec: " + ex.getMessage());
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Collects and validates the annotated fields of the given type, in
+	 * declaration order.
+	 * @param type the packet type
+	 * @return the wire members, or null if any field was invalid
+	 */
+	private List<WireMember> collect(TypeElement type) {
+		List<WireMember> ret = new ArrayList<>();
+		boolean valid = true;
+
+		int offset = 0;
+		for (Element e : type.getEnclosedElements()) {
+			WireField wire = e.getAnnotation(WireField.class);
+			if (wire == null) {
+				continue;
+			}
+
+			if (e.getKind() != ElementKind.FIELD) {
+				error(e, "@WireField may only be applied to fields");
+				valid = false;
+				continue;
+			}
+
+			VariableElement field = (VariableElement) e;
+			if (field.getModifiers().contains(Modifier.PRIVATE)
+					|| field.getModifiers().contains(Modifier.STATIC)
+					|| field.getModifiers().contains(Modifier.FINAL)) {
+				error(e, "@WireField fields must be non-private, non-static "
+						+ "and non-final");
+				valid = false;
+				continue;
+			}
+
+			WireMember member = new WireMember(field, wire, offset);
+			if (!member.validate()) {
+				valid = false;
+				continue;
+			}
+
+			ret.add(member);
+			offset += member.length;
+		}
+
+		return valid ? ret : null;
+	}
+
+	private void write(TypeElement type, List<WireMember> members)
+			throws IOException {
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		String packageName = pkg.getQualifiedName().toString();
+		String typeName = type.getSimpleName().toString();
+		String codecName = typeName + "Codec";
+
+		int length = 0;
+		for (WireMember m : members) {
+			length += m.length;
+		}
+
+		String qualified = packageName.isEmpty()
+				? codecName
+				: packageName + "." + codecName;
+		JavaFileObject file = processingEnv.getFiler()
+				.createSourceFile(qualified, type);
+
+		try (PrintWriter w = new PrintWriter(file.openWriter())) {
+			if (!packageName.isEmpty()) {
+				w.println("package " + packageName + ";");
+				w.println();
+			}
+
+			w.println("import java.nio.ByteBuffer;");
+			w.println("import java.nio.ByteOrder;");
+			w.println("import " + CODECS + ";");
+			w.println();
+			w.println("/**");
+			w.println(" * Codec for {@link " + typeName + "}, generated by "
+					+ "{@code " + getClass().getSimpleName() + "}.");
+			w.println(" * Do not edit.");
+			w.println(" */");
+			w.println("public final class " + codecName + " {");
+			w.println();
+			w.println("\tpublic static final int LENGTH = " + length + ";");
+			w.println();
+			for (WireMember m : members) {
+				w.println("\tpublic static final int " + m.offsetConstant()
+						+ " = " + m.offset + ";");
+			}
+			w.println();
+			w.println("\tprivate " + codecName + "() {");
+			w.println("\t}");
+
+			for (WireMember m : members) {
+				w.println();
+				w.println("\tpublic static " + m.javaType() + " "
+						+ m.readerName() + "(ByteBuffer bytes, int offset) {");
+				w.println("\t\treturn " + m.readExpression("bytes", "offset")
+						+ ";");
+				w.println("\t}");
+			}
+
+			w.println();
+			w.println("\tpublic static void decode(" + typeName
+					+ " packet, ByteBuffer bytes) {");
+			w.println("\t\tint offset = bytes.position();");
+			for (WireMember m : members) {
+				w.println("\t\tpacket." + m.name + " = "
+						+ m.readExpression("bytes", "offset") + ";");
+			}
+			w.println("\t\tbytes.position(offset + LENGTH);");
+			w.println("\t}");
+
+			w.println();
+			w.println("\tpublic static void encode(" + typeName
+					+ " packet, ByteBuffer dst) {");
+			w.println("\t\tint offset = dst.position();");
+			for (WireMember m : members) {
+				w.println("\t\t" + m.writeStatement("dst", "offset",
+						"packet." + m.name) + ";");
+			}
+			w.println("\t\tdst.position(offset + LENGTH);");
+			w.println("\t}");
+			w.println();
+			w.println("}");
+		}
+	}
+
+	private void error(Element e, String message) {
+		processingEnv.getMessager().printMessage(
+				Diagnostic.Kind.ERROR, message, e);
+	}
+
+	/**
+	 * A single annotated field and its computed position.
+	 */
+	private class WireMember {
+
+		private final VariableElement field;
+		private final WireType type;
+		private final boolean little;
+		private final String name;
+		private final int offset;
+		private final int length;
+
+		/**
+		 * The value type, for numeric fields decoded via {@code fromValue()}
+		 * and encoded via {@code getValue()}; otherwise null.
+		 */
+		private String valueType;
+
+		private WireMember(VariableElement field, WireField wire, int offset) {
+			this.field = field;
+			this.type = wire.value();
+			this.little = wire.little();
+			this.name = field.getSimpleName().toString();
+			this.offset = offset;
+			this.length = type.getLength() > 0
+					? type.getLength()
+					: wire.length();
+		}
+
+		private boolean validate() {
+			if (length <= 0) {
+				error(field, "@WireField of type " + type
+						+ " requires a positive length");
+				return false;
+			}
+
+			TypeMirror declared = field.asType();
+			if (declared.toString().equals(type.getJavaType())) {
+				return true;
+			}
+
+			if (type != WireType.STRING && type != WireType.FLOAT32
+					&& declared.getKind() == TypeKind.DECLARED
+					&& isValueType(declared)) {
+				valueType = processingEnv.getTypeUtils()
+						.erasure(declared).toString();
+				return true;
+			}
+
+			error(field, "@WireField of type " + type + " must be declared as "
+					+ type.getJavaType() + ", or as a type with static "
+					+ "fromValue(" + type.getJavaType() + ") and "
+					+ "getValue() methods");
+			return false;
+		}
+
+		private boolean isValueType(TypeMirror declared) {
+			TypeElement element = (TypeElement) processingEnv.getTypeUtils()
+					.asElement(declared);
+
+			boolean factory = false;
+			boolean accessor = false;
+			for (Element e : element.getEnclosedElements()) {
+				if (e.getKind() != ElementKind.METHOD
+						|| !e.getModifiers().contains(Modifier.PUBLIC)) {
+					continue;
+				}
+
+				ExecutableElement m = (ExecutableElement) e;
+				String mname = m.getSimpleName().toString();
+				boolean isStatic = m.getModifiers().contains(Modifier.STATIC);
+
+				if (mname.equals("fromValue") && isStatic
+						&& m.getParameters().size() == 1
+						&& m.getParameters().get(0).asType().toString()
+								.equals(type.getJavaType())) {
+					factory = true;
+				} else if (mname.equals("getValue") && !isStatic
+						&& m.getParameters().isEmpty()
+						&& m.getReturnType().toString()
+								.equals(type.getJavaType())) {
+					accessor = true;
+				}
+			}
+
+			return factory && accessor;
+		}
+
+		private String javaType() {
+			if (valueType != null) {
+				return valueType;
+			}
+			
+			String ret = type.getJavaType();
+			if (ret.startsWith("java.lang.")) {
+				ret = ret.substring("java.lang.".length());
+			}
+			
+			return ret;
+		}
+
+		private String constantName() {
+			StringBuilder sb = new StringBuilder();
+			for (char c : name.toCharArray()) {
+				if (Character.isUpperCase(c) && sb.length() > 0) {
+					sb.append('_');
+				}
+
+				sb.append(Character.toUpperCase(c));
+			}
+
+			return sb.toString();
+		}
+
+		private String offsetConstant() {
+			return "OFFSET_" + constantName();
+		}
+
+		private String readerName() {
+			return "read" + Character.toUpperCase(name.charAt(0))
+					+ name.substring(1);
+		}
+
+		private String order() {
+			return little ? "ByteOrder.LITTLE_ENDIAN" : "ByteOrder.BIG_ENDIAN";
+		}
+
+		private String readExpression(String buf, String base) {
+			String at = base + " + " + offsetConstant();
+
+			String raw;
+			switch (type) {
+				case UINT8:
+					raw = "Codecs.getUInt8(" + buf + ", " + at + ")";
+					break;
+				case UINT16:
+					raw = "Codecs.getUInt16(" + buf + ", " + at + ", "
+							+ order() + ")";
+					break;
+				case UINT32:
+					raw = "Codecs.getUInt32(" + buf + ", " + at + ", "
+							+ order() + ")";
+					break;
+				case UINT64:
+					raw = "Codecs.getInt64(" + buf + ", " + at + ", "
+							+ order() + ")";
+					break;
+				case FLOAT32:
+					raw = "Codecs.getFloat(" + buf + ", " + at + ", "
+							+ order() + ")";
+					break;
+				case STRING:
+					raw = "Codecs.getString(" + buf + ", " + at + ", "
+							+ length + ", " + order() + ")";
+					break;
+				default:
+					throw new IllegalStateException("Unknown type " + type);
+			}
+
+			if (valueType != null) {
+				return valueType + ".fromValue(" + raw + ")";
+			}
+
+			return raw;
+		}
+
+		private String writeStatement(String buf, String base, String value) {
+			String at = base + " + " + offsetConstant();
+
+			if (valueType != null) {
+				String zero = type.getJavaType().equals("long") ? "0L" : "0";
+				value = "(" + value + " != null ? " + value + ".getValue() : "
+						+ zero + ")";
+			}
+
+			switch (type) {
+				case UINT8:
+					return "Codecs.putUInt8(" + buf + ", " + at + ", "
+							+ value + ")";
+				case UINT16:
+					return "Codecs.putUInt16(" + buf + ", " + at + ", "
+							+ value + ", " + order() + ")";
+				case UINT32:
+					return "Codecs.putUInt32(" + buf + ", " + at + ", "
+							+ value + ", " + order() + ")";
+				case UINT64:
+					return "Codecs.putInt64(" + buf + ", " + at + ", "
+							+ value + ", " + order() + ")";
+				case FLOAT32:
+					return "Codecs.putFloat(" + buf + ", " + at + ", "
+							+ value + ", " + order() + ")";
+				case STRING:
+					return "Codecs.putString(" + buf + ", " + at + ", "
+							+ length + ", " + value + ", " + order() + ")";
+				default:
+					throw new IllegalStateException("Unknown type " + type);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,37 @@
+package org.timothyb89.lifx.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the wire representation of a packet field. See
+ * {@link PacketCodec}.
+ * @author tim
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface WireField {
+	
+	/**
+	 * The encoded type of this field.
+	 * @return the wire type
+	 */
+	WireType value();
+	
+	/**
+	 * The encoded length of the field, in bytes. Required for
+	 * {@link WireType#STRING}; ignored for fixed-width types.
+	 * @return the field length
+	 */
+	int length() default 0;
+	
+	/**
+	 * If true, the field is little-endian. Little-endian strings are stored
+	 * with their characters in reverse order.
+	 * @return true if little-endian, false if big-endian
+	 */
+	boolean little() default false;
+	
+}
@@ -0,0 +1,70 @@
+package org.timothyb89.lifx.codegen;
+
+/**
+ * Supported wire types for {@link WireField}s, along with the Java type each
+ * is decoded to.
+ * 
+ * <p>Unsigned integer types may also be decoded to a value type providing a
+ * {@code public static T fromValue(int)} factory and a
+ * {@code public int getValue()} accessor (e.g. {@code PowerState}).</p>
+ * @author tim
+ */
+public enum WireType {
+	
+	/**
+	 * An unsigned byte, decoded to an {@code int}.
+	 */
+	UINT8(1, "int"),
+	
+	/**
+	 * An unsigned 16-bit integer, decoded to an {@code int}.
+	 */
+	UINT16(2, "int"),
+	
+	/**
+	 * An unsigned 32-bit integer, decoded to a {@code long}.
+	 */
+	UINT32(4, "long"),
+	
+	/**
+	 * A 64-bit integer, decoded to a {@code long}.
+	 */
+	UINT64(8, "long"),
+	
+	/**
+	 * A 32-bit IEEE 754 float, decoded to a {@code float}.
+	 */
+	FLOAT32(4, "float"),
+	
+	/**
+	 * A fixed-length, zero-padded ASCII string, decoded to a {@code String}.
+	 * The length must be given via {@link WireField#length()}.
+	 */
+	STRING(0, "java.lang.String");
+	
+	private final int length;
+	private final String javaType;
+
+	private WireType(int length, String javaType) {
+		this.length = length;
+		this.javaType = javaType;
+	}
+
+	/**
+	 * Returns the fixed length of this type, or zero if the length must be
+	 * specified per field.
+	 * @return the fixed length, or zero
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the name of the Java type fields of this type decode to.
+	 * @return the decoded Java type
+	 */
+	public String getJavaType() {
+		return javaType;
+	}
+	
+}
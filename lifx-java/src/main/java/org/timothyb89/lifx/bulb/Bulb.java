@@ -6,12 +6,11 @@ import lombok.ToString;
 import org.timothyb89.eventbus.EventBus;
 import org.timothyb89.eventbus.EventBusClient;
 import org.timothyb89.eventbus.EventBusProvider;
-import org.timothyb89.eventbus.EventHandler;
 import org.timothyb89.lifx.gateway.Gateway;
-import org.timothyb89.lifx.gateway.GatewayPacketReceivedEvent;
 import org.timothyb89.lifx.gateway.PacketResponseFuture;
 import org.timothyb89.lifx.net.field.MACAddress;
 import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.PacketTemplate;
 import org.timothyb89.lifx.net.packet.request.SetDimAbsoluteRequest;
 import org.timothyb89.lifx.net.packet.request.SetLightColorRequest;
 import org.timothyb89.lifx.net.packet.request.SetPowerStateRequest;
@@ -47,8 +46,6 @@ public class Bulb implements EventBusProvider {
 		this.gateway = gateway;
 		this.address = address;
 		
-		gateway.bus().register(this);
-		
 		bus = new EventBus() {{
 			add(BulbPowerStateUpdatedEvent.class);
 			add(BulbStatusUpdatedEvent.class);
@@ -112,6 +109,19 @@ public class Bulb implements EventBusProvider {
 		return gateway.sendRaw(packet);
 	}
 	
+	/**
+	 * Sends a copy of the given packet template to this bulb, with the bulb
+	 * address and site patched in. See
+	 * {@link Gateway#sendTemplate(PacketTemplate, MACAddress)}.
+	 * @param template the template to send
+	 * @throws IOException on network error
+	 * @return a {@link PacketResponseFuture}
+	 */
+	public PacketResponseFuture send(PacketTemplate template)
+			throws IOException {
+		return gateway.sendTemplate(template, address);
+	}
+	
 	/**
 	 * Sets the power state of this bulb. A {@link SetPowerStateRequest} will
 	 * be sent to this bulb. Note that the state will not be updated
@@ -200,10 +210,13 @@ public class Bulb implements EventBusProvider {
 	
 	// TODO: setDimRaw
 	
-	@EventHandler
-	public void packetReceived(GatewayPacketReceivedEvent event) {
-		Packet p = event.getPacket();
-		
+	/**
+	 * Updates this bulb from a received packet. Called by the owning
+	 * {@link Gateway}, which routes packets to bulbs by their bulb address;
+	 * packets for other bulbs are ignored.
+	 * @param p the received packet
+	 */
+	public void packetReceived(Packet p) {
 		// make sure the packet is for this bulb
 		if (!p.getBulbAddress().equals(address)) {
 			return;
@@ -12,6 +12,8 @@ public enum PowerState {
 	ON(0xFFFF),
 	OFF(0x0000);
 	
+	private static final PowerState[] VALUES = values();
+	
 	private final int value;
 	
 	private PowerState(int value) {
@@ -27,7 +29,7 @@ public enum PowerState {
 	}
 	
 	public static PowerState fromValue(int value) {
-		for (PowerState p : values()) {
+		for (PowerState p : VALUES) {
 			if (p.getValue() == value) {
 				return p;
 			}
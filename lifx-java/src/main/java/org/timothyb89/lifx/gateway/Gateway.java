@@ -0,0 +1,562 @@
+package org.timothyb89.lifx.gateway;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.timothyb89.eventbus.EventBus;
+import org.timothyb89.eventbus.EventBusClient;
+import org.timothyb89.eventbus.EventBusProvider;
+import org.timothyb89.eventbus.EventScanMode;
+import org.timothyb89.eventbus.EventScanType;
+import org.timothyb89.lifx.bulb.Bulb;
+import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.net.BroadcastListener;
+import org.timothyb89.lifx.net.SendFuture;
+import org.timothyb89.lifx.net.TimerWheel;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Coalescable;
+import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.PacketTemplate;
+import org.timothyb89.lifx.net.packet.request.LightStatusRequest;
+import org.timothyb89.lifx.net.packet.request.SetPowerStateRequest;
+import org.timothyb89.lifx.net.packet.response.LightStatusResponse;
+import org.timothyb89.lifx.net.packet.response.PowerStateResponse;
+
+/**
+ * Defines a basic gateway. This handles interactions with a gateway
+ * bulb which then dispatches commands to its connected bulbs (or potentially
+ * itself).
+ * @author timothyb89
+ */
+@Slf4j
+@ToString(of = { "ipAddress", "port", "macAddress", "bulbs" })
+@EventScanMode(type = EventScanType.EXTENDED)
+public class Gateway implements EventBusProvider {
+	
+	private static final PacketTemplate LIGHT_STATUS_TEMPLATE =
+			new PacketTemplate(new LightStatusRequest());
+	
+	/**
+	 * The default time allowed for responses to arrive, in ms.
+	 */
+	public static final long DEFAULT_RESPONSE_TIMEOUT = 5000;
+	
+	@Getter private final BroadcastListener listener;
+	@Getter private final InetSocketAddress ipAddress;
+	@Getter private final int port;
+	@Getter private final MACAddress macAddress;
+	
+	private final ResponseIndex responses;
+	
+	/**
+	 * The time allowed for the responses to a sent packet to arrive, in ms,
+	 * counted from when the packet leaves the rate limiter. Futures still
+	 * waiting after this long expire; see
+	 * {@link PacketResponseFuture}.
+	 */
+	@Getter @Setter private volatile long responseTimeout;
+	
+	/**
+	 * The executor used to notify {@link ResponseCallback}s registered on
+	 * futures from this gateway without an explicit executor. Defaults to
+	 * {@link PacketResponseFuture#DIRECT_EXECUTOR}.
+	 */
+	@Getter @Setter private volatile Executor callbackExecutor;
+	
+	/**
+	 * The rate limiter all packets sent through this gateway pass through.
+	 * Sends are rate limited by default, to
+	 * {@link SendScheduler#DEFAULT_BULB_RATE} packets per second per bulb;
+	 * packets for every bulb (such as {@link #refreshBulbs()} and
+	 * {@link #setPowerState(PowerState)}) share a single limit, as each of
+	 * them reaches every bulb. See {@link SendScheduler} to change the limits
+	 * or disable them.
+	 */
+	@Getter private final SendScheduler scheduler;
+	
+	private final AtomicLong fulfilledCount;
+	private final AtomicLong expiredCount;
+	
+	private final EventBus bus;
+	
+	private final List<Bulb> bulbs;
+	private final ConcurrentMap<MACAddress, Bulb> bulbIndex;
+	
+	/**
+	 * Creates a new Gateway instance. This should generally only be called by
+	 * BroadcastListener. No packets are sent until the gateway is registered
+	 * with {@link GatewayManager#registerGateway(Gateway)}, which routes its
+	 * responses to it and then starts bulb discovery.
+	 * @param listener a BroadcastListener instance, used for packet IO
+	 * @param ipAddress the IP address of this gateway
+	 * @param port the port used for IO
+	 * @param macAddress the MAC address of this gateway
+	 */
+	public Gateway(
+			BroadcastListener listener, InetSocketAddress ipAddress,
+			int port, MACAddress macAddress) {
+		this.listener = listener;
+		this.ipAddress = ipAddress;
+		this.port = port;
+		this.macAddress = macAddress;
+		
+		responses = new ResponseIndex();
+		responseTimeout = DEFAULT_RESPONSE_TIMEOUT;
+		callbackExecutor = PacketResponseFuture.DIRECT_EXECUTOR;
+		
+		scheduler = new SendScheduler(TimerWheel.getInstance());
+		
+		fulfilledCount = new AtomicLong();
+		expiredCount = new AtomicLong();
+		
+		bulbs = new CopyOnWriteArrayList<>();
+		bulbIndex = new ConcurrentHashMap<>();
+		
+		bus = new EventBus() {{
+			add(GatewayPacketSentEvent.class);
+			add(GatewayPacketReceivedEvent.class);
+			add(GatewayBulbDiscoveredEvent.class);
+		}};
+		
+		// make sure the types gateways and bulbs update themselves from are
+		// let through any type filter
+		listener.subscribe(
+				LightStatusResponse.TYPE,
+				PowerStateResponse.TYPE);
+		
+		bus.register(this);
+	}
+	
+	@Override
+	public EventBusClient bus() {
+		return bus.getClient();
+	}
+	
+	/**
+	 * Returns true if a socket is open for this gateway. Note that as of the
+	 * v1.2 firmware update all communication is done over UDP which changes the
+	 * semantics of this method. Currently this returns whether or not the
+	 * BroadcastListener is actually listening in lieu of a TCP connection.
+	 * @return true if currently able to communicate with bulb, false if not
+	 */
+	public boolean isConnected() {
+		//return channel != null && channel.isConnected();
+		// apparently channel.isConnected() does not actually tell you if the
+		// socket is connected - at least on android
+		// we do get usable EOFs, so we'll keep track ourselves
+		return listener.isListening();
+	}
+	
+	/**
+	 * Sends the given raw packet. Most commands require a set {@code site}
+	 * field; {@link #send(Packet)} will automatically set this to the address
+	 * of this gateway. This method leaves the {@code site} field of the packet
+	 * unmodified and send the packet with whatever site field it has currently
+	 * set.
+	 * <p>If applicable, a Future containing a {@link PacketResponse} object is
+	 * returned with any response packets. Expected packet types must first be
+	 * configured in {@link Packet#expectedResponses()}. Note that most commands
+	 * that trigger responses cannot be used with this mechanism as responses
+	 * are not guaranteed.</p>
+	 * <p>If the expected responses do not all arrive within
+	 * {@link #getResponseTimeout()} of the packet actually being sent, the
+	 * future expires and {@code get()} fails with a
+	 * {@link java.util.concurrent.TimeoutException}.</p>
+	 * <p>The packet passes through this gateway's {@link SendScheduler}, which
+	 * may delay it to stay within the bulb's rate limit, and is then queued on
+	 * the listener's transport; this returns without waiting for either. If
+	 * the packet is shed by the scheduler or can't be written, the future
+	 * fails with the cause.</p>
+	 * @param packet the packet to send
+	 * @return a Future containing any packet responses
+	 * @throws IOException on network error
+	 */
+	public PacketResponseFuture sendRaw(Packet packet) throws IOException {
+		if (!listener.isListening()) {
+			throw new ClosedChannelException();
+		}
+		
+		PacketResponseFuture f = new PacketResponseFuture(packet, listener);
+		register(f);
+		
+		scheduler.submit(packet.getBulbAddress(),
+				new PacketSend(f, packet, null, null));
+		
+		bus.push(new GatewayPacketSentEvent(this, packet, f));
+		
+		return f;
+	}
+	
+	/**
+	 * Sends a copy of the given template with the bulb address and site
+	 * patched in. The {@code site} field is always set to the address of this
+	 * gateway, while the bulb address is set only if non-null. This avoids
+	 * re-encoding packets that are sent repeatedly, e.g. when sending the
+	 * same command to many bulbs.
+	 * <p>Expected responses are taken from the template packet, as with
+	 * {@link #sendRaw(Packet)}.</p>
+	 * @param template the template to send
+	 * @param bulbAddress the bulb address to target, or null to leave the
+	 *     template value unchanged
+	 * @return a Future containing any packet responses
+	 * @throws IOException on network error
+	 */
+	public PacketResponseFuture sendTemplate(
+			PacketTemplate template, MACAddress bulbAddress)
+			throws IOException {
+		if (!listener.isListening()) {
+			throw new ClosedChannelException();
+		}
+		
+		Packet packet = template.getPacket();
+		
+		PacketResponseFuture f = new PacketResponseFuture(packet, listener);
+		register(f);
+		
+		scheduler.submit(bulbAddress != null
+						? bulbAddress : packet.getBulbAddress(),
+				new PacketSend(f, null, template, bulbAddress));
+		
+		bus.push(new GatewayPacketSentEvent(this, packet, f));
+		
+		return f;
+	}
+	
+	/**
+	 * Sends the given packet to the gateway. The {@code site} field of the
+	 * packet will be set to the address of this gateway; if this is undesired,
+	 * use {@link #sendRaw(Packet)}. Generally, this will result in the packet
+	 * being distributed to all bulbs connected to the gateway, and can result
+	 * in one (or many) responses.
+	 * <p>Note that you <b>cannot</b> wait on a future from an event
+	 * notification: events are dispatched on the input thread, so a blocking
+	 * wait <i>will</i> cause a deadlock. As a general rule blocking on the
+	 * event thread is discouraged; a different (or new) thread should be used,
+	 * and is a requirement in most contexts here. {@link #sendAsync(Packet)}
+	 * avoids waiting altogether.</p>
+	 * @see #sendRaw(Packet)
+	 * @param packet the packet to send
+	 * @return a Future containing any packet responses
+	 * @throws IOException on network error
+	 */
+	public Future<PacketResponse> send(Packet packet) throws IOException {
+		packet.setSite(macAddress);
+		return sendRaw(packet);
+	}
+	
+	/**
+	 * Sends the given packet to the gateway without blocking or throwing,
+	 * setting its {@code site} field as with {@link #send(Packet)}. Network
+	 * errors fail the returned future instead, so a
+	 * {@link ResponseCallback} registered with
+	 * {@link PacketResponseFuture#addCallback(ResponseCallback)} is notified
+	 * of every outcome: all responses arriving, expiry, or a send error.
+	 * <p>Callbacks run on {@link #getCallbackExecutor()} unless another is
+	 * given, so request/response flows can be chained from callbacks without
+	 * parking a thread per request.</p>
+	 * @param packet the packet to send
+	 * @return a future for the packet's responses
+	 */
+	public PacketResponseFuture sendAsync(Packet packet) {
+		packet.setSite(macAddress);
+		
+		PacketResponseFuture f = new PacketResponseFuture(packet, listener);
+		register(f);
+		
+		if (!listener.isListening()) {
+			fail(f, new ClosedChannelException());
+			return f;
+		}
+		
+		scheduler.submit(packet.getBulbAddress(),
+				new PacketSend(f, packet, null, null));
+		
+		bus.push(new GatewayPacketSentEvent(this, packet, f));
+		
+		return f;
+	}
+	
+	/**
+	 * Releases the given response future once its packet has been written,
+	 * or fails it if the packet can't be written, as no responses will ever
+	 * arrive.
+	 * @param sent the send future for the packet
+	 * @param f the response future
+	 */
+	private void completeOnSend(
+			SendFuture sent, final PacketResponseFuture f) {
+		sent.addListener(new SendFuture.Listener() {
+			
+			@Override
+			public void sendComplete(SendFuture future) {
+				if (future.isSuccess()) {
+					f.sent();
+				} else {
+					log.warn("Unable to send {}", f.getResponse().getPacket(),
+							future.getCause());
+					
+					fail(f, future.getCause());
+				}
+			}
+			
+		});
+	}
+	
+	private void fail(PacketResponseFuture f, Throwable cause) {
+		responses.remove(f);
+		f.fail(cause);
+	}
+	
+	/**
+	 * Registers a future for its responses, holding it until its packet has
+	 * been written.
+	 * @param f the future to register
+	 */
+	private void register(PacketResponseFuture f) {
+		f.setCallbackExecutor(callbackExecutor);
+		f.hold();
+		responses.register(f);
+	}
+	
+	/**
+	 * Starts the response timeout for a registered future. This is called
+	 * once the packet is handed to the transport rather than at registration,
+	 * so time spent waiting in the {@link SendScheduler} doesn't count.
+	 * @param f the future to expire
+	 */
+	private void startTimeout(final PacketResponseFuture f) {
+		f.setTimeout(TimerWheel.getInstance().schedule(new Runnable() {
+			
+			@Override
+			public void run() {
+				if (responses.expire(f)) {
+					expiredCount.incrementAndGet();
+					
+					log.debug("Response expired: {}", f.getResponse());
+				}
+			}
+			
+		}, responseTimeout, TimeUnit.MILLISECONDS));
+	}
+	
+	/**
+	 * Returns the number of responses still expected by outstanding
+	 * {@link PacketResponseFuture}s.
+	 * @return the number of outstanding expected responses
+	 */
+	public int getPendingResponses() {
+		return responses.size();
+	}
+	
+	/**
+	 * Returns the number of sent packets whose expected responses all
+	 * arrived before their deadline.
+	 * @return the number of fulfilled requests
+	 */
+	public long getFulfilledCount() {
+		return fulfilledCount.get();
+	}
+	
+	/**
+	 * Returns the number of sent packets that expired before all of their
+	 * expected responses arrived.
+	 * @return the number of expired requests
+	 */
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+	
+	/**
+	 * Returns a list of all bulbs connected to this gateway. The returned is
+	 * unmodifiable.
+	 * @return a list of known bulbs
+	 */
+	public List<Bulb> getBulbs() {
+		return Collections.unmodifiableList(bulbs);
+	}
+	
+	/**
+	 * Gets the bulb with the given MAC address, if any matching bulb exists. If
+	 * no such bulb can be found, {@code null} is returned.
+	 * @param address the address of the bulb to search for
+	 * @return the bulb with the given address, or {@code null}
+	 */
+	public Bulb getBulb(MACAddress address) {
+		return bulbIndex.get(address);
+	}
+	
+	/**
+	 * Refreshes bulb state by issuing a {@link LightStatusRequest} to all bulbs
+	 * connected to this gateway. Note that this may trigger some number of
+	 * {@link GatewayBulbDiscoveredEvent}s for any new bulb discovered.
+	 * @throws IOException on network error
+	 */
+	public void refreshBulbs() throws IOException {
+		sendTemplate(LIGHT_STATUS_TEMPLATE, null);
+	}
+	
+	/**
+	 * Sets the power state of all bulbs connected to this gateway. A
+	 * {@link SetPowerStateRequest} will be sent directly to the gateway.
+	 * @param state the power state to set
+	 * @throws IOException on network error
+	 */
+	public void setPowerState(PowerState state) throws IOException {
+		send(new SetPowerStateRequest(state));
+	}
+	
+	/**
+	 * Turns off all bulbs connected to this gateway.
+	 * @see #setPowerState(PowerState) 
+	 * @throws IOException on network error
+	 */
+	public void turnOff() throws IOException {
+		setPowerState(PowerState.OFF);
+	}
+	
+	/**
+	 * Turns on all bulbs connected to this gateway.
+	 * @see #setPowerState(PowerState) 
+	 * @throws IOException on network error
+	 */
+	public void turnOn() throws IOException {
+		setPowerState(PowerState.ON);
+	}
+		
+	/**
+	 * Called when the BroadcastListener has received a packet from this
+	 * gateway. The listener routes packets to their gateway directly, by
+	 * source address or site (see
+	 * {@link BroadcastListener#addRoute(Gateway)}).
+	 * @param packet the received packet
+	 */
+	public void packetReceived(Packet packet) {
+		log.debug("Packet {} for gateway {}", packet, this);
+		
+		bus.push(new GatewayPacketReceivedEvent(this, packet));
+		
+		// route the packet straight to its bulb, if known; discovery of new
+		// bulbs is handled below
+		Bulb owner = bulbIndex.get(packet.getBulbAddress());
+		if (owner != null) {
+			owner.packetReceived(packet);
+		}
+		
+		// is this a response?
+		PacketResponseFuture recipient = responses.match(packet);
+		if (recipient != null && recipient.isFulfilled()) {
+			fulfilledCount.incrementAndGet();
+			
+			log.debug("Fulfilled response");
+			bus.push(new GatewayResponseFulfilledEvent(recipient));
+		}
+		
+		// check for a bulb discovery response
+		if (owner == null && packet instanceof LightStatusResponse) {
+			LightStatusResponse resp = (LightStatusResponse) packet;
+			
+			Bulb bulb = new Bulb(this, resp.getBulbAddress());
+			if (bulbIndex.putIfAbsent(bulb.getAddress(), bulb) == null) {
+				bulb.valuesFromPacket(resp);
+				bulbs.add(bulb);
+				
+				log.debug("Bulb discovered: {}", bulb);
+				
+				bus.push(new GatewayBulbDiscoveredEvent(this, bulb));
+			}
+		}
+	}
+	
+	/**
+	 * A packet passing through the {@link SendScheduler}. Packets may be
+	 * modified (or recycled) by the caller once sent, so a packet that has to
+	 * wait is encoded as soon as it is queued; templates never change.
+	 */
+	private class PacketSend extends SendScheduler.Send {
+		
+		private final PacketResponseFuture future;
+		private final Packet packet;
+		private final PacketTemplate template;
+		private final MACAddress bulbAddress;
+		private final int coalesceKey;
+		
+		private ByteBuffer encoded;
+		
+		public PacketSend(
+				PacketResponseFuture future, Packet packet,
+				PacketTemplate template, MACAddress bulbAddress) {
+			this.future = future;
+			this.packet = packet;
+			this.template = template;
+			this.bulbAddress = bulbAddress;
+			
+			Packet p = future.getResponse().getPacket();
+			coalesceKey = p instanceof Coalescable ? p.getPacketType() : -1;
+		}
+		
+		@Override
+		protected int getCoalesceKey() {
+			return coalesceKey;
+		}
+		
+		@Override
+		protected void send() {
+			try {
+				SendFuture sent;
+				if (encoded != null) {
+					sent = listener.send(encoded, ipAddress);
+				} else if (template != null) {
+					sent = listener.send(
+							template, bulbAddress, macAddress, ipAddress);
+				} else {
+					sent = listener.send(packet, ipAddress);
+				}
+				
+				startTimeout(future);
+				completeOnSend(sent, future);
+			} catch (IOException ex) {
+				fail(future, ex);
+			}
+		}
+		
+		@Override
+		protected void defer() {
+			if (template == null) {
+				encoded = packet.bytes();
+			}
+		}
+		
+		@Override
+		protected void shed(Throwable cause) {
+			fail(future, cause);
+		}
+		
+		@Override
+		protected void coalesced(CancellationException cause) {
+			responses.remove(future);
+			future.supersede(cause);
+		}
+		
+		@Override
+		public String toString() {
+			return String.valueOf(future.getResponse().getPacket());
+		}
+		
+	}
+	
+}
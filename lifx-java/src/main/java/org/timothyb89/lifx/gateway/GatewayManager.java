@@ -1,22 +1,26 @@
 package org.timothyb89.lifx.gateway;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
 /**
- * Manages the global list of known gateways.
+ * Manages the global list of known gateways. The list is copy-on-write, so it
+ * may be read from any thread while gateways are being discovered.
  * @author tim
  */
+@Slf4j
 public class GatewayManager {
 	
 	private static GatewayManager instance;
 	
-	@Getter private List<Gateway> gateways;
+	@Getter private volatile List<Gateway> gateways;
 	
 	private GatewayManager() {
-		gateways = new ArrayList<>();
+		gateways = new CopyOnWriteArrayList<>();
 	}
 
 	public static synchronized GatewayManager getInstance() {
@@ -27,8 +31,22 @@ public class GatewayManager {
 		return instance;
 	}
 	
+	/**
+	 * Registers a gateway, and adds a route to it on its listener so packets
+	 * from the gateway are delivered to it directly. There's no connection
+	 * process, so bulb discovery starts immediately; the route is added
+	 * first so that no responses arrive before the gateway can receive them.
+	 * @param g the gateway to register
+	 */
 	public void registerGateway(Gateway g) {
 		gateways.add(g);
+		g.getListener().addRoute(g);
+		
+		try {
+			g.refreshBulbs();
+		} catch (IOException ex) {
+			log.warn("Unable to query gateway for bulbs", ex);
+		}
 	}
 	
 	public boolean hasGateway(InetSocketAddress address, int port) {
@@ -68,7 +86,12 @@ public class GatewayManager {
 	 * or for any number of other reasons. 
 	 */
 	public void purge() {
-		gateways = new ArrayList<>();
+		List<Gateway> old = gateways;
+		gateways = new CopyOnWriteArrayList<>();
+		
+		for (Gateway g : old) {
+			g.getListener().removeRoute(g);
+		}
 	}
 	
 }
@@ -7,6 +7,12 @@ import org.timothyb89.lifx.net.packet.Packet;
 
 /**
  * An event dispatched when a packet has been received for a particular gateway.
+ * 
+ * <p>If pooling is enabled for the packet's type (see
+ * {@link org.timothyb89.lifx.net.packet.PacketFactory#enablePooling(int, int)})
+ * the packet is only valid until event dispatch completes. Handlers that need
+ * to keep it must call {@link Packet#retain()} (and later
+ * {@link Packet#release()}) or {@link Packet#detach()}.</p>
  * @author tim
  */
 @Data
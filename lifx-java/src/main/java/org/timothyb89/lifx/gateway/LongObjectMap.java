@@ -0,0 +1,159 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.Arrays;
+
+/**
+ * A minimal open-addressing hash map from primitive {@code long} keys to
+ * objects, used to avoid boxing keys on hot lookup paths. Collisions are
+ * resolved by linear probing, and removal shifts later entries back rather
+ * than leaving tombstones, so lookups never degrade after many removals.
+ * 
+ * <p>Not thread safe.</p>
+ * @author tim
+ * @param <V> the value type
+ */
+class LongObjectMap<V> {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private long[] keys;
+	private Object[] values;
+	private int size;
+	private int mask;
+	
+	LongObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	LongObjectMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 2) * 2 - 1) << 1;
+		
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Returns the hash of a key. A key's home slot is its hash masked to the
+	 * table size.
+	 */
+	static int mix(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+	
+	private int find(long key) {
+		int i = mix(key) & mask;
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				return i;
+			}
+			
+			i = (i + 1) & mask;
+		}
+		
+		return -(i + 1);
+	}
+	
+	@SuppressWarnings("unchecked")
+	V get(long key) {
+		int i = find(key);
+		return i >= 0 ? (V) values[i] : null;
+	}
+	
+	/**
+	 * Associates a non-null value with the given key.
+	 * @param key the key
+	 * @param value the value, which must not be null
+	 * @return the previous value, or null
+	 */
+	@SuppressWarnings("unchecked")
+	V put(long key, V value) {
+		if (value == null) {
+			throw new NullPointerException("Values may not be null");
+		}
+		
+		int i = find(key);
+		if (i >= 0) {
+			V old = (V) values[i];
+			values[i] = value;
+			return old;
+		}
+		
+		i = -(i + 1);
+		keys[i] = key;
+		values[i] = value;
+		
+		// keep the load factor at or below 1/2
+		if (++size * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+		
+		return null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	V remove(long key) {
+		int i = find(key);
+		if (i < 0) {
+			return null;
+		}
+		
+		V old = (V) values[i];
+		size--;
+		
+		// shift back any following entries that probed past this slot
+		int gap = i;
+		int j = (i + 1) & mask;
+		while (values[j] != null) {
+			int home = mix(keys[j]) & mask;
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+			
+			j = (j + 1) & mask;
+		}
+		
+		keys[gap] = 0;
+		values[gap] = null;
+		
+		return old;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the number of slots in the table, always a power of two.
+	 * @return the table capacity
+	 */
+	int capacity() {
+		return keys.length;
+	}
+	
+	void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+	
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				int j = -(find(oldKeys[i]) + 1);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+	
+}
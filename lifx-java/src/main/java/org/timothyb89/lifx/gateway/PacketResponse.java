@@ -0,0 +1,186 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+import lombok.ToString;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ * Represents a packet response. By default responses consist of packet types
+ * defined in {@link Packet#expectedResponses()}, but additional expectations
+ * may be defined at sending time with {@link #expect(int)} and
+ * {@link #expect(int, MACAddress)}.
+ * 
+ * <p>Outstanding expectations are kept in small primitive arrays, since a
+ * response rarely expects more than a handful of packets; an unsourced
+ * expectation always takes precedence over a sourced one of the same
+ * type.</p>
+ * @author tim
+ */
+@ToString(of = { "packet", "responses" })
+public class PacketResponse {
+	
+	@Getter private final Packet packet;
+	@Getter private final List<Packet> responses;
+	
+	private int[] expecting;
+	private int expectingCount;
+	
+	private int[] sourcedTypes;
+	private long[] sourcedAddresses;
+	private int sourcedCount;
+	
+	public PacketResponse(Packet packet) {
+		this.packet = packet;
+		
+		expecting = packet.expectedResponses().clone();
+		expectingCount = expecting.length;
+		
+		sourcedTypes = new int[0];
+		sourcedAddresses = new long[0];
+		sourcedCount = 0;
+		
+		responses = new ArrayList<>(Math.max(expectingCount, 1));
+	}
+	
+	private int indexOf(int type) {
+		for (int i = 0; i < expectingCount; i++) {
+			if (expecting[i] == type) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	private int indexOf(int type, long address) {
+		for (int i = 0; i < sourcedCount; i++) {
+			if (sourcedTypes[i] == type && sourcedAddresses[i] == address) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	public synchronized boolean isExpecting(int packetType) {
+		return indexOf(packetType) >= 0;
+	}
+	
+	public synchronized boolean isExpecting(
+			int packetType, MACAddress address) {
+		return indexOf(packetType) >= 0
+				|| indexOf(packetType, address.getValue()) >= 0;
+	}
+	
+	public synchronized boolean isFulfilled() {
+		return expectingCount == 0 && sourcedCount == 0;
+	}
+	
+	public synchronized void addResponse(Packet response) {
+		int type = response.getPacketType();
+		
+		int index = indexOf(type);
+		if (index >= 0) {
+			// order doesn't matter, so fill the gap with the last element
+			expecting[index] = expecting[--expectingCount];
+			responses.add(response.detach());
+			return;
+		}
+		
+		index = indexOf(type, response.getBulbAddress().getValue());
+		if (index >= 0) {
+			sourcedCount--;
+			sourcedTypes[index] = sourcedTypes[sourcedCount];
+			sourcedAddresses[index] = sourcedAddresses[sourcedCount];
+			responses.add(response.detach());
+			return;
+		}
+		
+		throw new IllegalArgumentException(String.format(
+				"Unexpected response: 0x%02X", response.getPacketType()));
+	}
+	
+	/**
+	 * Expects a response with a packet type of {@code type}.
+	 * @param type the type to match
+	 * @return this PacketResponse
+	 */
+	public synchronized PacketResponse expect(int type) {
+		if (expectingCount == expecting.length) {
+			expecting = Arrays.copyOf(expecting, expectingCount * 2 + 1);
+		}
+		
+		expecting[expectingCount++] = type;
+		return this;
+	}
+	
+	/**
+	 * Expects a response with a packet type of {@code type} and a matching
+	 * {@code bulbAddress}.
+	 * @param type the type to match
+	 * @param address the bulb MAC address to match
+	 * @return this PacketResponse
+	 */
+	public synchronized PacketResponse expect(int type, MACAddress address) {
+		if (sourcedCount == sourcedTypes.length) {
+			int size = sourcedCount * 2 + 1;
+			sourcedTypes = Arrays.copyOf(sourcedTypes, size);
+			sourcedAddresses = Arrays.copyOf(sourcedAddresses, size);
+		}
+		
+		sourcedTypes[sourcedCount] = type;
+		sourcedAddresses[sourcedCount] = address.getValue();
+		sourcedCount++;
+		return this;
+	}
+	
+	/**
+	 * Returns a copy of the packet types still expected without regard to
+	 * source, including duplicates.
+	 * @return the outstanding unsourced expectations
+	 */
+	public synchronized int[] getExpecting() {
+		return Arrays.copyOf(expecting, expectingCount);
+	}
+	
+	/**
+	 * Returns a copy of the packet types of outstanding sourced expectations,
+	 * in the same order as {@link #getExpectingAddresses()}.
+	 * @return the packet types of outstanding sourced expectations
+	 */
+	public synchronized int[] getExpectingSourcedTypes() {
+		return Arrays.copyOf(sourcedTypes, sourcedCount);
+	}
+	
+	/**
+	 * Returns a copy of the packed bulb addresses of outstanding sourced
+	 * expectations, in the same order as {@link #getExpectingSourcedTypes()}.
+	 * @return the bulb addresses of outstanding sourced expectations
+	 */
+	public synchronized long[] getExpectingAddresses() {
+		return Arrays.copyOf(sourcedAddresses, sourcedCount);
+	}
+	
+	/**
+	 * Gets the first packet of the given type from the list of responses. If no
+	 * matching packet is found, {@code null} is returned. Note that order is
+	 * not guaranteed; response ordering is "best effort".
+	 * @param <T> the packet type
+	 * @param type the type of the packet to
+	 * @return a matching packet instance, if any
+	 */
+	public synchronized <T extends Packet> T get(Class<T> type) {
+		for (Packet response : responses) {
+			if (type.isInstance(response)) {
+				return (T) response;
+			}
+		}
+		
+		return null;
+	}
+
+}
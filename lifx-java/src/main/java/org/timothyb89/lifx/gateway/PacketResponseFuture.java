@@ -0,0 +1,548 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.timothyb89.lifx.net.BroadcastListener;
+import org.timothyb89.lifx.net.TimerWheel;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ * Provides asynchronous packet response functionality. Sent packets return
+ * instances of this class that can be configured to expect certain response
+ * packets. Responses may be specified directly in packet type definitions
+ * ({@link Packet#expectedResponses()}) or via the {@link #expect(int)} method
+ * in this class.
+ * 
+ * <p>Futures sent through a {@link Gateway} carry a deadline. A future whose
+ * responses have not all arrived by then expires: it is removed from the
+ * gateway's {@link ResponseIndex} and {@link #get()} throws an
+ * {@link ExecutionException} caused by a {@link TimeoutException}.</p>
+ * 
+ * <p>Rather than blocking in {@code get()}, callers may register a
+ * {@link ResponseCallback} with {@link #addCallback(ResponseCallback)} to be
+ * notified on completion. Callbacks run on the future's callback executor
+ * (for gateway futures, {@link Gateway#getCallbackExecutor()}), which by
+ * default is {@link #DIRECT_EXECUTOR}: the thread that completes the future,
+ * i.e. the listener's dispatch thread, the transport thread or the shared
+ * timer thread. Callbacks run there must not block.</p>
+ * 
+ * <p>A gateway future whose packet expects no responses completes normally
+ * once the packet has been written, and fails if it is dropped first (e.g.
+ * shed by the rate limiter). A future whose queued packet is replaced by a
+ * newer one is cancelled instead: {@link #isCancelled()} returns true and
+ * {@link #get()} throws a {@link CancellationException}. Futures can't be
+ * cancelled by callers. Once completed, a future's outcome never
+ * changes.</p>
+ * @author tim
+ */
+@Slf4j
+public class PacketResponseFuture implements Future<PacketResponse> {
+	
+	private static final int ST_PENDING = 0;
+	private static final int ST_FULFILLED = 1;
+	private static final int ST_EXPIRED = 2;
+	private static final int ST_FAILED = 3;
+	private static final int ST_CANCELLED = 4;
+	
+	/**
+	 * An executor that runs tasks immediately on the calling thread.
+	 */
+	public static final Executor DIRECT_EXECUTOR = new Executor() {
+		
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+		
+	};
+	
+	private final PacketResponse response;
+	private final CountDownLatch done;
+	private volatile int state;
+	private volatile Throwable cause;
+	
+	/**
+	 * True while this future's packet is waiting to be sent, during which an
+	 * empty response doesn't count as done.
+	 */
+	private volatile boolean held;
+	
+	/**
+	 * Callbacks waiting for completion; null once they have been run.
+	 */
+	private List<Runnable> callbacks;
+	private volatile Executor callbackExecutor;
+	
+	private final BroadcastListener listener;
+	
+	/**
+	 * The deadline timer for this future, if any.
+	 */
+	private volatile TimerWheel.Timeout timeout;
+	
+	/**
+	 * The index this future is registered with, if any, and its registration
+	 * order within it.
+	 */
+	private volatile ResponseIndex index;
+	private long sequence;
+	
+	/**
+	 * Creates a new future for the given response. If a listener is given,
+	 * all expected response types are subscribed with it (see
+	 * {@link BroadcastListener#subscribe(int...)}) so they are not dropped by
+	 * a type filter.
+	 * @param response the response to fulfill
+	 * @param listener the listener responses arrive on, or null
+	 */
+	public PacketResponseFuture(
+			PacketResponse response, BroadcastListener listener) {
+		this.response = response;
+		this.listener = listener;
+		
+		if (listener != null) {
+			listener.subscribe(response.getPacket().expectedResponses());
+		}
+		
+		// empty responses are always "fulfilled", but aren't completed here
+		// to allow use of expects(); get() checks for them instead
+		done = new CountDownLatch(1);
+		state = ST_PENDING;
+		
+		callbacks = new ArrayList<>(1);
+		callbackExecutor = DIRECT_EXECUTOR;
+	}
+	
+	public PacketResponseFuture(PacketResponse response) {
+		this(response, null);
+	}
+	
+	public PacketResponseFuture(Packet packet, BroadcastListener listener) {
+		this(new PacketResponse(packet), listener);
+	}
+	
+	public PacketResponseFuture(Packet packet) {
+		this(new PacketResponse(packet), null);
+	}
+	
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		throw new UnsupportedOperationException("Not cancellable");
+	}
+
+	/**
+	 * Returns true if this future was cancelled because its packet was
+	 * replaced by a newer one before it could be sent.
+	 * @return true if this future was cancelled
+	 */
+	@Override
+	public boolean isCancelled() {
+		return state == ST_CANCELLED;
+	}
+
+	/**
+	 * Returns true if this future has been fulfilled or has failed. A future
+	 * that expects no responses at all is also considered done, once its
+	 * packet has been sent.
+	 * @return true if this future is done
+	 */
+	@Override
+	public boolean isDone() {
+		return state != ST_PENDING || (!held && response.isFulfilled());
+	}
+	
+	/**
+	 * Returns true if this future failed, either by expiring or because its
+	 * packet could not be sent. A cancelled future has also failed.
+	 * @return true if this future has failed
+	 */
+	public boolean isFailed() {
+		return state == ST_EXPIRED || state == ST_FAILED
+				|| state == ST_CANCELLED;
+	}
+	
+	/**
+	 * Returns true if this future passed its deadline before all of its
+	 * expected responses arrived.
+	 * @return true if this future has expired
+	 */
+	public boolean isExpired() {
+		return state == ST_EXPIRED;
+	}
+
+	/**
+	 * Waits for all expected responses to arrive. If no responses are
+	 * expected, this returns as soon as the packet has been sent.
+	 * @return the response
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws ExecutionException caused by a {@link TimeoutException} if this
+	 *     future expired before all responses arrived, or by the send error
+	 *     if the packet could not be sent
+	 * @throws CancellationException if this future was cancelled
+	 */
+	@Override
+	public PacketResponse get() throws InterruptedException, ExecutionException {
+		if (!isDone()) {
+			done.await();
+		}
+		
+		return result();
+	}
+
+	@Override
+	public PacketResponse get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		if (!isDone()) {
+			if (!done.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+		}
+		
+		return result();
+	}
+	
+	private PacketResponse result() throws ExecutionException {
+		if (state == ST_CANCELLED) {
+			throw (CancellationException) cause;
+		}
+		
+		if (isFailed()) {
+			throw new ExecutionException(cause);
+		}
+		
+		return response;
+	}
+	
+	/**
+	 * Registers a callback to be run on the default callback executor once
+	 * this future completes. If it has already completed (or expects no
+	 * responses at all), the callback is run immediately.
+	 * @see #addCallback(ResponseCallback, Executor)
+	 * @param callback the callback to register
+	 * @return this
+	 */
+	public PacketResponseFuture addCallback(ResponseCallback callback) {
+		return addCallback(callback, callbackExecutor);
+	}
+	
+	/**
+	 * Registers a callback to be run on the given executor once this future
+	 * completes. If it has already completed (or expects no responses at
+	 * all), the callback is submitted immediately.
+	 * @param callback the callback to register
+	 * @param executor the executor to notify the callback on
+	 * @return this
+	 */
+	public PacketResponseFuture addCallback(
+			final ResponseCallback callback, final Executor executor) {
+		Runnable task = new Runnable() {
+			
+			@Override
+			public void run() {
+				execute(callback, executor);
+			}
+			
+		};
+		
+		synchronized (this) {
+			if (callbacks != null && !isDone()) {
+				callbacks.add(task);
+				return this;
+			}
+		}
+		
+		task.run();
+		return this;
+	}
+	
+	private void execute(
+			final ResponseCallback callback, Executor executor) {
+		try {
+			executor.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						if (isFailed()) {
+							callback.onFailure(cause);
+						} else {
+							callback.onResponse(response);
+						}
+					} catch (RuntimeException ex) {
+						log.warn("Response callback failed", ex);
+					}
+				}
+				
+			});
+		} catch (RejectedExecutionException ex) {
+			log.warn("Response callback rejected by executor", ex);
+		}
+	}
+	
+	/**
+	 * Runs any registered callbacks, if this future has completed. Callbacks
+	 * are run at most once; this is called outside of any index lock.
+	 */
+	void fireCallbacks() {
+		List<Runnable> pending;
+		
+		synchronized (this) {
+			if (state == ST_PENDING || callbacks == null) {
+				return;
+			}
+			
+			pending = callbacks;
+			callbacks = null;
+		}
+		
+		for (Runnable r : pending) {
+			r.run();
+		}
+	}
+	
+	/**
+	 * Sets the executor used by {@link #addCallback(ResponseCallback)}.
+	 * @param executor the default callback executor
+	 */
+	void setCallbackExecutor(Executor executor) {
+		this.callbackExecutor = executor;
+	}
+	
+	/**
+	 * Checks if a response of the given type is still expected. Previously
+	 * expected packets that have already been received will not be considered
+	 * "expected".
+	 * @param packetType the type to check
+	 * @return true if a response of the given type is still expected
+	 */
+	public boolean expectsResponse(int packetType) {
+		return response.isExpecting(packetType);
+	}
+	
+	/**
+	 * Checks if a response of the given type and from the given address is
+	 * still expected. Fulfilled responses are not considered "expected".
+	 * @param packetType the packet type to expect
+	 * @param address the bulb address to expect a packet from
+	 * @return true if a matching response is still expected, false otherwise
+	 */
+	public boolean expectsResponse(int packetType, MACAddress address) {
+		return response.isExpecting(packetType, address);
+	}
+	
+	/**
+	 * Adds the given packet as a fulfilled response. If no packet of the given
+	 * type is expected, an {@link IllegalArgumentException} will be thrown.
+	 * @param packet the packet to set as fulfilled
+	 */
+	public void putResponse(Packet packet) {
+		addResponse(packet);
+		fireCallbacks();
+	}
+	
+	/**
+	 * Adds a response without running callbacks, for use under a
+	 * {@link ResponseIndex} lock.
+	 * @param packet the packet to set as fulfilled
+	 */
+	void addResponse(Packet packet) {
+		response.addResponse(packet);
+		
+		if (response.isFulfilled() && complete(ST_FULFILLED, null)) {
+			cancelTimeout();
+		}
+	}
+	
+	/**
+	 * Holds this future until {@link #sent()} is called, e.g. while its packet
+	 * is queued by a {@link SendScheduler}, so that a future expecting no
+	 * responses isn't reported as done before its packet may still be
+	 * dropped.
+	 */
+	void hold() {
+		held = true;
+	}
+	
+	/**
+	 * Releases the hold once the packet has been written. A future that
+	 * expects no responses completes here, and runs any callbacks.
+	 */
+	void sent() {
+		held = false;
+		
+		if (response.isFulfilled() && complete(ST_FULFILLED, null)) {
+			cancelTimeout();
+			fireCallbacks();
+		}
+	}
+	
+	/**
+	 * Expires this future, unless it has already completed. Called by a
+	 * {@link ResponseIndex} once its deadline has passed; a future that
+	 * expects nothing completes normally instead.
+	 * @return true if this future was expired by this call
+	 */
+	boolean expire() {
+		if (response.isFulfilled()) {
+			complete(ST_FULFILLED, null);
+			return false;
+		}
+		
+		return complete(ST_EXPIRED, new TimeoutException(
+				"No response to " + response.getPacket() + " before deadline"));
+	}
+	
+	/**
+	 * Fails this future, e.g. because its packet could not be sent, and runs
+	 * any callbacks. The future should first be removed from its index.
+	 * @param cause the cause of the failure
+	 * @return true if this future was failed by this call
+	 */
+	boolean fail(Throwable cause) {
+		if (!complete(ST_FAILED, cause)) {
+			return false;
+		}
+		
+		cancelTimeout();
+		fireCallbacks();
+		return true;
+	}
+	
+	/**
+	 * Cancels this future because its packet was replaced by a newer one
+	 * before being sent, and runs any callbacks, which see {@code cause} as
+	 * the failure. The future should first be removed from its index.
+	 * @param cause the reason the packet was not sent
+	 * @return true if this future was cancelled by this call
+	 */
+	boolean supersede(CancellationException cause) {
+		if (!complete(ST_CANCELLED, cause)) {
+			return false;
+		}
+		
+		cancelTimeout();
+		fireCallbacks();
+		return true;
+	}
+	
+	private boolean complete(int newState, Throwable cause) {
+		synchronized (this) {
+			if (state != ST_PENDING) {
+				return false;
+			}
+			
+			this.cause = cause;
+			state = newState;
+		}
+		
+		done.countDown();
+		return true;
+	}
+	
+	private void cancelTimeout() {
+		TimerWheel.Timeout t = timeout;
+		if (t != null) {
+			t.cancel();
+		}
+	}
+	
+	/**
+	 * Sets the deadline timer for this future, which is cancelled once the
+	 * future is fulfilled.
+	 * @param timeout the deadline timer
+	 */
+	void setTimeout(TimerWheel.Timeout timeout) {
+		this.timeout = timeout;
+		
+		// a fast response may have beaten us here
+		if (state != ST_PENDING) {
+			timeout.cancel();
+		}
+	}
+	
+	/**
+	 * Determines if this future has been fulfilled. Specifically, this checks
+	 * that all expected packet types have been received.
+	 * @return true if all expected packets have been received; false otherwise
+	 */
+	public boolean isFulfilled() {
+		return response.isFulfilled();
+	}
+	
+	/**
+	 * @see PacketResponse#expect(int)
+	 * @param packetType the type to expect
+	 * @return this
+	 */
+	public PacketResponseFuture expect(int packetType) {
+		subscribe(packetType);
+		
+		ResponseIndex i = index;
+		if (i != null) {
+			i.expect(this, packetType);
+		} else {
+			response.expect(packetType);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * @see PacketResponse#expect(int, MACAddress) 
+	 * @param packetType the packet type to expect
+	 * @param address the address to expect
+	 * @return this
+	 */
+	public PacketResponseFuture expect(int packetType, MACAddress address) {
+		subscribe(packetType);
+		
+		ResponseIndex i = index;
+		if (i != null) {
+			i.expect(this, packetType, address);
+		} else {
+			response.expect(packetType, address);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Called by a {@link ResponseIndex} when this future is registered.
+	 * @param index the index
+	 * @param sequence the registration order of this future
+	 */
+	void attach(ResponseIndex index, long sequence) {
+		this.index = index;
+		this.sequence = sequence;
+	}
+	
+	long getSequence() {
+		return sequence;
+	}
+	
+	/**
+	 * Returns the response this future is collecting. It is complete only
+	 * once this future is fulfilled.
+	 * @return the response
+	 */
+	public PacketResponse getResponse() {
+		return response;
+	}
+	
+	private void subscribe(int packetType) {
+		if (listener != null) {
+			listener.subscribe(packetType);
+		}
+	}
+	
+}
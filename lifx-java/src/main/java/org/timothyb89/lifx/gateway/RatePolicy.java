@@ -0,0 +1,21 @@
+package org.timothyb89.lifx.gateway;
+
+/**
+ * Determines what a {@link SendScheduler} does with a packet sent while its
+ * target is over its rate limit.
+ * @author tim
+ */
+public enum RatePolicy {
+	
+	/**
+	 * Queue the packet until the rate limit allows it, shedding it only if it
+	 * would be delayed for longer than the scheduler's maximum delay.
+	 */
+	DELAY,
+	
+	/**
+	 * Drop the packet immediately.
+	 */
+	SHED;
+	
+}
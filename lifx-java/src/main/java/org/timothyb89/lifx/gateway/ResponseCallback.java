@@ -0,0 +1,28 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A callback notified when a {@link PacketResponseFuture} completes. See
+ * {@link PacketResponseFuture#addCallback(ResponseCallback)}.
+ * @author tim
+ */
+public interface ResponseCallback {
+	
+	/**
+	 * Called once all expected responses have arrived.
+	 * @param response the completed response
+	 */
+	public void onResponse(PacketResponse response);
+	
+	/**
+	 * Called if the request failed, either because it could not be sent or
+	 * because it expired (in which case {@code cause} is a
+	 * {@link TimeoutException}). A request cancelled because a newer packet
+	 * replaced it also fails here, with a {@link CancellationException}.
+	 * @param cause the cause of the failure
+	 */
+	public void onFailure(Throwable cause);
+	
+}
@@ -0,0 +1,243 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.ArrayDeque;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ * Indexes outstanding {@link PacketResponseFuture}s by the responses they
+ * expect, so an incoming packet can be matched to its recipient without
+ * scanning every outstanding request.
+ * 
+ * <p>Each expectation is queued under a primitive key: the packet type for
+ * expectations of any bulb, or the packet type and packed bulb address
+ * ({@code type << 48 | address}) for expectations of a particular bulb.
+ * Futures are numbered as they are registered, and a packet is delivered to
+ * the oldest of the futures at the head of (at most) two queues, which
+ * matches a linear scan in registration order unless expectations were
+ * added to an older future after newer ones were registered.</p>
+ * 
+ * <p>All methods are synchronized; each holds the lock only for a constant
+ * amount of work per packet.</p>
+ * @author tim
+ */
+public class ResponseIndex {
+	
+	private final LongObjectMap<ArrayDeque<PacketResponseFuture>> byType;
+	private final LongObjectMap<ArrayDeque<PacketResponseFuture>> bySource;
+	
+	private long sequence;
+	private int size;
+
+	public ResponseIndex() {
+		byType = new LongObjectMap<>();
+		bySource = new LongObjectMap<>();
+	}
+	
+	private static long key(int type, long address) {
+		return ((long) type << 48) | address;
+	}
+	
+	private static void add(
+			LongObjectMap<ArrayDeque<PacketResponseFuture>> map,
+			long key, PacketResponseFuture future) {
+		ArrayDeque<PacketResponseFuture> queue = map.get(key);
+		if (queue == null) {
+			queue = new ArrayDeque<>(4);
+			map.put(key, queue);
+		}
+		
+		queue.add(future);
+	}
+	
+	/**
+	 * Returns the first live future in the given queue, discarding any that
+	 * have since completed (e.g. by expiring).
+	 */
+	private PacketResponseFuture head(
+			LongObjectMap<ArrayDeque<PacketResponseFuture>> map, long key) {
+		ArrayDeque<PacketResponseFuture> queue = map.get(key);
+		if (queue == null) {
+			return null;
+		}
+		
+		PacketResponseFuture f;
+		while ((f = queue.peek()) != null && f.isDone()) {
+			queue.poll();
+			size--;
+		}
+		
+		if (f == null) {
+			map.remove(key);
+		}
+		
+		return f;
+	}
+	
+	/**
+	 * Registers a future under each of its current expectations. Futures
+	 * that expect nothing are not indexed.
+	 * @param future the future to register
+	 */
+	public synchronized void register(PacketResponseFuture future) {
+		future.attach(this, sequence++);
+		
+		PacketResponse response = future.getResponse();
+		for (int type : response.getExpecting()) {
+			add(byType, type, future);
+			size++;
+		}
+		
+		int[] types = response.getExpectingSourcedTypes();
+		long[] addresses = response.getExpectingAddresses();
+		for (int i = 0; i < types.length; i++) {
+			add(bySource, key(types[i], addresses[i]), future);
+			size++;
+		}
+	}
+	
+	/**
+	 * Adds an expectation of any bulb to a registered future.
+	 * @param future the future
+	 * @param type the expected packet type
+	 */
+	synchronized void expect(PacketResponseFuture future, int type) {
+		future.getResponse().expect(type);
+		add(byType, type, future);
+		size++;
+	}
+	
+	/**
+	 * Adds an expectation of a particular bulb to a registered future.
+	 * @param future the future
+	 * @param type the expected packet type
+	 * @param address the bulb address
+	 */
+	synchronized void expect(
+			PacketResponseFuture future, int type, MACAddress address) {
+		future.getResponse().expect(type, address);
+		add(bySource, key(type, address.getValue()), future);
+		size++;
+	}
+	
+	/**
+	 * Delivers the given packet to the oldest future expecting it, if any.
+	 * Callbacks of a future completed by the packet are run after the index
+	 * lock is released.
+	 * @param packet the received packet
+	 * @return the future the packet was delivered to, or null
+	 */
+	public PacketResponseFuture match(Packet packet) {
+		PacketResponseFuture recipient;
+		synchronized (this) {
+			recipient = matchLocked(packet);
+		}
+		
+		if (recipient != null) {
+			recipient.fireCallbacks();
+		}
+		
+		return recipient;
+	}
+	
+	private PacketResponseFuture matchLocked(Packet packet) {
+		if (size == 0) {
+			return null;
+		}
+		
+		int type = packet.getPacketType();
+		long source = key(type, packet.getBulbAddress().getValue());
+		
+		PacketResponseFuture any = head(byType, type);
+		PacketResponseFuture sourced = head(bySource, source);
+		
+		PacketResponseFuture recipient;
+		if (any == null) {
+			recipient = sourced;
+		} else if (sourced == null) {
+			recipient = any;
+		} else {
+			recipient = any.getSequence() <= sourced.getSequence()
+					? any : sourced;
+		}
+		
+		if (recipient == null) {
+			return null;
+		}
+		
+		// PacketResponse consumes an expectation of any bulb in preference
+		// to a sourced one, so remove the matching queue entry; this is
+		// almost always the head of its queue
+		if (recipient.expectsResponse(type)) {
+			removeEntry(byType, type, recipient);
+		} else {
+			removeEntry(bySource, source, recipient);
+		}
+		
+		recipient.addResponse(packet);
+		
+		return recipient;
+	}
+	
+	/**
+	 * Expires the given future and removes its remaining entries, unless it
+	 * has already been fulfilled. This is atomic with respect to
+	 * {@link #match(Packet)}, so a future is never both fulfilled and
+	 * expired. Callbacks are run after the index lock is released.
+	 * @param future the future whose deadline has passed
+	 * @return true if the future expired, false if it was already complete
+	 */
+	public boolean expire(PacketResponseFuture future) {
+		boolean expired;
+		synchronized (this) {
+			expired = future.expire();
+			if (expired) {
+				remove(future);
+			}
+		}
+		
+		future.fireCallbacks();
+		return expired;
+	}
+	
+	/**
+	 * Removes all remaining entries for the given future, e.g. once it has
+	 * expired.
+	 * @param future the future to remove
+	 */
+	public synchronized void remove(PacketResponseFuture future) {
+		PacketResponse response = future.getResponse();
+		
+		for (int type : response.getExpecting()) {
+			removeEntry(byType, type, future);
+		}
+		
+		int[] types = response.getExpectingSourcedTypes();
+		long[] addresses = response.getExpectingAddresses();
+		for (int i = 0; i < types.length; i++) {
+			removeEntry(bySource, key(types[i], addresses[i]), future);
+		}
+	}
+	
+	private void removeEntry(
+			LongObjectMap<ArrayDeque<PacketResponseFuture>> map,
+			long key, PacketResponseFuture future) {
+		ArrayDeque<PacketResponseFuture> queue = map.get(key);
+		if (queue != null && queue.removeFirstOccurrence(future)) {
+			size--;
+			
+			if (queue.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of outstanding expectations in the index.
+	 * @return the number of indexed expectations
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	
+}
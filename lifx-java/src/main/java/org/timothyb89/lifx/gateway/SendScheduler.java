@@ -0,0 +1,494 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.timothyb89.lifx.net.TimerWheel;
+import org.timothyb89.lifx.net.field.MACAddress;
+
+/**
+ * Rate limits the packets sent through a {@link Gateway} with a
+ * {@link TokenBucket} per bulb and one for the gateway as a whole. Bulbs
+ * silently drop packets that arrive faster than about 20 per second, so by
+ * default each bulb is limited to {@link #DEFAULT_BULB_RATE} packets per
+ * second while the gateway itself is unlimited. Each bulb may still receive
+ * up to {@link #DEFAULT_BULB_BURST} packets at once, so a few back-to-back
+ * commands (e.g. turning a bulb on and then setting its color) aren't each
+ * delayed. Packets addressed to every bulb (with an empty bulb address)
+ * share a single bucket, since each of them reaches every bulb.
+ * 
+ * <p>A packet within its limits is sent immediately on the calling thread.
+ * Otherwise, depending on the {@link RatePolicy}, it is either shed or
+ * queued behind any other packets waiting for the same bulb. Queued packets
+ * are sent in order from the shared {@link TimerWheel} thread as tokens
+ * become available, so there are no per-bulb threads and an idle bulb costs
+ * only its bucket.</p>
+ * 
+ * <p>With coalescing enabled (the default), a queued packet that sets some
+ * state outright (a {@link org.timothyb89.lifx.net.packet.Coalescable}
+ * packet) is replaced in place by a newer packet of the same type for the
+ * same bulb, so e.g. a stream of color changes from a slider sends only the
+ * latest color once the bulb's rate limit allows. Packets sent immediately
+ * are never coalesced, nor are any other packets.</p>
+ * 
+ * <p>Lanes are created on demand and pruned once they've been idle for a
+ * while, with nothing queued and a full bucket, so bulbs that have gone away
+ * don't keep their lanes forever.</p>
+ * @author tim
+ */
+@Slf4j
+public class SendScheduler {
+	
+	public static final double DEFAULT_BULB_RATE = 20;
+	public static final int DEFAULT_BULB_BURST = 3;
+	
+	/**
+	 * The default maximum time a packet may wait in the queue, in ms.
+	 */
+	public static final long DEFAULT_MAX_DELAY = 2000;
+	
+	/**
+	 * The minimum time between sweeps for idle lanes, in ns.
+	 */
+	private static final long PRUNE_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+	
+	private static final MACAddress ALL_BULBS = MACAddress.valueOf(0);
+	
+	private final TimerWheel timer;
+	private final ConcurrentMap<MACAddress, Lane> lanes;
+	
+	private final TokenBucket gatewayBucket;
+	private final AtomicLong lastPrune;
+	
+	private volatile double bulbRate;
+	private volatile int bulbBurst;
+	
+	/**
+	 * What to do with packets sent while their bulb is over its limit.
+	 */
+	@Getter @Setter private volatile RatePolicy policy;
+	
+	/**
+	 * The longest a packet may be delayed under {@link RatePolicy#DELAY}, in
+	 * ms; packets that would wait longer are shed.
+	 */
+	@Getter @Setter private volatile long maxDelay;
+	
+	/**
+	 * If true, queued state-setting packets are replaced by newer packets of
+	 * the same type rather than sent in turn.
+	 */
+	@Getter @Setter private volatile boolean coalescing;
+	
+	private final AtomicLong sent;
+	private final AtomicLong delayed;
+	private final AtomicLong shed;
+	private final AtomicLong coalesced;
+	
+	public SendScheduler(TimerWheel timer) {
+		this.timer = timer;
+		
+		lanes = new ConcurrentHashMap<>();
+		
+		gatewayBucket = new TokenBucket(0, 1);
+		lastPrune = new AtomicLong(System.nanoTime());
+		bulbRate = DEFAULT_BULB_RATE;
+		bulbBurst = DEFAULT_BULB_BURST;
+		
+		policy = RatePolicy.DELAY;
+		maxDelay = DEFAULT_MAX_DELAY;
+		coalescing = true;
+		
+		sent = new AtomicLong();
+		delayed = new AtomicLong();
+		shed = new AtomicLong();
+		coalesced = new AtomicLong();
+	}
+	
+	/**
+	 * Sets the rate limit applied to each bulb.
+	 * @param rate the maximum packets per second, or 0 for unlimited
+	 * @param burst the number of packets that may be sent at once
+	 */
+	public void setBulbRate(double rate, int burst) {
+		bulbRate = rate;
+		bulbBurst = burst;
+		
+		for (Lane lane : lanes.values()) {
+			lane.bucket.setRate(rate, burst);
+		}
+	}
+	
+	public double getBulbRate() {
+		return bulbRate;
+	}
+	
+	public int getBulbBurst() {
+		return bulbBurst;
+	}
+	
+	/**
+	 * Sets the rate limit applied to the gateway as a whole.
+	 * @param rate the maximum packets per second, or 0 for unlimited
+	 * @param burst the number of packets that may be sent at once
+	 */
+	public void setGatewayRate(double rate, int burst) {
+		gatewayBucket.setRate(rate, burst);
+	}
+	
+	public double getGatewayRate() {
+		return gatewayBucket.getRate();
+	}
+	
+	public int getGatewayBurst() {
+		return gatewayBucket.getBurst();
+	}
+	
+	/**
+	 * Submits a packet for sending to the given bulb.
+	 * @param bulb the target bulb address, or null for every bulb
+	 * @param send the send to run or shed
+	 */
+	public void submit(MACAddress bulb, Send send) {
+		if (bulb == null) {
+			bulb = ALL_BULBS;
+		}
+		
+		long now = nanoTime();
+		prune(now);
+		
+		// a lane may be pruned between looking it up and submitting to it,
+		// in which case it refuses the send and a new lane is created
+		while (true) {
+			Lane lane = lanes.get(bulb);
+			if (lane == null) {
+				lane = new Lane(bulb, now);
+				
+				Lane existing = lanes.putIfAbsent(bulb, lane);
+				if (existing != null) {
+					lane = existing;
+				}
+			}
+			
+			if (lane.submit(send, now)) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Removes idle lanes, at most once every {@link #PRUNE_INTERVAL}.
+	 * @param now the current nanoTime
+	 */
+	private void prune(long now) {
+		long last = lastPrune.get();
+		if (now - last < PRUNE_INTERVAL || !lastPrune.compareAndSet(last, now)) {
+			return;
+		}
+		
+		for (Lane lane : lanes.values()) {
+			lane.retireIfIdle(now);
+		}
+	}
+	
+	/**
+	 * Returns the current time. Overridden by tests to control the clock.
+	 * @return the current {@link System#nanoTime()}
+	 */
+	long nanoTime() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Returns the number of packets sent, immediately or after a delay.
+	 * @return the number of packets sent
+	 */
+	public long getSentCount() {
+		return sent.get();
+	}
+	
+	/**
+	 * Returns the number of packets that had to be queued.
+	 * @return the number of delayed packets
+	 */
+	public long getDelayedCount() {
+		return delayed.get();
+	}
+	
+	/**
+	 * Returns the number of packets dropped for exceeding a rate limit.
+	 * @return the number of shed packets
+	 */
+	public long getShedCount() {
+		return shed.get();
+	}
+	
+	/**
+	 * Returns the number of queued packets that were replaced by a newer
+	 * packet and never sent.
+	 * @return the number of coalesced packets
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+	
+	/**
+	 * Returns the number of bulbs that currently have a lane, i.e. that have
+	 * been sent packets recently.
+	 * @return the number of lanes
+	 */
+	public int getLaneCount() {
+		return lanes.size();
+	}
+	
+	/**
+	 * Returns the number of packets currently waiting for tokens.
+	 * @return the number of queued packets
+	 */
+	public int getQueued() {
+		int ret = 0;
+		for (Lane lane : lanes.values()) {
+			ret += lane.size();
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * The queue and bucket for a single bulb. The bucket is only touched with
+	 * the lane locked.
+	 */
+	private class Lane implements Runnable {
+		
+		private final MACAddress bulb;
+		private final TokenBucket bucket;
+		private final LinkedList<Send> queue;
+		
+		private TimerWheel.Timeout timeout;
+		private long deadline;
+		private boolean retired;
+		
+		public Lane(MACAddress bulb, long now) {
+			this.bulb = bulb;
+			
+			bucket = new TokenBucket(bulbRate, bulbBurst, now);
+			queue = new LinkedList<>();
+		}
+		
+		/**
+		 * Takes a token from both this lane and the gateway if both have one
+		 * available.
+		 * @param now the current nanoTime
+		 * @return 0 if the tokens were taken, otherwise the time to wait
+		 */
+		private long acquire(long now) {
+			long ret = bucket.delay(now);
+			if (ret > 0) {
+				return ret;
+			}
+			
+			ret = gatewayBucket.tryTake(now);
+			if (ret > 0) {
+				return ret;
+			}
+			
+			bucket.take(now);
+			return 0;
+		}
+		
+		/**
+		 * Sends, queues or sheds the given send.
+		 * @return false if this lane has been pruned and the send should be
+		 *     submitted to a new lane instead
+		 */
+		private synchronized boolean submit(Send send, long now) {
+			if (retired) {
+				return false;
+			}
+			
+			// keep order: only skip the queue if nothing is waiting
+			long wait = queue.isEmpty() ? acquire(now) : bucket.delay(now);
+			if (queue.isEmpty() && wait == 0) {
+				run(send);
+				return true;
+			}
+			
+			if (coalescing && coalesce(send)) {
+				return true;
+			}
+			
+			if (policy == RatePolicy.SHED) {
+				shed(send, "Rate limit exceeded");
+				return true;
+			}
+			
+			// estimate when this packet would go out
+			long estimate = wait + queue.size() * bucket.getInterval();
+			if (estimate > TimeUnit.MILLISECONDS.toNanos(maxDelay)) {
+				shed(send, "Rate limit queue delay exceeded");
+				return true;
+			}
+			
+			send.defer();
+			queue.add(send);
+			delayed.incrementAndGet();
+			
+			schedule(now, Math.max(wait, 1));
+			return true;
+		}
+		
+		/**
+		 * Removes this lane if nothing is queued and its bucket is full, so a
+		 * new lane would behave exactly the same.
+		 */
+		private synchronized void retireIfIdle(long now) {
+			if (!queue.isEmpty() || timeout != null || !bucket.isFull(now)) {
+				return;
+			}
+			
+			retired = true;
+			lanes.remove(bulb, this);
+		}
+		
+		/**
+		 * Replaces a queued send of the same kind as {@code send} with it,
+		 * keeping its place in the queue.
+		 * @return true if a queued send was replaced
+		 */
+		private boolean coalesce(Send send) {
+			int key = send.getCoalesceKey();
+			if (key < 0) {
+				return false;
+			}
+			
+			ListIterator<Send> it = queue.listIterator();
+			while (it.hasNext()) {
+				Send queued = it.next();
+				if (queued.getCoalesceKey() != key) {
+					continue;
+				}
+				
+				send.defer();
+				it.set(send);
+				coalesced.incrementAndGet();
+				
+				queued.coalesced(new CancellationException(
+						"Superseded by a newer packet"));
+				return true;
+			}
+			
+			return false;
+		}
+		
+		/**
+		 * Arms the timer, if not already armed, to fire {@code wait} ns after
+		 * {@code now}.
+		 */
+		private void schedule(long now, long wait) {
+			if (timeout == null) {
+				deadline = now + wait;
+				timeout = timer.schedule(this,
+						deadline - nanoTime(), TimeUnit.NANOSECONDS);
+			}
+		}
+		
+		/**
+		 * Sends queued packets as tokens allow. Called on the timer thread.
+		 */
+		@Override
+		public synchronized void run() {
+			timeout = null;
+			
+			// the timer fires up to a tick late; the tokens were available
+			// at the deadline, so take them as of then to avoid drifting
+			// below the configured rate
+			long now = Math.min(nanoTime(), deadline);
+			
+			Send send;
+			while ((send = queue.peek()) != null) {
+				long wait = acquire(now);
+				if (wait > 0) {
+					schedule(now, wait);
+					return;
+				}
+				
+				queue.poll();
+				run(send);
+			}
+		}
+		
+		private void run(Send send) {
+			sent.incrementAndGet();
+			
+			try {
+				send.send();
+			} catch (RuntimeException ex) {
+				log.error("Send failed", ex);
+			}
+		}
+		
+		private void shed(Send send, String reason) {
+			shed.incrementAndGet();
+			
+			log.debug("Shedding {}: {}", send, reason);
+			
+			send.shed(new RejectedExecutionException(reason));
+		}
+		
+		private synchronized int size() {
+			return queue.size();
+		}
+		
+	}
+	
+	/**
+	 * A packet waiting to be sent by a {@link SendScheduler}.
+	 */
+	public static abstract class Send {
+		
+		/**
+		 * Returns the key identifying sends that may replace one another while
+		 * queued, typically the packet type of a
+		 * {@link org.timothyb89.lifx.net.packet.Coalescable} packet.
+		 * @return the coalescing key, or -1 if this send may not be replaced
+		 */
+		protected int getCoalesceKey() {
+			return -1;
+		}
+		
+		/**
+		 * Sends the packet. Called with the packet's lane locked, on the
+		 * submitting thread or the timer thread, so this must not block.
+		 */
+		protected abstract void send();
+		
+		/**
+		 * Called when the packet is queued instead of sent immediately, e.g.
+		 * to encode it before the caller can modify it.
+		 */
+		protected abstract void defer();
+		
+		/**
+		 * Called instead of {@link #send()} if the packet is dropped.
+		 * @param cause the reason the packet was dropped
+		 */
+		protected abstract void shed(Throwable cause);
+		
+		/**
+		 * Called instead of {@link #send()} if a newer send replaced this one
+		 * in the queue.
+		 * @param cause the reason the packet was not sent
+		 */
+		protected abstract void coalesced(CancellationException cause);
+		
+	}
+	
+}
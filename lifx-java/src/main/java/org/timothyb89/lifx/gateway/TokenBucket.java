@@ -0,0 +1,136 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+
+/**
+ * A token bucket rate limiter, refilled at {@code rate} tokens per second
+ * up to {@code burst} tokens. The bucket is kept in its "virtual scheduling"
+ * form: rather than a token count updated on a timer, it stores only the
+ * time at which it will next be full, so a bucket is a couple of longs and
+ * needs no thread to refill it.
+ * 
+ * <p>A rate of zero (or less) means unlimited.</p>
+ * @author tim
+ */
+@ToString(of = { "rate", "burst" })
+public class TokenBucket {
+	
+	private double rate;
+	private int burst;
+	
+	private long interval;
+	private long tolerance;
+	
+	/**
+	 * The theoretical arrival time of the next token, in nanoTime.
+	 */
+	private long tat;
+	
+	public TokenBucket(double rate, int burst) {
+		this(rate, burst, System.nanoTime());
+	}
+	
+	/**
+	 * Creates a bucket that is full as of the given time.
+	 * @param rate the refill rate in tokens per second, or 0 for unlimited
+	 * @param burst the maximum number of tokens, at least 1
+	 * @param now the current {@link System#nanoTime()}
+	 */
+	public TokenBucket(double rate, int burst, long now) {
+		setRate(rate, burst);
+		tat = now;
+	}
+	
+	/**
+	 * Changes the rate of this bucket, keeping its current state.
+	 * @param rate the refill rate in tokens per second, or 0 for unlimited
+	 * @param burst the maximum number of tokens, at least 1
+	 */
+	public synchronized void setRate(double rate, int burst) {
+		if (burst < 1) {
+			throw new IllegalArgumentException("Burst must be at least 1");
+		}
+		
+		this.rate = rate;
+		this.burst = burst;
+		
+		if (rate <= 0) {
+			interval = 0;
+			tolerance = 0;
+		} else {
+			interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+			tolerance = interval * (burst - 1);
+		}
+	}
+	
+	public synchronized double getRate() {
+		return rate;
+	}
+	
+	public synchronized int getBurst() {
+		return burst;
+	}
+	
+	public synchronized boolean isUnlimited() {
+		return interval == 0;
+	}
+	
+	/**
+	 * Returns the time between tokens.
+	 * @return the refill interval in ns, or 0 if unlimited
+	 */
+	public synchronized long getInterval() {
+		return interval;
+	}
+	
+	/**
+	 * Returns how long until a token is available.
+	 * @param now the current {@link System#nanoTime()}
+	 * @return the time until a token is available in ns, or 0 if one is
+	 *     available now
+	 */
+	public synchronized long delay(long now) {
+		// callers may pass a slightly earlier time than they did before (see
+		// SendScheduler), which must never hold up an unlimited bucket
+		if (interval == 0) {
+			return 0;
+		}
+		
+		return Math.max(0, tat - tolerance - now);
+	}
+	
+	/**
+	 * Returns true if the bucket holds its full burst of tokens, in which
+	 * case it is indistinguishable from a newly created bucket.
+	 * @param now the current {@link System#nanoTime()}
+	 * @return true if the bucket is full
+	 */
+	public synchronized boolean isFull(long now) {
+		return tat - now <= 0;
+	}
+	
+	/**
+	 * Takes a token, which must be available (see {@link #delay(long)}).
+	 * @param now the current {@link System#nanoTime()}
+	 */
+	public synchronized void take(long now) {
+		tat = Math.max(tat, now) + interval;
+	}
+	
+	/**
+	 * Takes a token if one is available.
+	 * @param now the current {@link System#nanoTime()}
+	 * @return 0 if a token was taken, otherwise the time until one is
+	 *     available in ns
+	 */
+	public synchronized long tryTake(long now) {
+		long ret = delay(now);
+		if (ret == 0) {
+			take(now);
+		}
+		
+		return ret;
+	}
+	
+}
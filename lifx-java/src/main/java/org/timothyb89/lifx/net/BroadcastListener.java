@@ -0,0 +1,1328 @@
+package org.timothyb89.lifx.net;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.timothyb89.eventbus.EventBus;
+import org.timothyb89.eventbus.EventBusClient;
+import org.timothyb89.eventbus.EventBusProvider;
+import org.timothyb89.lifx.gateway.Gateway;
+import org.timothyb89.lifx.gateway.GatewayManager;
+import org.timothyb89.lifx.net.android.WifiManagerProxy;
+import org.timothyb89.lifx.net.android.WifiManagerProxy.MulticastLockProxy;
+import org.timothyb89.lifx.net.field.Codecs;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.filter.PacketFilter;
+import org.timothyb89.lifx.net.filter.PacketHeader;
+import org.timothyb89.lifx.net.filter.TypeFilter;
+import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.PacketFactory;
+import org.timothyb89.lifx.net.packet.PacketTemplate;
+import org.timothyb89.lifx.net.packet.handler.PacketHandler;
+import org.timothyb89.lifx.net.packet.handler.ViewHandler;
+import org.timothyb89.lifx.net.packet.request.PANGatewayRequest;
+import org.timothyb89.lifx.net.packet.response.PANGatewayResponse;
+import org.timothyb89.lifx.net.packet.view.PacketView;
+
+/**
+ * Listens for UDP broadcasts from gateway bulbs. Listening and broadcasting
+ * can be started with {@link #startListen()}, and then events of type
+ * {@link GatewayDiscoveredEvent} will be emitted as gateways are discovered.
+ * 
+ * <p>Discovery probes are sent as directed broadcasts to every
+ * {@link DiscoveryTarget}: the broadcast address of each IPv4 interface that
+ * is up, plus any ranges added with {@link #addDiscoveryRange(String)}. Only
+ * if there are no targets at all is the global broadcast address used.
+ * Probes are sent as scheduled by the {@link DiscoveryScheduler}, which by
+ * default backs off while the set of gateways is stable.</p>
+ * <p>Currently only gateway discovery is performed over UDP; however, a number
+ * of events are sent over UDP in addition to TCP. In the future these may be
+ * handled to remove some of the need for maintaining a TCP connection.</p>
+ * 
+ * <p>In view mode (see {@link #setViewMode(boolean)}), packet types with a
+ * registered view handler are passed to each registered
+ * {@link PacketViewListener} as a reusable {@link PacketView} over the receive
+ * buffer, instead of being pushed as {@link PacketReceivedEvent}s. They are
+ * still parsed and routed to their gateway, unless view routing is disabled
+ * (see {@link #setViewRouting(boolean)}), in which case they are never parsed
+ * at all.</p>
+ * 
+ * <p>Before any datagram is decoded it is passed through the installed
+ * {@link PacketFilter}s (see {@link #addFilter(PacketFilter)}), which see
+ * only the preamble and may drop it.</p>
+ * 
+ * <p>Sockets are managed by a {@link UdpTransport}, which multiplexes one
+ * non-blocking channel per bind address (see
+ * {@link #addBindAddress(InetSocketAddress)}) on a single event loop thread;
+ * by default a single wildcard address is bound.</p>
+ * 
+ * <p>By default the event loop thread receives, decodes and dispatches every
+ * datagram. In {@link ThreadingMode#PIPELINED} mode (see
+ * {@link #setThreadingMode(ThreadingMode)}) the loop only drains
+ * the sockets, handing datagrams to a decode stage and then a dispatch stage,
+ * both sharded by bulb address. Events for a single bulb are still delivered
+ * in order, but events for different bulbs (and view callbacks) may then be
+ * delivered concurrently from several threads.</p>
+ * 
+ * <p>Datagrams are received into buffers drawn from a {@link BufferPool} and
+ * returned to it as soon as dispatch finishes. Parsed packets never reference
+ * the receive buffer, but views and anything else given direct access to it
+ * must copy out any data they need to keep.</p>
+ * @author tim
+ */
+@Slf4j
+public class BroadcastListener implements EventBusProvider {
+	
+	public static final int BROADCAST_PORT = 56700;
+	
+	/**
+	 * The time between discovery probes in {@link DiscoveryMode#FIXED} mode,
+	 * in ms.
+	 */
+	public static final int BROADCAST_DELAY = 1000;
+	
+	/**
+	 * How often the list of network interfaces is refreshed while
+	 * discovering, in ms.
+	 */
+	public static final int INTERFACE_REFRESH_INTERVAL = 30000;
+	
+	/**
+	 * The default receive buffer size. This is larger than any datagram that
+	 * fits in a single Ethernet frame, so a datagram that completely fills a
+	 * buffer has almost certainly been truncated.
+	 */
+	public static final int RECEIVE_BUFFER_SIZE = 1500;
+	public static final int RECEIVE_POOL_CAPACITY = 16;
+	
+	/**
+	 * The default send buffer size. Packets larger than the send buffers are
+	 * encoded into a newly allocated buffer instead.
+	 */
+	public static final int SEND_BUFFER_SIZE = 256;
+	public static final int SEND_POOL_CAPACITY = 64;
+	
+	public static final int DEFAULT_DECODE_THREADS = 2;
+	public static final int DEFAULT_DISPATCH_THREADS = 4;
+	public static final int DEFAULT_QUEUE_DEPTH = 256;
+	
+	/**
+	 * The address used for broadcast packets, in this case the entire /0 subnet
+	 */
+	public static final InetSocketAddress BROADCAST_ADDRESS =
+			new InetSocketAddress("255.255.255.255", BROADCAST_PORT);
+	
+	private Object androidContext;
+	
+	private EventBus bus;
+	
+	/**
+	 * The transport, only non-null while listening. This may be used to
+	 * inspect the bound endpoints and their counters.
+	 */
+	@Getter private volatile UdpTransport transport;
+	private Thread broadcastThread;
+	
+	private final List<InetSocketAddress> bindAddresses;
+	private final ReceiveHeader receiveHeader;
+	
+	/**
+	 * If true, discovery probes are sent to the broadcast address of every
+	 * local interface. Ranges added with {@link #addDiscoveryRange(String)}
+	 * are probed either way.
+	 */
+	@Getter @Setter private volatile boolean interfaceDiscovery;
+	
+	private final ConcurrentMap<String, DiscoveryTarget> interfaceTargets;
+	private final List<DiscoveryTarget> rangeTargets;
+	private final DiscoveryTarget globalTarget;
+	
+	/**
+	 * Decides when discovery probes are sent; see {@link DiscoveryMode}.
+	 */
+	@Getter private final DiscoveryScheduler discoveryScheduler;
+	
+	/**
+	 * If true, packets with a registered view handler are delivered as views
+	 * to {@link PacketViewListener}s instead of being pushed as
+	 * {@link PacketReceivedEvent}s. See {@link #viewRouting} for whether they
+	 * still reach their gateway.
+	 */
+	@Getter @Setter private volatile boolean viewMode;
+	
+	/**
+	 * If true (the default), packets delivered as views in view mode are
+	 * still parsed and routed to their gateway, so bulbs are discovered and
+	 * updated from them and response futures are fulfilled as usual; only
+	 * the {@link PacketReceivedEvent} is skipped. If false, they are never
+	 * parsed: gateways then no longer see view-mode packet types, so bulbs
+	 * are no longer discovered or updated from light status and power state
+	 * responses, and futures expecting them (including
+	 * {@link Gateway#refreshBulbs()}) expire.
+	 */
+	@Getter @Setter private volatile boolean viewRouting;
+	
+	private final List<PacketViewListener> viewListeners;
+	private final List<PacketFilter> filters;
+	
+	/**
+	 * The pool receive buffers are drawn from. By default this is a pool of
+	 * direct buffers of {@link #RECEIVE_BUFFER_SIZE} bytes, configured as
+	 * little-endian since nearly every field is little-endian. It may be
+	 * replaced before listening starts, e.g. to allow larger datagrams;
+	 * datagrams that fill an entire buffer are dropped as oversized.
+	 */
+	@Getter @Setter private BufferPool receivePool;
+	
+	/**
+	 * The pool outbound packets are encoded into. Buffers are returned to
+	 * the pool once the transport has written them.
+	 */
+	@Getter @Setter private volatile BufferPool sendPool;
+	
+	/**
+	 * The threading mode used while listening. Changes take effect the next
+	 * time listening starts.
+	 */
+	@Getter @Setter private ThreadingMode threadingMode;
+	
+	/**
+	 * The number of decode workers when {@link ThreadingMode#PIPELINED}.
+	 */
+	@Getter @Setter private int decodeThreads;
+	
+	/**
+	 * The number of dispatch workers when {@link ThreadingMode#PIPELINED}.
+	 */
+	@Getter @Setter private int dispatchThreads;
+	
+	/**
+	 * The queue depth of each pipeline worker.
+	 */
+	@Getter @Setter private int queueDepth;
+	
+	/**
+	 * The policy applied when a pipeline worker's queue is full.
+	 */
+	@Getter @Setter private DropPolicy dropPolicy;
+	
+	/**
+	 * The pipeline stages, only non-null while listening in
+	 * {@link ThreadingMode#PIPELINED} mode. These may be used to monitor
+	 * queue depths and drop counts.
+	 */
+	@Getter private volatile PipelineStage decodeStage;
+	@Getter private volatile PipelineStage dispatchStage;
+	
+	private final ThreadLocal<ReceiveHeader> decodeHeader;
+	
+	private final ConcurrentMap<InetSocketAddress, Gateway> sourceRoutes;
+	private final ConcurrentMap<MACAddress, Gateway> siteRoutes;
+	private final AtomicLong unroutedCount;
+	
+	private final AtomicLong receivedCount;
+	private final AtomicLong truncatedCount;
+	private final AtomicLong oversizedCount;
+	
+	/**
+	 * Creates a new BroadcastListener using the given android context. If the
+	 * platform is not android, this context may be left {@code null}.
+	 * @param androidContext the current Android context, or null
+	 */
+	public BroadcastListener(Object androidContext) {
+		this.androidContext = androidContext;
+		
+		viewListeners = new CopyOnWriteArrayList<>();
+		filters = new CopyOnWriteArrayList<>();
+		bindAddresses = new CopyOnWriteArrayList<>();
+		receiveHeader = new ReceiveHeader();
+		
+		interfaceDiscovery = true;
+		viewRouting = true;
+		interfaceTargets = new ConcurrentHashMap<>();
+		rangeTargets = new CopyOnWriteArrayList<>();
+		globalTarget = DiscoveryTarget.fromCidr("0.0.0.0/0", BROADCAST_PORT);
+		discoveryScheduler = new DiscoveryScheduler();
+		receivePool = BufferPool.direct(
+				RECEIVE_POOL_CAPACITY, RECEIVE_BUFFER_SIZE,
+				ByteOrder.LITTLE_ENDIAN);
+		sendPool = BufferPool.direct(
+				SEND_POOL_CAPACITY, SEND_BUFFER_SIZE,
+				ByteOrder.LITTLE_ENDIAN);
+		
+		threadingMode = ThreadingMode.SINGLE_THREAD;
+		decodeThreads = DEFAULT_DECODE_THREADS;
+		dispatchThreads = DEFAULT_DISPATCH_THREADS;
+		queueDepth = DEFAULT_QUEUE_DEPTH;
+		dropPolicy = DropPolicy.DROP_OLDEST;
+		
+		decodeHeader = new ThreadLocal<ReceiveHeader>() {
+			@Override
+			protected ReceiveHeader initialValue() {
+				return new ReceiveHeader();
+			}
+		};
+		
+		sourceRoutes = new ConcurrentHashMap<>();
+		siteRoutes = new ConcurrentHashMap<>();
+		unroutedCount = new AtomicLong();
+		
+		receivedCount = new AtomicLong();
+		truncatedCount = new AtomicLong();
+		oversizedCount = new AtomicLong();
+		
+		bus = new EventBus() {{
+			add(GatewayDiscoveredEvent.class);
+			add(PacketReceivedEvent.class);
+		}};
+	}
+	
+	/**
+	 * Creates a new BroadcastListener. If using android, an android context
+	 * must be provided to enable multicast; see
+	 * {@link #BroadcastListener(java.lang.Object)}.
+	 */
+	public BroadcastListener() {
+		this(null);
+	}
+	
+	@Override
+	public EventBusClient bus() {
+		return bus.getClient();
+	}
+	
+	/**
+	 * Returns the total number of datagrams received, including any that were
+	 * later dropped.
+	 * @return the number of datagrams received
+	 */
+	public long getReceivedCount() {
+		return receivedCount.get();
+	}
+	
+	/**
+	 * Returns the number of datagrams dropped because they were shorter than
+	 * the packet preamble or than the length given in their {@code size}
+	 * field.
+	 * @return the number of truncated datagrams
+	 */
+	public long getTruncatedCount() {
+		return truncatedCount.get();
+	}
+	
+	/**
+	 * Returns the number of datagrams dropped because they filled the entire
+	 * receive buffer, and so may have been cut short. A non-zero count means
+	 * the receive buffers should be made larger.
+	 * @return the number of oversized datagrams
+	 */
+	public long getOversizedCount() {
+		return oversizedCount.get();
+	}
+	
+	/**
+	 * Returns the number of decoded packets that could not be routed to any
+	 * known gateway, by either source address or site.
+	 * @return the number of unrouted packets
+	 */
+	public long getUnroutedCount() {
+		return unroutedCount.get();
+	}
+	
+	/**
+	 * Adds a route for packets from the given gateway: packets received from
+	 * its address, or carrying its address as their site, are delivered
+	 * directly to it. Called by
+	 * {@link GatewayManager#registerGateway(Gateway)}.
+	 * @param gateway the gateway to route packets to
+	 */
+	public void addRoute(Gateway gateway) {
+		sourceRoutes.put(gateway.getIpAddress(), gateway);
+		siteRoutes.put(gateway.getMacAddress(), gateway);
+	}
+	
+	/**
+	 * Removes the routes for the given gateway, if present.
+	 * @param gateway the gateway to remove routes for
+	 */
+	public void removeRoute(Gateway gateway) {
+		sourceRoutes.remove(gateway.getIpAddress(), gateway);
+		siteRoutes.remove(gateway.getMacAddress(), gateway);
+		discoveryScheduler.forgetGateway(gateway.getIpAddress());
+	}
+	
+	/**
+	 * Adds a listener to receive packet views while in view mode.
+	 * @param listener the listener to add
+	 */
+	public void addViewListener(PacketViewListener listener) {
+		viewListeners.add(listener);
+	}
+	
+	/**
+	 * Removes a previously added view listener.
+	 * @param listener the listener to remove
+	 */
+	public void removeViewListener(PacketViewListener listener) {
+		viewListeners.remove(listener);
+	}
+	
+	/**
+	 * Adds a prefilter to be applied to every received datagram before it is
+	 * decoded. Filters are applied in the order they were added, and a
+	 * datagram is dropped by the first filter that rejects it.
+	 * <p>Filters should be added before listening starts: in particular,
+	 * gateways only subscribe their packet types with a {@link TypeFilter}
+	 * that is already installed when they are discovered.</p>
+	 * @param filter the filter to add
+	 */
+	public void addFilter(PacketFilter filter) {
+		if (filter instanceof TypeFilter) {
+			// discovery must always work, so gateways can subscribe
+			((TypeFilter) filter).subscribe(PANGatewayResponse.TYPE);
+		}
+		
+		filters.add(filter);
+	}
+	
+	/**
+	 * Removes a previously added prefilter.
+	 * @param filter the filter to remove
+	 */
+	public void removeFilter(PacketFilter filter) {
+		filters.remove(filter);
+	}
+	
+	/**
+	 * Returns the installed prefilters, in the order they are applied. The
+	 * returned list is unmodifiable.
+	 * @return the list of installed filters
+	 */
+	public List<PacketFilter> getFilters() {
+		return Collections.unmodifiableList(filters);
+	}
+	
+	/**
+	 * Subscribes to the given packet types on every installed
+	 * {@link TypeFilter}, if any. This should be called by anything that
+	 * depends on receiving packets of particular types.
+	 * @param types the packet types to subscribe to
+	 */
+	public void subscribe(int... types) {
+		for (PacketFilter filter : filters) {
+			if (filter instanceof TypeFilter) {
+				((TypeFilter) filter).subscribe(types);
+			}
+		}
+	}
+	
+	/**
+	 * Adds a local address to listen on, e.g. the address of one interface
+	 * on a multi-homed host. Takes effect the next time listening starts.
+	 * If no addresses are added, the wildcard address is bound on
+	 * {@link #BROADCAST_PORT}.
+	 * @param address the local address to bind
+	 */
+	public void addBindAddress(InetSocketAddress address) {
+		bindAddresses.add(address);
+	}
+	
+	/**
+	 * Removes a previously added bind address.
+	 * @param address the address to remove
+	 */
+	public void removeBindAddress(InetSocketAddress address) {
+		bindAddresses.remove(address);
+	}
+	
+	/**
+	 * Returns the addresses that will be bound when listening starts. The
+	 * returned list is unmodifiable.
+	 * @return the configured bind addresses
+	 */
+	public List<InetSocketAddress> getBindAddresses() {
+		if (bindAddresses.isEmpty()) {
+			return Collections.singletonList(
+					new InetSocketAddress(BROADCAST_PORT));
+		}
+		
+		return Collections.unmodifiableList(
+				new ArrayList<>(bindAddresses));
+	}
+	
+	/**
+	 * Adds a range to send discovery probes to, e.g. a routed subnet that no
+	 * local interface is on. Probes are sent to the range's directed
+	 * broadcast address, which routers must be configured to forward.
+	 * @param cidr the range to probe, e.g. {@code 10.1.0.0/16}
+	 * @return the new discovery target
+	 * @throws IllegalArgumentException if the range is not a valid IPv4
+	 *     CIDR range
+	 */
+	public DiscoveryTarget addDiscoveryRange(String cidr) {
+		DiscoveryTarget target = DiscoveryTarget.fromCidr(cidr, BROADCAST_PORT);
+		rangeTargets.add(target);
+		
+		return target;
+	}
+	
+	/**
+	 * Removes a range previously added with
+	 * {@link #addDiscoveryRange(String)}.
+	 * @param target the target returned when the range was added
+	 */
+	public void removeDiscoveryRange(DiscoveryTarget target) {
+		rangeTargets.remove(target);
+	}
+	
+	/**
+	 * Returns every discovery target seen so far, including interfaces that
+	 * have since gone down (see {@link DiscoveryTarget#isActive()}) and the
+	 * global broadcast target if it has been used. The returned list is a
+	 * snapshot.
+	 * @return the known discovery targets
+	 */
+	public List<DiscoveryTarget> getDiscoveryTargets() {
+		List<DiscoveryTarget> ret = new ArrayList<>(interfaceTargets.values());
+		ret.addAll(rangeTargets);
+		
+		if (globalTarget.getProbeCount() > 0) {
+			ret.add(globalTarget);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Returns the targets the next round of discovery probes will be sent
+	 * to.
+	 * @return the active discovery targets
+	 */
+	private List<DiscoveryTarget> getActiveTargets() {
+		List<DiscoveryTarget> ret = new ArrayList<>();
+		
+		if (interfaceDiscovery) {
+			for (DiscoveryTarget t : interfaceTargets.values()) {
+				if (t.isActive()) {
+					ret.add(t);
+				}
+			}
+		}
+		
+		ret.addAll(rangeTargets);
+		
+		if (ret.isEmpty()) {
+			ret.add(globalTarget);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Enumerates the local network interfaces, adding a discovery target for
+	 * each IPv4 broadcast-capable address of every interface that is up.
+	 * Targets for addresses that are no longer present are deactivated
+	 * rather than removed, so their results remain available. This is
+	 * called periodically while discovering.
+	 */
+	public void refreshInterfaces() {
+		Set<String> live = new HashSet<>();
+		
+		try {
+			Enumeration<NetworkInterface> e =
+					NetworkInterface.getNetworkInterfaces();
+			
+			while (e != null && e.hasMoreElements()) {
+				NetworkInterface ni = e.nextElement();
+				if (!ni.isUp() || ni.isLoopback()) {
+					continue;
+				}
+				
+				for (InterfaceAddress ia : ni.getInterfaceAddresses()) {
+					InetAddress address = ia.getAddress();
+					if (ia.getBroadcast() == null
+							|| !(address instanceof Inet4Address)) {
+						continue;
+					}
+					
+					String key = ni.getName() + "/" + address.getHostAddress()
+							+ "/" + ia.getNetworkPrefixLength();
+					live.add(key);
+					
+					if (!interfaceTargets.containsKey(key)) {
+						DiscoveryTarget t = new DiscoveryTarget(
+								ni.getName(), (Inet4Address) address,
+								ia.getNetworkPrefixLength(), BROADCAST_PORT);
+						interfaceTargets.putIfAbsent(key, t);
+						
+						log.debug("Discovery target added: {}", t);
+					}
+				}
+			}
+		} catch (SocketException ex) {
+			log.warn("Unable to enumerate network interfaces", ex);
+			return;
+		}
+		
+		for (Map.Entry<String, DiscoveryTarget> entry
+				: interfaceTargets.entrySet()) {
+			entry.getValue().setActive(live.contains(entry.getKey()));
+		}
+	}
+	
+	/**
+	 * Finds the most specific known target whose subnet contains the given
+	 * address.
+	 * @param address the address to look up
+	 * @return the matching target, or null
+	 */
+	private DiscoveryTarget findTarget(InetAddress address) {
+		DiscoveryTarget best = null;
+		
+		for (DiscoveryTarget t : getActiveTargets()) {
+			if (t.contains(address) && (best == null
+					|| t.getPrefixLength() > best.getPrefixLength())) {
+				best = t;
+			}
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Sends a discovery probe to every active target. Each probe is sent from
+	 * the endpoint bound on the target's subnet, if there is one.
+	 * @param bytes the encoded discovery packet
+	 * @throws ClosedChannelException if the listener has been stopped
+	 */
+	private void probe(ByteBuffer bytes) throws ClosedChannelException {
+		UdpTransport t = transport();
+		
+		for (DiscoveryTarget target : getActiveTargets()) {
+			InetSocketAddress destination = target.getBroadcastAddress();
+			
+			UdpTransport.Endpoint endpoint = null;
+			for (UdpTransport.Endpoint e : t.getEndpoints()) {
+				if (target.contains(e.getLocalAddress().getAddress())) {
+					endpoint = e;
+					break;
+				}
+			}
+			
+			if (endpoint == null) {
+				endpoint = t.route(destination);
+			}
+			
+			endpoint.send(bytes, destination);
+			target.probeSent();
+		}
+	}
+	
+	/**
+	 * Begins listening for UDP broadcasts on the {@link #BROADCAST_PORT}.
+	 * @param daemon if true, threads are spawned in daemon mode and will allow
+	 *     program termination with the main thread
+	 * @throws IOException on network error
+	 */
+	public void startListen(boolean daemon) throws IOException {
+		if (isListening()) {
+			log.debug("Attempted to spawn multiple listener threads,"
+					+ " ignoring...");
+			return;
+		}
+		
+		UdpTransport t = new UdpTransport(receiver, receivePool);
+		try {
+			for (InetSocketAddress address : getBindAddresses()) {
+				t.bind(address);
+			}
+		} catch (IOException ex) {
+			t.close();
+			throw ex;
+		}
+		
+		startPipeline(daemon);
+		
+		transport = t;
+		t.start(daemon);
+		
+		broadcastThread = new Thread(broadcaster, "lifx-udp-broadcast");
+		broadcastThread.setDaemon(daemon);
+		broadcastThread.start();
+		
+		log.debug("Started listening on {}", t.getEndpoints());
+	}
+	
+	/**
+	 * Begins listening for UDP broadcasts on {@link #BROADCAST_PORT}. By
+	 * default, listening threads are not spawned in daemon mode; see
+	 * {@link #startListen(boolean)} to configure this.
+	 * @throws IOException on network error
+	 */
+	public void startListen() throws IOException {
+		startListen(false);
+	}
+	
+	/**
+	 * Stops broadcast packets for gateway discovery. This can be called to
+	 * stop searching for bulbs while keeping the channel open to communicate
+	 * with gateways already known.
+	 * @throws IOException on network error
+	 */
+	public void stopDiscovery() throws IOException {
+		broadcastThread.interrupt();
+	}
+	
+	/**
+	 * Closes the UDP channels and stops the event loop and broadcast threads.
+	 * Depending on the platform, it may be important to close the channel
+	 * whenever possible to reduce contention on the port. Particularly on
+	 * Android, other apps will try to bind to it.
+	 * @throws IOException on network error
+	 */
+	public void stopListen() throws IOException {
+		UdpTransport t = transport;
+		if (t == null) {
+			return;
+		}
+		
+		t.close();
+		
+		log.debug("Listening stopped");
+	}
+	
+	/**
+	 * Returns true currently listening for UDP packets
+	 * @return true if listening, false if not
+	 */
+	public boolean isListening() {
+		UdpTransport t = transport;
+		return t != null && t.isOpen();
+	}
+	
+	private UdpTransport transport() throws ClosedChannelException {
+		UdpTransport t = transport;
+		if (t == null) {
+			throw new ClosedChannelException();
+		}
+		
+		return t;
+	}
+	
+	/**
+	 * Sends the given packet to the specified destination, from the endpoint
+	 * the destination was last heard from (see
+	 * {@link UdpTransport#route(InetSocketAddress)}). The packet is encoded
+	 * into a buffer from the {@link #getSendPool() send pool} and queued on
+	 * the transport, so this returns without waiting for the socket.
+	 * @param packet the packet to send
+	 * @param destination the destination address for the packet
+	 * @return a future completed once the packet has been written
+	 * @throws java.nio.channels.ClosedChannelException
+	 * @throws java.io.IOException
+	 */
+	public SendFuture send(Packet packet, InetSocketAddress destination)
+			throws ClosedChannelException, IOException {
+		UdpTransport t = transport();
+		
+		BufferPool pool = sendPool;
+		if (packet.length() > pool.getBufferSize()) {
+			return t.send(packet.bytes(), destination);
+		}
+		
+		ByteBuffer buf = pool.acquire();
+		packet.encodeInto(buf);
+		buf.flip();
+		
+		return t.send(buf, destination, pool);
+	}
+	
+	/**
+	 * Sends a copy of the given template with the bulb address and site
+	 * patched in, encoded into a buffer from the send pool; see
+	 * {@link PacketTemplate#encodeInto(ByteBuffer, MACAddress, MACAddress)}.
+	 * @param template the template to send
+	 * @param bulbAddress the bulb address to set, or null
+	 * @param site the site to set, or null
+	 * @param destination the destination address for the packet
+	 * @return a future completed once the packet has been written
+	 * @throws java.nio.channels.ClosedChannelException
+	 * @throws java.io.IOException
+	 */
+	public SendFuture send(
+			PacketTemplate template, MACAddress bulbAddress,
+			MACAddress site, InetSocketAddress destination)
+			throws ClosedChannelException, IOException {
+		UdpTransport t = transport();
+		
+		BufferPool pool = sendPool;
+		if (template.length() > pool.getBufferSize()) {
+			return t.send(template.bytes(bulbAddress, site), destination);
+		}
+		
+		ByteBuffer buf = pool.acquire();
+		template.encodeInto(buf, bulbAddress, site);
+		buf.flip();
+		
+		return t.send(buf, destination, pool);
+	}
+	
+	/**
+	 * Sends an already encoded packet to the specified destination. The
+	 * bytes between the buffer's position and limit are sent; the buffer
+	 * itself is not modified, so the same buffer (e.g. from
+	 * {@link PacketTemplate#bytes()}) may be sent repeatedly.
+	 * @param bytes the encoded packet to send
+	 * @param destination the destination address for the packet
+	 * @return a future completed once the packet has been written
+	 * @throws java.nio.channels.ClosedChannelException
+	 * @throws java.io.IOException
+	 */
+	public SendFuture send(ByteBuffer bytes, InetSocketAddress destination)
+			throws ClosedChannelException, IOException {
+		return transport().send(bytes, destination);
+	}
+	
+	/**
+	 * Broadcasts the given packet to all possible addresses, from every
+	 * bound endpoint.
+	 * @param packet the packet to broadcast
+	 * @throws java.nio.channels.ClosedChannelException
+	 * @throws java.io.IOException
+	 */
+	public void broadcast(Packet packet)
+			throws ClosedChannelException, IOException {
+		broadcast(packet.bytes());
+	}
+	
+	/**
+	 * Broadcasts an already encoded packet to all possible addresses.
+	 * @see #send(ByteBuffer, InetSocketAddress)
+	 * @param bytes the encoded packet to broadcast
+	 * @throws java.nio.channels.ClosedChannelException
+	 * @throws java.io.IOException
+	 */
+	public void broadcast(ByteBuffer bytes)
+			throws ClosedChannelException, IOException {
+		transport().sendAll(bytes, BROADCAST_ADDRESS);
+	}
+	
+	private final UdpTransport.Handler receiver = new UdpTransport.Handler() {
+		
+		@Override
+		public boolean datagramReceived(
+				UdpTransport.Endpoint endpoint, InetSocketAddress source,
+				ByteBuffer buf) {
+			// the buffer is returned to the pool once decoding finishes;
+			// packets copy everything they parse, and views must not
+			// outlive their callback
+			receivedCount.incrementAndGet();
+			
+			if (!validate(buf, source)) {
+				return false;
+			}
+			
+			PipelineStage stage = decodeStage;
+			if (stage != null) {
+				// hand the buffer off to the decode stage, keeping packets
+				// from the same bulb on the same worker
+				long bulb = MACAddress.bits(buf, Packet.OFFSET_BULB_ADDRESS);
+				stage.submit(shard(bulb),
+						new DecodeTask(source, buf, receivePool));
+				return true;
+			}
+			
+			Packet packet = decode(receiveHeader, source, buf);
+			if (packet != null) {
+				dispatch(source, packet, receiveHeader.viewed);
+			}
+			
+			return false;
+		}
+		
+		@Override
+		public void transportClosed(UdpTransport t) {
+			log.debug("Listener ended");
+			
+			stopPipeline();
+		}
+		
+	};
+	
+	/**
+	 * Filters and decodes a validated datagram. Gateway discovery responses
+	 * are handled here directly, as are packets delivered as views unless
+	 * {@link #viewRouting} is set, and {@code null} is returned; otherwise
+	 * the decoded packet is returned for dispatch, and
+	 * {@link ReceiveHeader#viewed} is set if it was already delivered as a
+	 * view.
+	 * @param header a reusable header instance
+	 * @param source the source address of the datagram
+	 * @param buf the receive buffer, limited to the packet length
+	 * @return the decoded packet, or null if there is nothing to dispatch
+	 */
+	private Packet decode(
+			ReceiveHeader header, InetSocketAddress source, ByteBuffer buf) {
+		header.viewed = false;
+		
+		try {
+			// read the preamble without decoding anything else, and give
+			// filters a chance to drop the datagram
+			header.read(source, buf);
+			if (!filter(header)) {
+				return null;
+			}
+			
+			int type = header.getType();
+			
+			if (log.isTraceEnabled()) {
+				log.trace("Packet type {} received",
+						String.format("0x%02X", type));
+			}
+			
+			// we only handle gateway messages here (0x03), so we don't
+			// need to use the PacketFactory
+			if (type == PANGatewayResponse.TYPE) {
+				gatewayResponse(source, buf);
+				return null;
+			}
+			
+			if (viewMode && dispatchView(type, source, buf)) {
+				if (!viewRouting) {
+					return null;
+				}
+				
+				// gateways still need the parsed packet to update their bulbs
+				// and fulfill responses
+				header.viewed = true;
+			}
+			
+			// attempt to parse the packet
+			PacketHandler<?> handler = PacketFactory.handler(type);
+			if (handler == null) {
+				log.trace("Unknown packet type: {} (source: {})",
+						String.format("0x%02X", type),
+						source.toString());
+				return null;
+			}
+			
+			Packet packet = handler.handle(buf);
+			if (packet == null) {
+				log.warn("Handler {} was unable to handle packet",
+						handler.getClass().getName());
+			}
+			
+			return packet;
+		} catch (BufferUnderflowException ex) {
+			log.debug("Ignoring truncated packet", ex);
+			return null;
+		} finally {
+			header.clear();
+		}
+	}
+	
+	/**
+	 * Handles a gateway discovery response, registering the gateway if it is
+	 * new.
+	 * @param source the source address of the response
+	 * @param buf the receive buffer
+	 */
+	private void gatewayResponse(InetSocketAddress source, ByteBuffer buf) {
+		PANGatewayResponse packet = new PANGatewayResponse();
+		packet.parse(buf);
+		
+		int port = (int) packet.getPort();
+		if (port == 0) {
+			// we get port 0 responses for some reason (?)
+			// just ignore them
+			return;
+		}
+		
+		GatewayManager manager = GatewayManager.getInstance();
+		
+		Gateway g = null;
+		synchronized (manager) {
+			// responses may be decoded concurrently when pipelined, so make
+			// sure only one Gateway is ever created per address
+			if (!manager.hasGateway(source, port)) {
+				g = new Gateway(this, source, port, packet.getSite());
+				manager.registerGateway(g);
+			}
+		}
+		
+		discoveryScheduler.gatewaySeen(source, g != null);
+		
+		if (g != null) {
+			log.debug("Gateway found: {}", g);
+			
+			DiscoveryTarget target = findTarget(source.getAddress());
+			if (target != null) {
+				target.gatewayFound(g);
+			}
+			
+			bus.push(new GatewayDiscoveredEvent(g));
+		} else {
+			log.trace("Existing gateway found.");
+		}
+	}
+	
+	/**
+	 * Delivers the given packet to its gateway and, unless it was already
+	 * delivered as a view, pushes a {@link PacketReceivedEvent} for it, and
+	 * releases the packet afterward.
+	 * @param source the source address of the packet
+	 * @param packet the packet to dispatch
+	 * @param viewed true if the packet was delivered as a view
+	 */
+	private void dispatch(
+			InetSocketAddress source, Packet packet, boolean viewed) {
+		log.debug("Dispatching packet: {}", packet);
+		
+		try {
+			Gateway gateway = sourceRoutes.get(source);
+			if (gateway == null) {
+				gateway = routeUnknown(source, packet);
+			}
+			
+			if (gateway != null) {
+				gateway.packetReceived(packet);
+			}
+			
+			if (!viewed) {
+				bus.push(new PacketReceivedEvent(this, source, packet));
+			}
+		} finally {
+			// event dispatch is synchronous, so every handler is done with the
+			// packet (unless it retained it) and pooled packets can be
+			// recycled
+			packet.release();
+		}
+	}
+	
+	/**
+	 * Finds the gateway for a packet from an unknown source address. This
+	 * happens e.g. when a gateway replies from a different address than the
+	 * one it was discovered on, so the packet's site is used instead. Packets
+	 * matching no known gateway are counted, and if they carry a site (unlike
+	 * e.g. our own discovery probes) may point to an undiscovered gateway, so
+	 * the discovery scheduler is told about them.
+	 * @param source the source address of the packet
+	 * @param packet the received packet
+	 * @return the gateway to deliver to, or null
+	 */
+	private Gateway routeUnknown(InetSocketAddress source, Packet packet) {
+		Gateway gateway = null;
+		if (packet.getSite() != null) {
+			gateway = siteRoutes.get(packet.getSite());
+		}
+		
+		if (gateway == null) {
+			unroutedCount.incrementAndGet();
+			log.trace("No gateway for packet from {}", source);
+			
+			MACAddress site = packet.getSite();
+			if (site != null && site.getValue() != 0) {
+				discoveryScheduler.unknownSource(source);
+			}
+		} else {
+			log.trace("Routed packet from unknown source {} to {} by site",
+					source, gateway);
+		}
+		
+		return gateway;
+	}
+	
+	/**
+	 * Maps a bulb address to a pipeline shard. Addresses from one vendor
+	 * share their upper bytes, so all bits are mixed.
+	 * @param bulb the packed bulb address
+	 * @return a hash for {@link PipelineStage#submit(int, PipelineStage.Task)}
+	 */
+	private static int shard(long bulb) {
+		return (int) ((bulb * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+	
+	private void startPipeline(boolean daemon) {
+		if (threadingMode != ThreadingMode.PIPELINED) {
+			return;
+		}
+		
+		dispatchStage = new PipelineStage(
+				"lifx-dispatch", dispatchThreads, queueDepth,
+				dropPolicy, daemon);
+		decodeStage = new PipelineStage(
+				"lifx-decode", decodeThreads, queueDepth,
+				dropPolicy, daemon);
+	}
+	
+	private void stopPipeline() {
+		PipelineStage decode = decodeStage;
+		PipelineStage dispatch = dispatchStage;
+		decodeStage = null;
+		dispatchStage = null;
+		
+		if (decode != null) {
+			decode.shutdown();
+		}
+		
+		if (dispatch != null) {
+			dispatch.shutdown();
+		}
+	}
+	
+	/**
+	 * Decodes a datagram on the decode stage, then passes the packet on to
+	 * the dispatch stage.
+	 */
+	private class DecodeTask implements PipelineStage.Task {
+		
+		private final InetSocketAddress source;
+		private final ByteBuffer buf;
+		private final BufferPool pool;
+		
+		public DecodeTask(
+				InetSocketAddress source, ByteBuffer buf, BufferPool pool) {
+			this.source = source;
+			this.buf = buf;
+			this.pool = pool;
+		}
+		
+		@Override
+		public void run() {
+			ReceiveHeader header = decodeHeader.get();
+			
+			Packet packet;
+			try {
+				packet = decode(header, source, buf);
+			} finally {
+				pool.release(buf);
+			}
+			
+			if (packet == null) {
+				return;
+			}
+			
+			PipelineStage stage = dispatchStage;
+			if (stage == null) {
+				// shutting down
+				packet.release();
+				return;
+			}
+			
+			stage.submit(shard(packet.getBulbAddress().getValue()),
+					new DispatchTask(source, packet, header.viewed));
+		}
+		
+		@Override
+		public void discard() {
+			pool.release(buf);
+		}
+		
+	}
+	
+	/**
+	 * Pushes a decoded packet to event handlers on the dispatch stage.
+	 */
+	private class DispatchTask implements PipelineStage.Task {
+		
+		private final InetSocketAddress source;
+		private final Packet packet;
+		private final boolean viewed;
+		
+		public DispatchTask(
+				InetSocketAddress source, Packet packet, boolean viewed) {
+			this.source = source;
+			this.packet = packet;
+			this.viewed = viewed;
+		}
+		
+		@Override
+		public void run() {
+			dispatch(source, packet, viewed);
+		}
+		
+		@Override
+		public void discard() {
+			packet.release();
+		}
+		
+	}
+	
+	/**
+	 * A reusable header that also records whether the datagram last decoded
+	 * with it was delivered as a view. Like the header itself, this is only
+	 * used by one thread at a time.
+	 */
+	private static class ReceiveHeader extends PacketHeader {
+		
+		private boolean viewed;
+		
+	}
+	
+	/**
+	 * Checks a received datagram against its {@code size} field. On success
+	 * the buffer's limit is set to exactly the packet length, so decoders
+	 * only ever see the bytes belonging to the packet; the buffer is flipped
+	 * and sliced in place rather than with {@link ByteBuffer#slice()}, which
+	 * would reset the byte order.
+	 * @param buf the receive buffer, flipped to the datagram length
+	 * @param source the datagram source, for logging
+	 * @return true if the packet is valid, false if it should be dropped
+	 */
+	private boolean validate(ByteBuffer buf, InetSocketAddress source) {
+		int length = buf.limit();
+		
+		if (length == buf.capacity()) {
+			oversizedCount.incrementAndGet();
+			log.debug("Dropping oversized datagram from {} ({} bytes)",
+					source, length);
+			return false;
+		}
+		
+		if (length < Packet.PREAMBLE_LENGTH) {
+			truncatedCount.incrementAndGet();
+			log.debug("Dropping runt datagram from {} ({} bytes)",
+					source, length);
+			return false;
+		}
+		
+		int size = Codecs.getUInt16(
+				buf, Packet.OFFSET_SIZE, ByteOrder.LITTLE_ENDIAN);
+		if (size < Packet.PREAMBLE_LENGTH || size > length) {
+			truncatedCount.incrementAndGet();
+			log.debug("Dropping truncated packet from {} (size {}, got {})",
+					source, size, length);
+			return false;
+		}
+		
+		// ignore any trailing bytes past the declared size
+		buf.limit(size);
+		
+		return true;
+	}
+	
+	/**
+	 * Applies each installed filter to the given header in turn.
+	 * @param header the header of the received datagram
+	 * @return true if every filter accepted the datagram
+	 */
+	private boolean filter(PacketHeader header) {
+		for (PacketFilter filter : filters) {
+			if (!filter.test(header)) {
+				if (log.isTraceEnabled()) {
+					log.trace("Datagram of type {} from {} dropped by {}",
+							String.format("0x%02X", header.getType()),
+							header.getSource(), filter);
+				}
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Attempts to deliver the packet in the given buffer as a view. Returns
+	 * false if no view handler is registered for the packet type, in which
+	 * case the packet should be handled normally.
+	 * @param type the packet type
+	 * @param source the source address of the packet
+	 * @param buf the receive buffer, positioned at the start of the packet
+	 * @return true if the packet was consumed
+	 */
+	private boolean dispatchView(
+			int type, InetSocketAddress source, ByteBuffer buf) {
+		ViewHandler<?> handler = PacketFactory.viewHandler(type);
+		if (handler == null) {
+			return false;
+		}
+		
+		PacketView view = handler.wrap(buf);
+		if (view == null) {
+			log.debug("Truncated packet of type {} from {}",
+					String.format("0x%02X", type), source);
+			return true;
+		}
+		
+		for (PacketViewListener l : viewListeners) {
+			l.viewReceived(this, source, view);
+		}
+		
+		return true;
+	}
+	
+	private final Runnable broadcaster = new Runnable() {
+		
+		@Override
+		public void run() {
+			// the discovery packet never changes, so encode it only once
+			PacketTemplate discovery = new PacketTemplate(
+					new PANGatewayRequest());
+			ByteBuffer bytes = discovery.bytes();
+			
+			// android requires a multicast lock, so we use a proxy class
+			// if the WifiManager is missing (i.e. not android) it does nothing
+			
+			WifiManagerProxy wifiManager = WifiManagerProxy.getInstance(androidContext);
+			MulticastLockProxy lock = wifiManager.createMulticastLock(
+					getClass().getPackage().getName());
+			lock.acquire();
+			
+			long refreshed = 0;
+			
+			discoveryScheduler.reset();
+			
+			while (true) {
+				long now = System.currentTimeMillis();
+				if (interfaceDiscovery
+						&& now - refreshed >= INTERFACE_REFRESH_INTERVAL) {
+					refreshInterfaces();
+					refreshed = now;
+				}
+				
+				try {
+					probe(bytes);
+					discoveryScheduler.probeSent(System.nanoTime());
+					log.trace("Discovery packets sent");
+				} catch (ClosedChannelException ex) {
+					break;
+				} catch (Exception ex) {
+					log.error("Error sending discovery packet", ex);
+				}
+				
+				try {
+					discoveryScheduler.awaitNextProbe();
+				} catch (InterruptedException ex) {
+					break;
+				}
+			}
+			
+			lock.release();
+		}
+		
+	};
+	
+}
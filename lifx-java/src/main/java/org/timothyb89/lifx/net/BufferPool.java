@@ -0,0 +1,165 @@
+package org.timothyb89.lifx.net;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A bounded pool of equally-sized {@link ByteBuffer}s. Buffers are drawn with
+ * {@link #acquire()} and handed back with {@link #release(ByteBuffer)}; if the
+ * pool is empty a new buffer is allocated (a "miss"), and if the pool is full
+ * a released buffer is simply dropped and left to the garbage collector.
+ * 
+ * <p>Ownership is strict: once a buffer has been released, the caller must
+ * not keep or use any reference to it (including views and duplicates), as it
+ * may be handed to another thread at any time. Data that needs to outlive the
+ * buffer must be copied out first.</p>
+ * 
+ * <p>Hit and miss counters are kept to help size the pool; a steady stream of
+ * misses means the pool is too small for the number of buffers in flight.</p>
+ * @author tim
+ */
+@ToString(of = { "bufferSize", "capacity", "direct", "hits", "misses" })
+public class BufferPool {
+	
+	@Getter private final int bufferSize;
+	@Getter private final int capacity;
+	@Getter private final boolean direct;
+	@Getter private final ByteOrder order;
+	
+	private final BlockingQueue<ByteBuffer> buffers;
+	
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong dropped;
+
+	/**
+	 * Creates a new buffer pool.
+	 * @param capacity the maximum number of idle buffers to retain
+	 * @param bufferSize the size of each buffer, in bytes
+	 * @param direct if true, direct buffers are allocated
+	 * @param order the byte order to set on acquired buffers
+	 */
+	public BufferPool(
+			int capacity, int bufferSize, boolean direct, ByteOrder order) {
+		if (capacity <= 0 || bufferSize <= 0) {
+			throw new IllegalArgumentException(
+					"Pool capacity and buffer size must be positive");
+		}
+		
+		this.capacity = capacity;
+		this.bufferSize = bufferSize;
+		this.direct = direct;
+		this.order = order;
+		
+		buffers = new ArrayBlockingQueue<>(capacity);
+		
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		dropped = new AtomicLong();
+	}
+	
+	/**
+	 * Creates a pool of heap buffers.
+	 * @param capacity the maximum number of idle buffers to retain
+	 * @param bufferSize the size of each buffer, in bytes
+	 * @param order the byte order to set on acquired buffers
+	 * @return a new heap buffer pool
+	 */
+	public static BufferPool heap(int capacity, int bufferSize, ByteOrder order) {
+		return new BufferPool(capacity, bufferSize, false, order);
+	}
+	
+	/**
+	 * Creates a pool of direct buffers. Direct buffers are more expensive to
+	 * allocate but avoid an extra copy on socket IO, so they should only be
+	 * used with a pool large enough to rarely miss.
+	 * @param capacity the maximum number of idle buffers to retain
+	 * @param bufferSize the size of each buffer, in bytes
+	 * @param order the byte order to set on acquired buffers
+	 * @return a new direct buffer pool
+	 */
+	public static BufferPool direct(
+			int capacity, int bufferSize, ByteOrder order) {
+		return new BufferPool(capacity, bufferSize, true, order);
+	}
+	
+	/**
+	 * Takes a buffer from the pool, allocating a new one if none are idle. The
+	 * returned buffer is cleared and set to the pool's byte order.
+	 * @return a cleared buffer
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer ret = buffers.poll();
+		if (ret == null) {
+			misses.incrementAndGet();
+			ret = direct
+					? ByteBuffer.allocateDirect(bufferSize)
+					: ByteBuffer.allocate(bufferSize);
+		} else {
+			hits.incrementAndGet();
+			ret.clear();
+		}
+		
+		return ret.order(order);
+	}
+	
+	/**
+	 * Returns a buffer to the pool. The caller gives up ownership of the
+	 * buffer and must not use it again. Buffers not created by this pool
+	 * (or of a different size or kind) are ignored.
+	 * @param buffer the buffer to release, or null
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null
+				|| buffer.capacity() != bufferSize
+				|| buffer.isDirect() != direct
+				|| buffer.isReadOnly()) {
+			return;
+		}
+		
+		if (!buffers.offer(buffer)) {
+			dropped.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Returns the number of {@link #acquire()} calls satisfied by an idle
+	 * buffer.
+	 * @return the number of pool hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Returns the number of {@link #acquire()} calls that had to allocate a
+	 * new buffer.
+	 * @return the number of pool misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * Returns the number of released buffers discarded because the pool was
+	 * already full.
+	 * @return the number of dropped buffers
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	/**
+	 * Returns the number of idle buffers currently held by the pool.
+	 * @return the number of idle buffers
+	 */
+	public int getAvailable() {
+		return buffers.size();
+	}
+	
+}
@@ -0,0 +1,22 @@
+package org.timothyb89.lifx.net;
+
+/**
+ * Determines how often a {@link DiscoveryScheduler} sends discovery probes.
+ * @author tim
+ */
+public enum DiscoveryMode {
+	
+	/**
+	 * Probe every {@link BroadcastListener#BROADCAST_DELAY} ms for as long as
+	 * discovery runs.
+	 */
+	FIXED,
+	
+	/**
+	 * Probe in a quick burst at startup, then back off exponentially while
+	 * the set of gateways stays the same, bursting again when a gateway stops
+	 * responding or packets arrive from an unknown source.
+	 */
+	ADAPTIVE;
+	
+}
@@ -0,0 +1,282 @@
+package org.timothyb89.lifx.net;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides when the {@link BroadcastListener} sends its next gateway discovery
+ * probe. In {@link DiscoveryMode#ADAPTIVE} mode, discovery starts with a burst
+ * of {@link #getBurstProbes()} probes {@link #getBurstInterval()} ms apart.
+ * After that the interval starts at {@link #getBaseInterval()} and doubles
+ * with every probe that finds no new gateway, up to
+ * {@link #getMaxInterval()}; finding a new gateway resets it.
+ * 
+ * <p>Known gateways answer every probe, so a gateway that misses
+ * {@link #getMissThreshold()} probes in a row is considered silent and
+ * triggers a new burst, as does a packet from a source that can't be routed
+ * to any known gateway. Triggers wake the broadcaster immediately, but at
+ * most once every {@link #getTriggerHoldoff()} ms so that a noisy source
+ * can't keep discovery bursting.</p>
+ * 
+ * <p>In {@link DiscoveryMode#FIXED} mode probes are simply sent every
+ * {@link BroadcastListener#BROADCAST_DELAY} ms.</p>
+ * @author tim
+ */
+@Slf4j
+public class DiscoveryScheduler {
+	
+	public static final int DEFAULT_BURST_PROBES = 5;
+	public static final long DEFAULT_BURST_INTERVAL = 200;
+	public static final long DEFAULT_BASE_INTERVAL = 1000;
+	public static final long DEFAULT_MAX_INTERVAL = 60000;
+	public static final int DEFAULT_MISS_THRESHOLD = 2;
+	public static final long DEFAULT_TRIGGER_HOLDOFF = 5000;
+	
+	@Getter @Setter private volatile DiscoveryMode mode;
+	
+	/**
+	 * The number of probes sent in a burst.
+	 */
+	@Getter @Setter private volatile int burstProbes;
+	
+	/**
+	 * The time between probes in a burst, in ms.
+	 */
+	@Getter @Setter private volatile long burstInterval;
+	
+	/**
+	 * The interval after a burst, or after a new gateway is found, in ms.
+	 */
+	@Getter @Setter private volatile long baseInterval;
+	
+	/**
+	 * The longest interval between probes, in ms.
+	 */
+	@Getter @Setter private volatile long maxInterval;
+	
+	/**
+	 * The number of consecutive probes a known gateway may miss before it is
+	 * considered silent.
+	 */
+	@Getter @Setter private volatile int missThreshold;
+	
+	/**
+	 * The minimum time between triggered bursts, in ms.
+	 */
+	@Getter @Setter private volatile long triggerHoldoff;
+	
+	private final Map<InetSocketAddress, Peer> peers;
+	
+	private int burstRemaining;
+	private long interval;
+	private boolean changed;
+	private boolean woken;
+	
+	private long lastProbe;
+	private long lastTrigger;
+	
+	private long probeCount;
+	private long triggerCount;
+	
+	public DiscoveryScheduler() {
+		mode = DiscoveryMode.ADAPTIVE;
+		
+		burstProbes = DEFAULT_BURST_PROBES;
+		burstInterval = DEFAULT_BURST_INTERVAL;
+		baseInterval = DEFAULT_BASE_INTERVAL;
+		maxInterval = DEFAULT_MAX_INTERVAL;
+		missThreshold = DEFAULT_MISS_THRESHOLD;
+		triggerHoldoff = DEFAULT_TRIGGER_HOLDOFF;
+		
+		peers = new HashMap<>();
+	}
+	
+	/**
+	 * Starts over with a burst, as when discovery first begins. Known
+	 * gateways are kept.
+	 */
+	public synchronized void reset() {
+		burstRemaining = burstProbes;
+		interval = baseInterval;
+		changed = false;
+		woken = false;
+		lastProbe = 0;
+	}
+	
+	/**
+	 * Records that a probe was sent, and checks for gateways that did not
+	 * answer the previous one.
+	 * @param now the current nanoTime
+	 */
+	public synchronized void probeSent(long now) {
+		probeCount++;
+		
+		if (lastProbe != 0 && mode == DiscoveryMode.ADAPTIVE) {
+			for (Map.Entry<InetSocketAddress, Peer> e : peers.entrySet()) {
+				Peer peer = e.getValue();
+				if (peer.lastSeen - lastProbe >= 0) {
+					peer.missed = 0;
+					peer.silent = false;
+					continue;
+				}
+				
+				// a silent gateway triggers one burst until it is seen again;
+				// if the trigger is held off, retry on the next probe
+				if (++peer.missed >= missThreshold && !peer.silent
+						&& trigger(now)) {
+					log.debug("Gateway {} stopped responding", e.getKey());
+					peer.missed = 0;
+					peer.silent = true;
+				}
+			}
+		}
+		
+		lastProbe = now;
+		
+		// a probe just went out, so a burst triggered above starts with it
+		woken = false;
+	}
+	
+	/**
+	 * Records a discovery response from a gateway.
+	 * @param source the gateway address
+	 * @param found true if the gateway was previously unknown
+	 */
+	public synchronized void gatewaySeen(InetSocketAddress source,
+			boolean found) {
+		Peer peer = peers.get(source);
+		if (peer == null) {
+			peer = new Peer();
+			peers.put(source, peer);
+		}
+		
+		peer.lastSeen = System.nanoTime();
+		
+		if (found) {
+			changed = true;
+		}
+	}
+	
+	/**
+	 * Stops tracking a gateway, e.g. once it has been purged, so its silence
+	 * doesn't trigger a burst.
+	 * @param source the gateway address
+	 */
+	public synchronized void forgetGateway(InetSocketAddress source) {
+		peers.remove(source);
+	}
+	
+	/**
+	 * Notes a packet from a source that couldn't be routed to any known
+	 * gateway, which may mean there is a gateway left to discover.
+	 * @param source the source address
+	 */
+	public synchronized void unknownSource(InetSocketAddress source) {
+		if (mode == DiscoveryMode.ADAPTIVE && trigger(System.nanoTime())) {
+			log.debug("Packet from unknown source {}", source);
+		}
+	}
+	
+	/**
+	 * Begins a new burst and wakes the broadcaster, unless a burst was
+	 * triggered within the holdoff time.
+	 * @param now the current nanoTime
+	 * @return true if a burst was triggered
+	 */
+	private boolean trigger(long now) {
+		if (lastTrigger != 0 && now - lastTrigger
+				< TimeUnit.MILLISECONDS.toNanos(triggerHoldoff)) {
+			return false;
+		}
+		
+		lastTrigger = now;
+		triggerCount++;
+		
+		burstRemaining = burstProbes;
+		interval = baseInterval;
+		
+		woken = true;
+		notifyAll();
+		return true;
+	}
+	
+	/**
+	 * Calculates the delay until the next probe.
+	 * @return the delay, in ms
+	 */
+	private long nextDelay() {
+		if (mode == DiscoveryMode.FIXED) {
+			return BroadcastListener.BROADCAST_DELAY;
+		}
+		
+		if (burstRemaining > 0) {
+			burstRemaining--;
+			return burstInterval;
+		}
+		
+		if (changed) {
+			changed = false;
+			interval = baseInterval;
+		} else {
+			interval = Math.min(interval * 2, maxInterval);
+		}
+		
+		return interval;
+	}
+	
+	/**
+	 * Waits until the next probe is due, or until a burst is triggered.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized void awaitNextProbe() throws InterruptedException {
+		long delay = TimeUnit.MILLISECONDS.toNanos(nextDelay());
+		long deadline = System.nanoTime() + delay;
+		
+		while (!woken && delay > 0) {
+			TimeUnit.NANOSECONDS.timedWait(this, delay);
+			delay = deadline - System.nanoTime();
+		}
+		
+		woken = false;
+	}
+	
+	/**
+	 * Returns the current interval between probes outside of a burst.
+	 * @return the current interval, in ms
+	 */
+	public synchronized long getCurrentInterval() {
+		return mode == DiscoveryMode.FIXED
+				? BroadcastListener.BROADCAST_DELAY : interval;
+	}
+	
+	/**
+	 * Returns the number of probes sent.
+	 * @return the number of probes sent
+	 */
+	public synchronized long getProbeCount() {
+		return probeCount;
+	}
+	
+	/**
+	 * Returns the number of bursts triggered by silent gateways or unknown
+	 * sources.
+	 * @return the number of triggered bursts
+	 */
+	public synchronized long getTriggerCount() {
+		return triggerCount;
+	}
+	
+	private static class Peer {
+		
+		private long lastSeen;
+		private int missed;
+		private boolean silent;
+		
+	}
+	
+}
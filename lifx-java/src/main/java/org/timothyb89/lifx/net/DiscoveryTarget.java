@@ -0,0 +1,181 @@
+package org.timothyb89.lifx.net;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.ToString;
+import org.timothyb89.lifx.gateway.Gateway;
+
+/**
+ * A destination for gateway discovery broadcasts: the directed broadcast
+ * address of one local interface, or of a configured CIDR range. Each target
+ * keeps track of the probes sent to it and the gateways found in its
+ * subnet, so it is possible to see which interface finds which gateways.
+ * @author tim
+ */
+@ToString(of = { "name", "broadcastAddress", "prefixLength", "active" })
+public class DiscoveryTarget {
+	
+	/**
+	 * The name of this target: the interface name, or the CIDR range it was
+	 * configured from.
+	 */
+	@Getter private final String name;
+	
+	@Getter private final InetSocketAddress broadcastAddress;
+	@Getter private final int prefixLength;
+	
+	private final int network;
+	private final int mask;
+	
+	/**
+	 * True while this target is probed. Interface targets become inactive
+	 * when their interface goes down or disappears.
+	 */
+	@Getter private volatile boolean active;
+	
+	private final AtomicLong probes;
+	private final List<Gateway> gateways;
+	
+	/**
+	 * Creates a new target for the IPv4 subnet containing {@code address}.
+	 * @param name the name of the target
+	 * @param address any address in the subnet
+	 * @param prefixLength the subnet prefix length, 0-32
+	 * @param port the port to send probes to
+	 */
+	public DiscoveryTarget(
+			String name, Inet4Address address, int prefixLength, int port) {
+		if (prefixLength < 0 || prefixLength > 32) {
+			throw new IllegalArgumentException(
+					"Invalid prefix length: " + prefixLength);
+		}
+		
+		this.name = name;
+		this.prefixLength = prefixLength;
+		
+		mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+		network = toInt(address) & mask;
+		
+		broadcastAddress = new InetSocketAddress(
+				toAddress(network | ~mask), port);
+		
+		active = true;
+		
+		probes = new AtomicLong();
+		gateways = new CopyOnWriteArrayList<>();
+	}
+	
+	/**
+	 * Creates a target from a CIDR range such as {@code 10.1.0.0/16}.
+	 * @param cidr the range, in CIDR notation
+	 * @param port the port to send probes to
+	 * @return a new discovery target
+	 * @throws IllegalArgumentException if the range is not a valid IPv4
+	 *     CIDR range
+	 */
+	public static DiscoveryTarget fromCidr(String cidr, int port) {
+		int slash = cidr.indexOf('/');
+		if (slash < 0) {
+			throw new IllegalArgumentException("Not a CIDR range: " + cidr);
+		}
+		
+		InetAddress address;
+		int prefix;
+		try {
+			// only accept literals, never resolve hostnames here
+			String literal = cidr.substring(0, slash);
+			if (!literal.matches("[0-9.]+")) {
+				throw new IllegalArgumentException(
+						"Not an IPv4 range: " + cidr);
+			}
+			
+			address = InetAddress.getByName(literal);
+			prefix = Integer.parseInt(cidr.substring(slash + 1));
+		} catch (UnknownHostException | NumberFormatException ex) {
+			throw new IllegalArgumentException(
+					"Not a CIDR range: " + cidr, ex);
+		}
+		
+		if (!(address instanceof Inet4Address)) {
+			throw new IllegalArgumentException("Not an IPv4 range: " + cidr);
+		}
+		
+		return new DiscoveryTarget(
+				cidr, (Inet4Address) address, prefix, port);
+	}
+	
+	private static int toInt(Inet4Address address) {
+		byte[] b = address.getAddress();
+		
+		return (b[0] & 0xFF) << 24
+				| (b[1] & 0xFF) << 16
+				| (b[2] & 0xFF) << 8
+				| (b[3] & 0xFF);
+	}
+	
+	private static InetAddress toAddress(int value) {
+		byte[] b = new byte[] {
+			(byte) (value >>> 24),
+			(byte) (value >>> 16),
+			(byte) (value >>> 8),
+			(byte) value
+		};
+		
+		try {
+			return InetAddress.getByAddress(b);
+		} catch (UnknownHostException ex) {
+			// only thrown for addresses of illegal length
+			throw new IllegalStateException(ex);
+		}
+	}
+	
+	/**
+	 * Checks if the given address is in this target's subnet.
+	 * @param address the address to check
+	 * @return true if the address is in this subnet
+	 */
+	public boolean contains(InetAddress address) {
+		if (!(address instanceof Inet4Address)) {
+			return false;
+		}
+		
+		return (toInt((Inet4Address) address) & mask) == network;
+	}
+	
+	void setActive(boolean active) {
+		this.active = active;
+	}
+	
+	void probeSent() {
+		probes.incrementAndGet();
+	}
+	
+	void gatewayFound(Gateway gateway) {
+		gateways.add(gateway);
+	}
+	
+	/**
+	 * Returns the number of discovery probes sent to this target.
+	 * @return the number of probes sent
+	 */
+	public long getProbeCount() {
+		return probes.get();
+	}
+	
+	/**
+	 * Returns the gateways discovered in this target's subnet, in the order
+	 * they were found. The returned list is unmodifiable.
+	 * @return the gateways found by this target
+	 */
+	public List<Gateway> getGateways() {
+		return Collections.unmodifiableList(gateways);
+	}
+	
+}
@@ -0,0 +1,26 @@
+package org.timothyb89.lifx.net;
+
+/**
+ * Determines what happens when a {@link PipelineStage} queue is full.
+ * @author tim
+ */
+public enum DropPolicy {
+	
+	/**
+	 * The incoming item is dropped.
+	 */
+	DROP_NEWEST,
+	
+	/**
+	 * The oldest queued item is dropped to make room for the incoming one.
+	 */
+	DROP_OLDEST,
+	
+	/**
+	 * The submitting thread waits for room in the queue. When applied to the
+	 * decode stage this pushes back on the receive thread, leaving the kernel
+	 * to drop datagrams once the socket buffer fills.
+	 */
+	BLOCK;
+	
+}
@@ -0,0 +1,24 @@
+package org.timothyb89.lifx.net;
+
+import java.net.InetSocketAddress;
+import org.timothyb89.lifx.net.packet.view.PacketView;
+
+/**
+ * Receives packet views from a {@link BroadcastListener} running in view mode
+ * (see {@link BroadcastListener#setViewMode(boolean)}). Views are delivered
+ * directly on the listener thread rather than through the event bus, so no
+ * event objects are created per packet.
+ * 
+ * <p>The view and its backing buffer are reused for the next packet once
+ * this method returns; any values that need to be retained must be copied
+ * out before returning.</p>
+ * @author tim
+ */
+public interface PacketViewListener {
+	
+	public void viewReceived(
+			BroadcastListener listener,
+			InetSocketAddress source,
+			PacketView view);
+	
+}
@@ -0,0 +1,198 @@
+package org.timothyb89.lifx.net;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A stage of a pipelined {@link BroadcastListener}: a fixed set of
+ * single-threaded workers, each with a bounded queue. Tasks are assigned to
+ * a worker by a hash (the bulb address), so tasks with the same hash always
+ * run in submission order.
+ * 
+ * <p>When a worker's queue is full the stage's {@link DropPolicy} decides
+ * which task is dropped, if any. Dropped tasks are
+ * {@link Task#discard() discarded} so they can release any buffers or
+ * packets they hold, and are counted.</p>
+ * @author tim
+ */
+@Slf4j
+public class PipelineStage {
+	
+	@Getter private final String name;
+	@Getter private final int queueDepth;
+	@Getter private final DropPolicy dropPolicy;
+	
+	private final ThreadPoolExecutor[] workers;
+	private final AtomicLong dropped;
+
+	/**
+	 * Creates and starts a new stage.
+	 * @param name the stage name, used for thread names
+	 * @param threads the number of workers
+	 * @param queueDepth the queue capacity of each worker
+	 * @param dropPolicy the policy applied when a queue is full
+	 * @param daemon if true, worker threads are daemon threads
+	 */
+	public PipelineStage(
+			String name, int threads, int queueDepth,
+			DropPolicy dropPolicy, boolean daemon) {
+		if (threads <= 0 || queueDepth <= 0) {
+			throw new IllegalArgumentException(
+					"Thread count and queue depth must be positive");
+		}
+		
+		this.name = name;
+		this.queueDepth = queueDepth;
+		this.dropPolicy = dropPolicy;
+		
+		dropped = new AtomicLong();
+		
+		workers = new ThreadPoolExecutor[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new ThreadPoolExecutor(
+					1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(queueDepth),
+					new WorkerFactory(name + "-" + i, daemon));
+		}
+	}
+	
+	/**
+	 * Submits a task to the worker selected by the given hash.
+	 * @param hash the hash selecting a worker
+	 * @param task the task to run
+	 */
+	public void submit(int hash, Task task) {
+		int index = (hash & 0x7FFFFFFF) % workers.length;
+		ThreadPoolExecutor worker = workers[index];
+		
+		while (true) {
+			try {
+				worker.execute(task);
+				return;
+			} catch (RejectedExecutionException ex) {
+				if (worker.isShutdown()) {
+					task.discard();
+					return;
+				}
+			}
+			
+			switch (dropPolicy) {
+				case DROP_NEWEST:
+					drop(task);
+					return;
+				case DROP_OLDEST:
+					Runnable oldest = worker.getQueue().poll();
+					if (oldest != null) {
+						drop((Task) oldest);
+					}
+					
+					// retry with the freed slot
+					break;
+				case BLOCK:
+					try {
+						worker.getQueue().put(task);
+						
+						// the worker may have been shut down while waiting
+						if (worker.isShutdown()
+								&& worker.getQueue().remove(task)) {
+							task.discard();
+						}
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						drop(task);
+					}
+					return;
+			}
+		}
+	}
+	
+	private void drop(Task task) {
+		dropped.incrementAndGet();
+		task.discard();
+		
+		if (log.isTraceEnabled()) {
+			log.trace("Stage {} full, dropped {}", name, task);
+		}
+	}
+	
+	/**
+	 * Stops all workers. Queued tasks are discarded without being run.
+	 */
+	public void shutdown() {
+		for (ThreadPoolExecutor worker : workers) {
+			List<Runnable> pending = worker.shutdownNow();
+			for (Runnable r : pending) {
+				((Task) r).discard();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of tasks dropped due to full queues.
+	 * @return the number of dropped tasks
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	/**
+	 * Returns the total number of tasks currently queued across all workers.
+	 * @return the number of queued tasks
+	 */
+	public int getQueued() {
+		int ret = 0;
+		for (ThreadPoolExecutor worker : workers) {
+			ret += worker.getQueue().size();
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Returns the number of workers in this stage.
+	 * @return the number of workers
+	 */
+	public int getThreads() {
+		return workers.length;
+	}
+	
+	/**
+	 * A unit of work for a stage.
+	 */
+	public interface Task extends Runnable {
+		
+		/**
+		 * Called instead of {@link #run()} if the task is dropped, to release
+		 * any resources it holds.
+		 */
+		public void discard();
+		
+	}
+	
+	private static class WorkerFactory implements ThreadFactory {
+		
+		private final String name;
+		private final boolean daemon;
+
+		public WorkerFactory(String name, boolean daemon) {
+			this.name = name;
+			this.daemon = daemon;
+		}
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, name);
+			t.setDaemon(daemon);
+			return t;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,176 @@
+package org.timothyb89.lifx.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A handle to a datagram queued on a {@link UdpTransport}. It completes once
+ * the datagram has been written to the socket, or has failed to be written
+ * (including when the transport closes with the datagram still queued).
+ * 
+ * <p>Listeners added with {@link #addListener(Listener)} run on the
+ * transport's writer thread (or, for datagrams discarded when it closes, its
+ * event loop thread) and must not block.</p>
+ * @author tim
+ */
+@Slf4j
+public class SendFuture implements Future<Void> {
+	
+	private final CountDownLatch done;
+	private volatile boolean complete;
+	private volatile Throwable cause;
+	
+	private List<Listener> listeners;
+	
+	SendFuture() {
+		done = new CountDownLatch(1);
+	}
+	
+	/**
+	 * Returns a future that has already failed.
+	 * @param cause the cause of the failure
+	 * @return a failed future
+	 */
+	static SendFuture failed(Throwable cause) {
+		SendFuture ret = new SendFuture();
+		ret.complete(cause);
+		
+		return ret;
+	}
+	
+	/**
+	 * Completes this future and notifies its listeners.
+	 * @param cause the cause of the failure, or null if the datagram was
+	 *     written
+	 */
+	void complete(Throwable cause) {
+		List<Listener> notify;
+		
+		synchronized (this) {
+			if (complete) {
+				return;
+			}
+			
+			this.cause = cause;
+			complete = true;
+			
+			notify = listeners;
+			listeners = null;
+		}
+		
+		done.countDown();
+		
+		if (notify != null) {
+			for (Listener l : notify) {
+				notify(l);
+			}
+		}
+	}
+	
+	private void notify(Listener l) {
+		try {
+			l.sendComplete(this);
+		} catch (RuntimeException ex) {
+			log.warn("Send listener failed", ex);
+		}
+	}
+	
+	/**
+	 * Adds a listener to be notified when this future completes. If it has
+	 * already completed, the listener is notified immediately on the calling
+	 * thread.
+	 * @param listener the listener to add
+	 * @return this
+	 */
+	public SendFuture addListener(Listener listener) {
+		synchronized (this) {
+			if (!complete) {
+				if (listeners == null) {
+					listeners = new ArrayList<>(1);
+				}
+				
+				listeners.add(listener);
+				return this;
+			}
+		}
+		
+		notify(listener);
+		return this;
+	}
+	
+	/**
+	 * Returns true if the datagram was written to the socket.
+	 * @return true if this future completed successfully
+	 */
+	public boolean isSuccess() {
+		return complete && cause == null;
+	}
+	
+	/**
+	 * Returns the cause of the failure, if this future failed.
+	 * @return the cause of the failure, or null
+	 */
+	public Throwable getCause() {
+		return cause;
+	}
+	
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+	
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+	
+	@Override
+	public boolean isDone() {
+		return complete;
+	}
+	
+	@Override
+	public Void get() throws InterruptedException, ExecutionException {
+		done.await();
+		
+		return result();
+	}
+	
+	@Override
+	public Void get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		if (!done.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		
+		return result();
+	}
+	
+	private Void result() throws ExecutionException {
+		if (cause != null) {
+			throw new ExecutionException(cause);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Notified when a {@link SendFuture} completes.
+	 */
+	public interface Listener {
+		
+		/**
+		 * Called once the datagram has been written or has failed.
+		 * @param future the completed future
+		 */
+		public void sendComplete(SendFuture future);
+		
+	}
+	
+}
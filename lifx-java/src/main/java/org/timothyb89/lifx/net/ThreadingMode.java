@@ -0,0 +1,24 @@
+package org.timothyb89.lifx.net;
+
+/**
+ * Determines how a {@link BroadcastListener} processes received datagrams.
+ * @author tim
+ */
+public enum ThreadingMode {
+	
+	/**
+	 * Datagrams are received, decoded and dispatched to event handlers on a
+	 * single thread. Simple and fully ordered, but a slow event handler stalls
+	 * socket reads.
+	 */
+	SINGLE_THREAD,
+	
+	/**
+	 * The receive thread only drains the socket. Decoding and event dispatch
+	 * run on separate stages of single-threaded workers, sharded by bulb
+	 * address: packets from any one bulb are handled in order, while
+	 * different bulbs are handled in parallel.
+	 */
+	PIPELINED;
+	
+}
@@ -0,0 +1,312 @@
+package org.timothyb89.lifx.net;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A hashed timing wheel for large numbers of short, mostly-cancelled
+ * timeouts, such as response deadlines. Time is divided into fixed ticks and
+ * each timeout is placed in the bucket for its deadline tick, so scheduling
+ * and cancellation are O(1) and each tick only visits a single bucket.
+ * Timeouts fire up to one tick late.
+ * 
+ * <p>A single daemon thread, started on first use, advances the wheel and
+ * runs expired tasks. Tasks therefore run on the timer thread and must be
+ * short and non-blocking, handing off any real work elsewhere. Scheduling
+ * and cancelling from other threads only enqueue the change, which the timer
+ * thread applies at its next tick.</p>
+ * @author tim
+ */
+@Slf4j
+public class TimerWheel {
+	
+	public static final long DEFAULT_TICK_MILLIS = 10;
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+	
+	private static TimerWheel instance;
+	
+	@Getter private final long tickMillis;
+	
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	
+	private final Queue<Timeout> pending;
+	private final Queue<Timeout> cancelled;
+	
+	private Thread thread;
+	private volatile long startTime;
+	private long tick;
+	
+	/**
+	 * Creates a new timer wheel.
+	 * @param tickMillis the duration of a tick, in ms
+	 * @param wheelSize the number of buckets; rounded up to a power of two
+	 */
+	public TimerWheel(long tickMillis, int wheelSize) {
+		if (tickMillis <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException(
+					"Tick duration and wheel size must be positive");
+		}
+		
+		this.tickMillis = tickMillis;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+		
+		wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		
+		mask = size - 1;
+		
+		pending = new ConcurrentLinkedQueue<>();
+		cancelled = new ConcurrentLinkedQueue<>();
+	}
+	
+	/**
+	 * Returns the shared timer wheel, with a tick of
+	 * {@link #DEFAULT_TICK_MILLIS}.
+	 * @return the shared timer wheel
+	 */
+	public static synchronized TimerWheel getInstance() {
+		if (instance == null) {
+			instance = new TimerWheel(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+		}
+		
+		return instance;
+	}
+	
+	private synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		
+		startTime = System.nanoTime();
+		
+		thread = new Thread(worker, "lifx-timer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Schedules a task to run once the given delay has passed.
+	 * @param task the task to run, on the timer thread
+	 * @param delay the delay
+	 * @param unit the unit of {@code delay}
+	 * @return a handle that may be used to cancel the task
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		if (thread == null) {
+			start();
+		}
+		
+		long deadline = System.nanoTime() + unit.toNanos(delay);
+		
+		Timeout ret = new Timeout(this, task, deadline);
+		pending.add(ret);
+		
+		return ret;
+	}
+	
+	/**
+	 * Returns the number of timeouts waiting to be placed on the wheel.
+	 * Mainly useful for monitoring.
+	 * @return the number of pending timeouts
+	 */
+	public int getPending() {
+		return pending.size();
+	}
+	
+	private void transferPending() {
+		// bound the work done per tick, in case of a flood of new timeouts
+		for (int i = 0; i < 100000; i++) {
+			Timeout t = pending.poll();
+			if (t == null) {
+				return;
+			}
+			
+			if (t.state != Timeout.ST_INIT) {
+				continue;
+			}
+			
+			long calculated = (t.deadline - startTime) / tickNanos;
+			t.rounds = (calculated - tick) / wheel.length;
+			
+			// deadlines already in the past fire on the current tick
+			long ticks = Math.max(calculated, tick);
+			wheel[(int) (ticks & mask)].add(t);
+		}
+	}
+	
+	private void processCancelled() {
+		Timeout t;
+		while ((t = cancelled.poll()) != null) {
+			if (t.bucket != null) {
+				t.bucket.remove(t);
+			}
+		}
+	}
+	
+	private final Runnable worker = new Runnable() {
+		
+		@Override
+		public void run() {
+			while (true) {
+				long deadline = startTime + (tick + 1) * tickNanos;
+				
+				long sleep;
+				while ((sleep = deadline - System.nanoTime()) > 0) {
+					try {
+						TimeUnit.NANOSECONDS.sleep(sleep);
+					} catch (InterruptedException ex) {
+						// the shared timer never stops
+					}
+				}
+				
+				processCancelled();
+				transferPending();
+				wheel[(int) (tick & mask)].expire(deadline);
+				
+				tick++;
+			}
+		}
+		
+	};
+	
+	/**
+	 * A doubly-linked list of timeouts, only touched by the timer thread.
+	 */
+	private static class Bucket {
+		
+		private Timeout head;
+		private Timeout tail;
+		
+		private void add(Timeout t) {
+			t.bucket = this;
+			
+			if (head == null) {
+				head = tail = t;
+			} else {
+				tail.next = t;
+				t.prev = tail;
+				tail = t;
+			}
+		}
+		
+		private void remove(Timeout t) {
+			if (t.prev != null) {
+				t.prev.next = t.next;
+			} else {
+				head = t.next;
+			}
+			
+			if (t.next != null) {
+				t.next.prev = t.prev;
+			} else {
+				tail = t.prev;
+			}
+			
+			t.prev = null;
+			t.next = null;
+			t.bucket = null;
+		}
+		
+		private void expire(long deadline) {
+			Timeout t = head;
+			while (t != null) {
+				Timeout next = t.next;
+				
+				if (t.state == Timeout.ST_CANCELLED) {
+					remove(t);
+				} else if (t.rounds <= 0 && t.deadline <= deadline) {
+					remove(t);
+					t.expire();
+				} else {
+					t.rounds--;
+				}
+				
+				t = next;
+			}
+		}
+		
+	}
+	
+	/**
+	 * A handle to a scheduled task.
+	 */
+	public static final class Timeout {
+		
+		private static final int ST_INIT = 0;
+		private static final int ST_CANCELLED = 1;
+		private static final int ST_EXPIRED = 2;
+		
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+				AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+		
+		private final TimerWheel wheel;
+		private final Runnable task;
+		private final long deadline;
+		
+		private volatile int state;
+		
+		// owned by the timer thread
+		private long rounds;
+		private Bucket bucket;
+		private Timeout prev;
+		private Timeout next;
+		
+		private Timeout(TimerWheel wheel, Runnable task, long deadline) {
+			this.wheel = wheel;
+			this.task = task;
+			this.deadline = deadline;
+			this.state = ST_INIT;
+		}
+		
+		/**
+		 * Cancels the task, if it has not yet run.
+		 * @return true if the task was cancelled, false if it already ran or
+		 *     was cancelled before
+		 */
+		public boolean cancel() {
+			if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+				return false;
+			}
+			
+			wheel.cancelled.add(this);
+			return true;
+		}
+		
+		public boolean isCancelled() {
+			return state == ST_CANCELLED;
+		}
+		
+		public boolean isExpired() {
+			return state == ST_EXPIRED;
+		}
+		
+		private void expire() {
+			if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+				return;
+			}
+			
+			// tasks include user callbacks, and the shared timer thread is
+			// never restarted, so nothing thrown here may escape the tick
+			try {
+				task.run();
+			} catch (Throwable t) {
+				log.error("Timer task {} failed", task, t);
+			}
+		}
+		
+	}
+	
+}
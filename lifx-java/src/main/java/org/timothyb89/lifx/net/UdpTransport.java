@@ -0,0 +1,856 @@
+package org.timothyb89.lifx.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A UDP transport multiplexing any number of non-blocking datagram channels
+ * (e.g. one per interface or bind address) on a single {@link Selector}
+ * event loop thread.
+ * 
+ * <p>Received datagrams are read into buffers from a {@link BufferPool} and
+ * passed to a {@link Handler} on the loop thread. Sends may be made from any
+ * thread and never touch the socket: each datagram is added to its
+ * endpoint's lock-free write queue and the caller returns immediately with a
+ * {@link SendFuture}. The queues are drained by a separate writer thread with
+ * its own selector, which flushes up to {@link #FLUSH_BATCH} datagrams per
+ * endpoint per wakeup, waiting for {@code OP_WRITE} only if the socket
+ * buffer fills up. Since the handler (and, in a single-threaded listener,
+ * client event handlers) runs on the loop thread, a handler that blocks
+ * delays receiving but never holds up sends, including sends it waits on
+ * itself. Queue depths, flush batch sizes and the time spent in
+ * {@code send} are exposed as metrics.</p>
+ * 
+ * <p>Replies should leave through the channel their peer last sent to, so
+ * the transport remembers the channel each source address was last seen on;
+ * see {@link #send(ByteBuffer, InetSocketAddress)}.</p>
+ * @author tim
+ */
+@Slf4j
+public class UdpTransport {
+	
+	/**
+	 * The maximum number of datagrams read from one channel per wakeup, so a
+	 * busy channel can't starve the others.
+	 */
+	private static final int READ_BATCH = 64;
+	
+	/**
+	 * The maximum number of datagrams written to one channel per wakeup.
+	 */
+	public static final int FLUSH_BATCH = 256;
+	
+	private final Handler handler;
+	private final BufferPool pool;
+	
+	private final Selector selector;
+	private final Selector writeSelector;
+	private final List<Endpoint> endpoints;
+	private final ConcurrentMap<InetSocketAddress, Endpoint> sources;
+	
+	private final Queue<Runnable> tasks;
+	private final Queue<Runnable> writeTasks;
+	
+	private Thread thread;
+	private Thread writerThread;
+	private volatile boolean closed;
+	
+	private final AtomicLong flushes;
+	private final AtomicLong flushed;
+	private final AtomicLong sendNanos;
+	private volatile int lastBatchSize;
+	private volatile int maxBatchSize;
+	
+	/**
+	 * Creates a new transport. No channels are opened until
+	 * {@link #bind(InetSocketAddress)} is called, and nothing is received
+	 * until {@link #start(boolean)} is called.
+	 * @param handler the handler for received datagrams
+	 * @param pool the pool to draw receive buffers from
+	 * @throws IOException if the selectors could not be opened
+	 */
+	public UdpTransport(Handler handler, BufferPool pool) throws IOException {
+		this.handler = handler;
+		this.pool = pool;
+		
+		selector = Selector.open();
+		try {
+			writeSelector = Selector.open();
+		} catch (IOException ex) {
+			selector.close();
+			throw ex;
+		}
+		
+		endpoints = new CopyOnWriteArrayList<>();
+		sources = new ConcurrentHashMap<>();
+		
+		tasks = new ConcurrentLinkedQueue<>();
+		writeTasks = new ConcurrentLinkedQueue<>();
+		
+		flushes = new AtomicLong();
+		flushed = new AtomicLong();
+		sendNanos = new AtomicLong();
+	}
+	
+	/**
+	 * Opens a broadcast-capable channel bound to the given address and adds
+	 * it to the event loop. {@code SO_REUSEADDR} is set, so several channels
+	 * may share a port when bound to different local addresses.
+	 * @param address the local address to bind to
+	 * @return the new endpoint
+	 * @throws IOException if the channel could not be opened or bound
+	 */
+	public Endpoint bind(InetSocketAddress address) throws IOException {
+		if (closed) {
+			throw new ClosedChannelException();
+		}
+		
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.socket().setReuseAddress(true);
+			channel.socket().setBroadcast(true);
+			channel.socket().bind(address);
+			channel.configureBlocking(false);
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+		
+		final Endpoint endpoint = new Endpoint(channel);
+		endpoints.add(endpoint);
+		
+		// registering blocks while the selector is selecting, so leave it to
+		// the loop and the writer
+		execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					endpoint.key = endpoint.channel.register(
+							selector, SelectionKey.OP_READ, endpoint);
+				} catch (ClosedChannelException ex) {
+					endpoints.remove(endpoint);
+				}
+			}
+			
+		});
+		
+		executeWrite(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					endpoint.writeKey = endpoint.channel.register(
+							writeSelector, 0, endpoint);
+				} catch (ClosedChannelException ex) {
+					endpoints.remove(endpoint);
+				}
+				
+				// flush anything queued before registration
+				endpoint.flushTask.run();
+			}
+			
+		});
+		
+		log.debug("Bound UDP endpoint {}", endpoint);
+		
+		return endpoint;
+	}
+	
+	/**
+	 * Starts the event loop and writer threads.
+	 * @param daemon if true, both threads are daemon threads
+	 */
+	public synchronized void start(boolean daemon) {
+		if (thread != null) {
+			return;
+		}
+		
+		writerThread = new Thread(writer, "lifx-udp-writer");
+		writerThread.setDaemon(daemon);
+		writerThread.start();
+		
+		thread = new Thread(loop, "lifx-udp");
+		thread.setDaemon(daemon);
+		thread.start();
+	}
+	
+	/**
+	 * Closes the transport. The event loop waits for the writer to stop,
+	 * then closes every channel and exits, notifying
+	 * {@link Handler#transportClosed(UdpTransport)} from the loop thread;
+	 * queued datagrams are discarded and their futures failed.
+	 */
+	public void close() {
+		closed = true;
+		selector.wakeup();
+		writeSelector.wakeup();
+		
+		synchronized (this) {
+			if (thread == null) {
+				// never started, so clean up here
+				closeChannels();
+			}
+		}
+	}
+	
+	public boolean isOpen() {
+		return !closed;
+	}
+	
+	/**
+	 * Returns the bound endpoints, in the order they were bound. The returned
+	 * list is unmodifiable.
+	 * @return the bound endpoints
+	 */
+	public List<Endpoint> getEndpoints() {
+		return Collections.unmodifiableList(endpoints);
+	}
+	
+	/**
+	 * Returns the endpoint a datagram to the given destination would be sent
+	 * from: the endpoint the destination last sent to, or otherwise the
+	 * first endpoint bound.
+	 * @param destination the destination address
+	 * @return the endpoint to send from
+	 * @throws ClosedChannelException if the transport is closed or has no
+	 *     endpoints
+	 */
+	public Endpoint route(InetSocketAddress destination)
+			throws ClosedChannelException {
+		Endpoint endpoint = sources.get(destination);
+		if (endpoint != null) {
+			return endpoint;
+		}
+		
+		if (closed || endpoints.isEmpty()) {
+			throw new ClosedChannelException();
+		}
+		
+		return endpoints.get(0);
+	}
+	
+	/**
+	 * Queues a datagram to the given destination on the endpoint chosen by
+	 * {@link #route(InetSocketAddress)}. The bytes between the buffer's
+	 * position and limit are sent; the buffer itself is not modified, but
+	 * must not be changed until the returned future completes.
+	 * @param bytes the datagram to send
+	 * @param destination the destination address
+	 * @return a future completed once the datagram has been written
+	 * @throws ClosedChannelException if the transport is closed
+	 */
+	public SendFuture send(ByteBuffer bytes, InetSocketAddress destination)
+			throws ClosedChannelException {
+		return route(destination).send(bytes, destination);
+	}
+	
+	/**
+	 * Queues a datagram held in a pooled buffer. The buffer is released to
+	 * the given pool once it has been written (or has failed), so the
+	 * caller gives up ownership of it.
+	 * @param bytes the datagram to send, from {@code pool}
+	 * @param destination the destination address
+	 * @param pool the pool to release the buffer to
+	 * @return a future completed once the datagram has been written
+	 * @throws ClosedChannelException if the transport is closed, in which
+	 *     case the buffer has already been released
+	 */
+	public SendFuture send(
+			ByteBuffer bytes, InetSocketAddress destination, BufferPool pool)
+			throws ClosedChannelException {
+		Endpoint endpoint;
+		try {
+			endpoint = route(destination);
+		} catch (ClosedChannelException ex) {
+			pool.release(bytes);
+			throw ex;
+		}
+		
+		return endpoint.send(bytes, destination, pool);
+	}
+	
+	/**
+	 * Queues a datagram to the given destination on every endpoint, e.g. to
+	 * broadcast on every interface.
+	 * @param bytes the datagram to send
+	 * @param destination the destination address
+	 * @throws ClosedChannelException if the transport is closed
+	 */
+	public void sendAll(ByteBuffer bytes, InetSocketAddress destination)
+			throws ClosedChannelException {
+		if (closed) {
+			throw new ClosedChannelException();
+		}
+		
+		for (Endpoint endpoint : endpoints) {
+			endpoint.send(bytes, destination);
+		}
+	}
+	
+	/**
+	 * Returns the total number of datagrams waiting to be written, across
+	 * all endpoints.
+	 * @return the total write queue depth
+	 */
+	public int getQueueDepth() {
+		int ret = 0;
+		for (Endpoint endpoint : endpoints) {
+			ret += endpoint.getWriteQueueDepth();
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Returns the number of flushes that wrote at least one datagram.
+	 * @return the number of flushes
+	 */
+	public long getFlushCount() {
+		return flushes.get();
+	}
+	
+	/**
+	 * Returns the number of datagrams written (or failed) by flushes.
+	 * Divided by {@link #getFlushCount()}, this gives the mean batch size.
+	 * @return the number of datagrams flushed
+	 */
+	public long getFlushedCount() {
+		return flushed.get();
+	}
+	
+	/**
+	 * Returns the number of datagrams written by the most recent flush.
+	 * @return the last flush batch size
+	 */
+	public int getLastBatchSize() {
+		return lastBatchSize;
+	}
+	
+	/**
+	 * Returns the largest number of datagrams written by a single flush.
+	 * @return the maximum flush batch size
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+	
+	/**
+	 * Returns the total time spent in {@code DatagramChannel.send}, in
+	 * nanoseconds.
+	 * @return the total send time, in ns
+	 */
+	public long getSendNanos() {
+		return sendNanos.get();
+	}
+	
+	/**
+	 * Runs the given task on the event loop.
+	 * @param task the task to run
+	 */
+	private void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+	
+	/**
+	 * Runs the given task on the writer thread.
+	 * @param task the task to run
+	 */
+	private void executeWrite(Runnable task) {
+		writeTasks.add(task);
+		writeSelector.wakeup();
+	}
+	
+	private static void runTasks(Queue<Runnable> tasks) {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				log.error("Transport task failed", ex);
+			}
+		}
+	}
+	
+	private void closeChannels() {
+		ClosedChannelException closedEx = new ClosedChannelException();
+		
+		for (Endpoint endpoint : endpoints) {
+			try {
+				endpoint.channel.close();
+			} catch (IOException ex) {
+				log.debug("Error closing channel", ex);
+			}
+			
+			Write w;
+			while ((w = endpoint.writes.poll()) != null) {
+				w.complete(closedEx);
+			}
+		}
+		
+		sources.clear();
+		
+		try {
+			selector.close();
+			writeSelector.close();
+		} catch (IOException ex) {
+			log.debug("Error closing selector", ex);
+		}
+	}
+	
+	/**
+	 * Waits for the writer thread to exit, so that nothing is still writing
+	 * when the queues are drained. Called from the loop once closed.
+	 */
+	private void awaitWriter() {
+		writeSelector.wakeup();
+		
+		try {
+			writerThread.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private final Runnable loop = new Runnable() {
+		
+		@Override
+		public void run() {
+			try {
+				while (!closed) {
+					try {
+						// don't block while tasks are still pending
+						if (tasks.isEmpty()) {
+							selector.select();
+						} else {
+							selector.selectNow();
+						}
+					} catch (IOException ex) {
+						log.error("Selector failed", ex);
+						break;
+					}
+					
+					runTasks(tasks);
+					processKeys();
+				}
+			} finally {
+				// always clean up, even if the loop dies unexpectedly
+				closed = true;
+				awaitWriter();
+				closeChannels();
+				
+				log.debug("Transport closed");
+				
+				handler.transportClosed(UdpTransport.this);
+			}
+		}
+		
+		private void processKeys() {
+			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				
+				Endpoint endpoint = (Endpoint) key.attachment();
+				
+				try {
+					if (key.isReadable()) {
+						endpoint.read();
+					}
+				} catch (ClosedChannelException ex) {
+					log.debug("Channel {} closed", endpoint);
+					endpoints.remove(endpoint);
+					key.cancel();
+				} catch (IOException ex) {
+					log.error("Error on channel {}", endpoint, ex);
+				} catch (RuntimeException ex) {
+					// in single-threaded mode, received packets are handled
+					// (including by client event handlers) on this thread;
+					// don't let one failure stop all IO
+					log.error("Error handling channel {}", endpoint, ex);
+				}
+			}
+		}
+		
+	};
+	
+	private final Runnable writer = new Runnable() {
+		
+		@Override
+		public void run() {
+			try {
+				while (!closed) {
+					try {
+						// don't block while flushes are still pending
+						if (writeTasks.isEmpty()) {
+							writeSelector.select();
+						} else {
+							writeSelector.selectNow();
+						}
+					} catch (IOException ex) {
+						log.error("Write selector failed", ex);
+						break;
+					}
+					
+					runTasks(writeTasks);
+					processKeys();
+				}
+			} finally {
+				if (!closed) {
+					// nothing would ever be written again
+					close();
+				}
+			}
+		}
+		
+		private void processKeys() {
+			Iterator<SelectionKey> it = writeSelector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				
+				Endpoint endpoint = (Endpoint) key.attachment();
+				
+				try {
+					if (key.isValid() && key.isWritable()) {
+						endpoint.flush();
+					}
+				} catch (ClosedChannelException ex) {
+					log.debug("Channel {} closed", endpoint);
+					endpoints.remove(endpoint);
+					key.cancel();
+				} catch (IOException ex) {
+					log.error("Error on channel {}", endpoint, ex);
+				}
+			}
+		}
+		
+	};
+	
+	/**
+	 * A single bound channel, with its own write queue.
+	 */
+	@ToString(of = { "localAddress" })
+	public class Endpoint {
+		
+		private final DatagramChannel channel;
+		private SelectionKey key;
+		private SelectionKey writeKey;
+		
+		@Getter private final InetSocketAddress localAddress;
+		
+		private final Queue<Write> writes;
+		private final AtomicBoolean flushScheduled;
+		private final Runnable flushTask;
+		
+		private final AtomicLong received;
+		private final AtomicLong sent;
+		private final AtomicLong queued;
+		
+		private Endpoint(DatagramChannel channel) {
+			this.channel = channel;
+			this.localAddress = (InetSocketAddress)
+					channel.socket().getLocalSocketAddress();
+			
+			writes = new ConcurrentLinkedQueue<>();
+			flushScheduled = new AtomicBoolean();
+			flushTask = new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						flush();
+					} catch (ClosedChannelException ex) {
+						log.debug("Channel {} closed", Endpoint.this);
+					} catch (IOException ex) {
+						log.error("Error on channel {}", Endpoint.this, ex);
+					}
+				}
+				
+			};
+			
+			received = new AtomicLong();
+			sent = new AtomicLong();
+			queued = new AtomicLong();
+		}
+		
+		/**
+		 * Queues a datagram on this endpoint; see
+		 * {@link UdpTransport#send(ByteBuffer, InetSocketAddress)}.
+		 * @param bytes the datagram to send
+		 * @param destination the destination address
+		 * @return a future completed once the datagram has been written
+		 * @throws ClosedChannelException if the transport is closed
+		 */
+		public SendFuture send(ByteBuffer bytes, InetSocketAddress destination)
+				throws ClosedChannelException {
+			return send(bytes, destination, null);
+		}
+		
+		private SendFuture send(
+				ByteBuffer bytes, InetSocketAddress destination,
+				BufferPool pool) throws ClosedChannelException {
+			if (closed) {
+				if (pool != null) {
+					pool.release(bytes);
+				}
+				
+				throw new ClosedChannelException();
+			}
+			
+			Write w = new Write(bytes, destination, pool);
+			writes.add(w);
+			queued.incrementAndGet();
+			
+			// only the first send since the last flush needs to wake the
+			// writer
+			if (flushScheduled.compareAndSet(false, true)) {
+				executeWrite(flushTask);
+			}
+			
+			// the transport may have closed after the check above, after
+			// the loop drained the queue for the last time; if not, the loop
+			// completes it as well, which is harmless
+			if (closed) {
+				w.complete(new ClosedChannelException());
+			}
+			
+			return w.future;
+		}
+		
+		/**
+		 * Reads available datagrams and passes them to the handler.
+		 * Called from the loop.
+		 */
+		private void read() throws IOException {
+			for (int i = 0; i < READ_BATCH; i++) {
+				ByteBuffer buf = pool.acquire();
+				boolean kept = false;
+				
+				try {
+					SocketAddress a = channel.receive(buf);
+					if (a == null) {
+						return;
+					}
+					
+					InetSocketAddress source = (InetSocketAddress) a;
+					received.incrementAndGet();
+					
+					if (endpoints.size() > 1 && sources.get(source) != this) {
+						sources.put(source, this);
+					}
+					
+					buf.flip();
+					kept = handler.datagramReceived(this, source, buf);
+				} finally {
+					if (!kept) {
+						pool.release(buf);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Writes up to {@link #FLUSH_BATCH} queued datagrams. If the socket
+		 * buffer fills up, waits for {@code OP_WRITE}; if the batch limit is
+		 * reached, reschedules itself so other endpoints get a turn. Called
+		 * from the writer.
+		 */
+		private void flush() throws IOException {
+			int count = 0;
+			long start = System.nanoTime();
+			
+			try {
+				Write w;
+				while (count < FLUSH_BATCH && (w = writes.peek()) != null) {
+					try {
+						if (channel.send(w.bytes, w.destination) == 0) {
+							// socket buffer is full, wait for OP_WRITE
+							setWriteInterest(true);
+							return;
+						}
+						
+						writes.poll();
+						sent.incrementAndGet();
+						w.complete(null);
+					} catch (ClosedChannelException ex) {
+						throw ex;
+					} catch (IOException ex) {
+						// e.g. an unreachable destination; fail just this one
+						log.debug("Unable to send datagram to {}",
+								w.destination, ex);
+						
+						writes.poll();
+						w.complete(ex);
+					}
+					
+					count++;
+				}
+			} finally {
+				recordFlush(count, System.nanoTime() - start);
+			}
+			
+			setWriteInterest(false);
+			
+			if (!writes.isEmpty()) {
+				// batch limit reached
+				writeTasks.add(flushTask);
+				return;
+			}
+			
+			flushScheduled.set(false);
+			
+			// a sender may have queued after the isEmpty() check but seen
+			// flushScheduled still set, so check once more
+			if (!writes.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+				writeTasks.add(flushTask);
+			}
+		}
+		
+		private void setWriteInterest(boolean write) {
+			if (writeKey == null || !writeKey.isValid()) {
+				return;
+			}
+			
+			writeKey.interestOps(write ? SelectionKey.OP_WRITE : 0);
+		}
+		
+		/**
+		 * Returns the number of datagrams received on this endpoint.
+		 * @return the number of datagrams received
+		 */
+		public long getReceivedCount() {
+			return received.get();
+		}
+		
+		/**
+		 * Returns the number of datagrams sent from this endpoint.
+		 * @return the number of datagrams sent
+		 */
+		public long getSentCount() {
+			return sent.get();
+		}
+		
+		/**
+		 * Returns the number of datagrams queued on this endpoint.
+		 * @return the number of queued datagrams
+		 */
+		public long getQueuedCount() {
+			return queued.get();
+		}
+		
+		/**
+		 * Returns the number of datagrams currently waiting to be written.
+		 * @return the write queue depth
+		 */
+		public int getWriteQueueDepth() {
+			return writes.size();
+		}
+		
+	}
+	
+	private void recordFlush(int count, long nanos) {
+		if (count == 0) {
+			return;
+		}
+		
+		flushes.incrementAndGet();
+		flushed.addAndGet(count);
+		sendNanos.addAndGet(nanos);
+		
+		// only written from the writer thread
+		lastBatchSize = count;
+		if (count > maxBatchSize) {
+			maxBatchSize = count;
+		}
+	}
+	
+	/**
+	 * A queued datagram. It may be completed by the loop and by a closing
+	 * sender at once, so only the first completion has any effect.
+	 */
+	private static class Write {
+		
+		private final ByteBuffer bytes;
+		private final ByteBuffer owned;
+		private final InetSocketAddress destination;
+		private final BufferPool pool;
+		private final SendFuture future;
+		private final AtomicBoolean completed;
+		
+		private Write(
+				ByteBuffer bytes, InetSocketAddress destination,
+				BufferPool pool) {
+			this.bytes = bytes.duplicate();
+			this.owned = bytes;
+			this.destination = destination;
+			this.pool = pool;
+			this.future = new SendFuture();
+			this.completed = new AtomicBoolean();
+		}
+		
+		private void complete(Throwable cause) {
+			// releasing the buffer twice would let two later sends share it
+			if (!completed.compareAndSet(false, true)) {
+				return;
+			}
+			
+			if (pool != null) {
+				pool.release(owned);
+			}
+			
+			future.complete(cause);
+		}
+		
+	}
+	
+	/**
+	 * Handles datagrams received by a {@link UdpTransport}. Both methods are
+	 * called from the event loop thread, so they should not block: nothing
+	 * more is received until they return. Sends are written by the writer
+	 * thread, so they are not held up.
+	 */
+	public interface Handler {
+		
+		/**
+		 * Called for each received datagram.
+		 * @param endpoint the endpoint the datagram arrived on
+		 * @param source the source address of the datagram
+		 * @param buf a pooled buffer flipped to the datagram's bytes
+		 * @return true if the handler has taken ownership of the buffer and
+		 *     will release it to the pool itself, false if the transport
+		 *     should release it on return
+		 */
+		public boolean datagramReceived(
+				Endpoint endpoint, InetSocketAddress source, ByteBuffer buf);
+		
+		/**
+		 * Called once the transport has closed all of its channels and the
+		 * event loop is about to exit.
+		 * @param transport the closed transport
+		 */
+		public void transportClosed(UdpTransport transport);
+		
+	}
+	
+}
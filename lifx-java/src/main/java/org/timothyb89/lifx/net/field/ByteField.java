@@ -0,0 +1,56 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * @author tim
+ */
+public class ByteField extends Field<ByteBuffer> {
+
+	public ByteField() {
+	}
+
+	public ByteField(int length) {
+		super(length);
+	}
+	
+	@Override
+	public int defaultLength() {
+		return 2;
+	}
+
+	@Override
+	public ByteBuffer value(ByteBuffer bytes) {
+		byte[] data = new byte[length];
+		bytes.get(data);
+		
+		return ByteBuffer.wrap(data);
+	}
+
+	@Override
+	public ByteBuffer bytesInternal(ByteBuffer value) {
+		return value;
+	}
+
+	/**
+	 * Copies up to {@code length} bytes from the given buffer, padding with
+	 * zeroes if the value is shorter than the field. A {@code null} value
+	 * writes an empty (zeroed) field. The value's position is not modified.
+	 * @param dst the buffer to write into
+	 * @param value the bytes to copy, or null
+	 */
+	@Override
+	public void put(ByteBuffer dst, ByteBuffer value) {
+		int available = value == null ? 0 : Math.min(length, value.limit());
+		
+		for (int i = 0; i < available; i++) {
+			dst.put(value.get(i));
+		}
+		
+		for (int i = available; i < length; i++) {
+			dst.put((byte) 0);
+		}
+	}
+	
+}
@@ -0,0 +1,166 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Static helpers for reading and writing primitive values at absolute offsets
+ * in a specific byte order. The byte order configured on the buffer itself is
+ * respected: when it matches the requested order values are accessed
+ * directly, otherwise the bytes are swapped in a register. The buffer's
+ * position is never modified and nothing is allocated.
+ * @author tim
+ */
+public final class Codecs {
+	
+	private Codecs() {
+	}
+	
+	public static int getUInt8(ByteBuffer bytes, int offset) {
+		return bytes.get(offset) & 0xFF;
+	}
+	
+	public static void putUInt8(ByteBuffer bytes, int offset, int value) {
+		bytes.put(offset, (byte) (value & 0xFF));
+	}
+	
+	public static int getUInt16(ByteBuffer bytes, int offset, ByteOrder order) {
+		short value = bytes.getShort(offset);
+		if (bytes.order() != order) {
+			value = Short.reverseBytes(value);
+		}
+		
+		return value & 0xFFFF;
+	}
+	
+	public static void putUInt16(
+			ByteBuffer bytes, int offset, int value, ByteOrder order) {
+		short raw = (short) (value & 0xFFFF);
+		if (bytes.order() != order) {
+			raw = Short.reverseBytes(raw);
+		}
+		
+		bytes.putShort(offset, raw);
+	}
+	
+	public static long getUInt32(ByteBuffer bytes, int offset, ByteOrder order) {
+		int value = bytes.getInt(offset);
+		if (bytes.order() != order) {
+			value = Integer.reverseBytes(value);
+		}
+		
+		return value & 0xFFFFFFFFL;
+	}
+	
+	public static void putUInt32(
+			ByteBuffer bytes, int offset, long value, ByteOrder order) {
+		int raw = (int) (value & 0xFFFFFFFFL);
+		if (bytes.order() != order) {
+			raw = Integer.reverseBytes(raw);
+		}
+		
+		bytes.putInt(offset, raw);
+	}
+	
+	public static long getInt64(ByteBuffer bytes, int offset, ByteOrder order) {
+		long value = bytes.getLong(offset);
+		if (bytes.order() != order) {
+			value = Long.reverseBytes(value);
+		}
+		
+		return value;
+	}
+	
+	public static void putInt64(
+			ByteBuffer bytes, int offset, long value, ByteOrder order) {
+		if (bytes.order() != order) {
+			value = Long.reverseBytes(value);
+		}
+		
+		bytes.putLong(offset, value);
+	}
+	
+	public static float getFloat(ByteBuffer bytes, int offset, ByteOrder order) {
+		int raw = bytes.getInt(offset);
+		if (bytes.order() != order) {
+			raw = Integer.reverseBytes(raw);
+		}
+		
+		return Float.intBitsToFloat(raw);
+	}
+	
+	public static void putFloat(
+			ByteBuffer bytes, int offset, float value, ByteOrder order) {
+		int raw = Float.floatToRawIntBits(value);
+		if (bytes.order() != order) {
+			raw = Integer.reverseBytes(raw);
+		}
+		
+		bytes.putInt(offset, raw);
+	}
+	
+	/**
+	 * Decodes a fixed-length, zero-padded ASCII string. Null bytes are
+	 * dropped and bytes outside of the ASCII range decode as {@code U+FFFD}.
+	 * Little-endian strings are stored with their characters reversed.
+	 * @param bytes the buffer to read from
+	 * @param offset the offset of the first byte of the field
+	 * @param length the length of the field
+	 * @param order the byte order of the field
+	 * @return the decoded string
+	 */
+	public static String getString(
+			ByteBuffer bytes, int offset, int length, ByteOrder order) {
+		char[] chars = new char[length];
+		int count = 0;
+		for (int i = 0; i < length; i++) {
+			byte b = bytes.get(index(offset, length, i, order));
+			if (b == 0) {
+				continue;
+			}
+			
+			chars[count++] = b > 0 ? (char) b : '\uFFFD';
+		}
+		
+		return new String(chars, 0, count);
+	}
+	
+	/**
+	 * Encodes a string as ASCII into a fixed-length field, truncating or
+	 * zero-padding as needed. Non-ASCII characters are replaced with
+	 * {@code '?'}, and a null value writes an empty field.
+	 * @param bytes the buffer to write into
+	 * @param offset the offset of the first byte of the field
+	 * @param length the length of the field
+	 * @param value the string to write, or null
+	 * @param order the byte order of the field
+	 */
+	public static void putString(
+			ByteBuffer bytes, int offset, int length, String value,
+			ByteOrder order) {
+		int available = value == null ? 0 : Math.min(length, value.length());
+		
+		for (int i = 0; i < available; i++) {
+			char c = value.charAt(i);
+			bytes.put(index(offset, length, i, order),
+					c < 0x80 ? (byte) c : (byte) '?');
+		}
+		
+		for (int i = available; i < length; i++) {
+			bytes.put(index(offset, length, i, order), (byte) 0);
+		}
+	}
+	
+	/**
+	 * Returns the absolute index of the {@code i}th character of a string
+	 * field, accounting for the reversed layout of little-endian strings.
+	 */
+	private static int index(int offset, int length, int i, ByteOrder order) {
+		if (order == ByteOrder.LITTLE_ENDIAN) {
+			return offset + length - 1 - i;
+		} else {
+			return offset + i;
+		}
+	}
+	
+}
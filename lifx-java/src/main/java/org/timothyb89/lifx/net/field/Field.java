@@ -1,6 +1,7 @@
 package org.timothyb89.lifx.net.field;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import lombok.Getter;
 
 /**
@@ -13,12 +14,16 @@ public abstract class Field<T> {
 	
 	@Getter
 	protected final int length;
+	
+	@Getter
+	protected final ByteOrder order;
 
 	/**
 	 * Creates a new Field instance using the default length.
 	 */
 	public Field() {
 		length = defaultLength();
+		order = ByteOrder.BIG_ENDIAN;
 	}
 	
 	/**
@@ -27,6 +32,28 @@ public abstract class Field<T> {
 	 */
 	public Field(int length) {
 		this.length = length;
+		this.order = ByteOrder.BIG_ENDIAN;
+	}
+	
+	/**
+	 * Creates a new Field instance using the default length and the given
+	 * byte order. Only fields that read multi-byte primitive values are
+	 * affected by the byte order.
+	 * @param order the byte order of the encoded field
+	 */
+	public Field(ByteOrder order) {
+		this.length = defaultLength();
+		this.order = order;
+	}
+	
+	/**
+	 * Creates a new Field instance using the specified length and byte order.
+	 * @param length the field length to use
+	 * @param order the byte order of the encoded field
+	 */
+	public Field(int length, ByteOrder order) {
+		this.length = length;
+		this.order = order;
 	}
 	
 	/**
@@ -67,11 +94,42 @@ public abstract class Field<T> {
 	protected abstract ByteBuffer bytesInternal(T value);
 	
 	/**
-	 * Returns a {@link LittleField} wrapping this field, effectively converting
-	 * it to little endian.
+	 * Writes an encoded representation of the given value directly into
+	 * {@code dst} at its current position, advancing the position by exactly
+	 * {@link #getLength()} bytes. The default implementation delegates to
+	 * {@link #bytes(Object)}; subclasses should override this to write without
+	 * creating an intermediate buffer.
+	 * @param dst the buffer to write into
+	 * @param value the value to encode
+	 */
+	public void put(ByteBuffer dst, T value) {
+		dst.put(bytes(value));
+	}
+	
+	/**
+	 * Returns a copy of this field that reads and writes values in the given
+	 * byte order directly, or {@code null} if this field type has no native
+	 * support for byte orders. Fields that return {@code null} here can still
+	 * be converted to little endian via {@link LittleField}.
+	 * @param order the byte order to use
+	 * @return a copy of this field using the given order, or null
+	 */
+	protected Field<T> withOrder(ByteOrder order) {
+		return null;
+	}
+	
+	/**
+	 * Returns a little-endian version of this field. Fields with native byte
+	 * order support (see {@link #withOrder(ByteOrder)}) return a copy of
+	 * themselves; other fields are wrapped in a {@link LittleField}.
 	 * @return a little-endian version of this field
 	 */
 	public Field<T> little() {
+		Field<T> ordered = withOrder(ByteOrder.LITTLE_ENDIAN);
+		if (ordered != null) {
+			return ordered;
+		}
+		
 		return new LittleField<>(this);
 	}
 	
@@ -0,0 +1,35 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A codec for floating point fields. Values are read and written with
+ * absolute offsets, so the position of the buffer is never modified and no
+ * values are boxed.
+ * @author tim
+ */
+public interface FloatCodec {
+	
+	/**
+	 * Gets the length of the encoded field, in bytes.
+	 * @return the field length
+	 */
+	public int getLength();
+	
+	/**
+	 * Reads the field value at the given offset.
+	 * @param bytes the buffer to read from
+	 * @param offset the absolute offset of the field within the buffer
+	 * @return the decoded value
+	 */
+	public float getFloat(ByteBuffer bytes, int offset);
+	
+	/**
+	 * Writes the given value at the given offset.
+	 * @param bytes the buffer to write to
+	 * @param offset the absolute offset of the field within the buffer
+	 * @param value the value to encode
+	 */
+	public void putFloat(ByteBuffer bytes, int offset, float value);
+	
+}
@@ -0,0 +1,88 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *
+ * @author tim
+ */
+public class FloatField extends Field<Float> implements FloatCodec {
+
+	public FloatField() {
+	}
+
+	public FloatField(ByteOrder order) {
+		super(order);
+	}
+	
+	@Override
+	public int defaultLength() {
+		return 4;
+	}
+
+	@Override
+	public float getFloat(ByteBuffer bytes, int offset) {
+		return Codecs.getFloat(bytes, offset, order);
+	}
+
+	@Override
+	public void putFloat(ByteBuffer bytes, int offset, float value) {
+		Codecs.putFloat(bytes, offset, value, order);
+	}
+	
+	/**
+	 * Reads the field at the buffer's current position, advancing the position
+	 * by the length of this field.
+	 * @param bytes the buffer to read from
+	 * @return the decoded value
+	 */
+	public float getFloat(ByteBuffer bytes) {
+		int position = bytes.position();
+		float value = getFloat(bytes, position);
+		bytes.position(position + length);
+		
+		return value;
+	}
+	
+	/**
+	 * Writes the field at the buffer's current position, advancing the
+	 * position by the length of this field.
+	 * @param bytes the buffer to write to
+	 * @param value the value to encode
+	 */
+	public void putFloat(ByteBuffer bytes, float value) {
+		int position = bytes.position();
+		putFloat(bytes, position, value);
+		bytes.position(position + length);
+	}
+
+	@Override
+	public Float value(ByteBuffer bytes) {
+		return getFloat(bytes);
+	}
+
+	@Override
+	protected ByteBuffer bytesInternal(Float value) {
+		ByteBuffer ret = ByteBuffer.allocate(length);
+		putFloat(ret, value);
+		
+		return ret;
+	}
+
+	@Override
+	public void put(ByteBuffer dst, Float value) {
+		putFloat(dst, value);
+	}
+	
+	@Override
+	protected FloatField withOrder(ByteOrder order) {
+		return new FloatField(order);
+	}
+	
+	@Override
+	public FloatField little() {
+		return withOrder(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+}
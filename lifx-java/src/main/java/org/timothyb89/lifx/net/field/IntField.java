@@ -0,0 +1,66 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Base class for numeric fields backed by a primitive {@code int}. Subclasses
+ * implement the absolute {@link IntCodec} methods; this class provides
+ * relative variants that advance the buffer position, along with the boxed
+ * {@link Field} API as a thin adapter.
+ * @author tim
+ */
+public abstract class IntField extends Field<Integer> implements IntCodec {
+
+	public IntField() {
+	}
+
+	public IntField(ByteOrder order) {
+		super(order);
+	}
+	
+	/**
+	 * Reads the field at the buffer's current position, advancing the position
+	 * by the length of this field.
+	 * @param bytes the buffer to read from
+	 * @return the decoded value
+	 */
+	public int getInt(ByteBuffer bytes) {
+		int position = bytes.position();
+		int value = getInt(bytes, position);
+		bytes.position(position + length);
+		
+		return value;
+	}
+	
+	/**
+	 * Writes the field at the buffer's current position, advancing the
+	 * position by the length of this field.
+	 * @param bytes the buffer to write to
+	 * @param value the value to encode
+	 */
+	public void putInt(ByteBuffer bytes, int value) {
+		int position = bytes.position();
+		putInt(bytes, position, value);
+		bytes.position(position + length);
+	}
+	
+	@Override
+	public Integer value(ByteBuffer bytes) {
+		return getInt(bytes);
+	}
+
+	@Override
+	protected ByteBuffer bytesInternal(Integer value) {
+		ByteBuffer ret = ByteBuffer.allocate(length);
+		putInt(ret, value);
+		
+		return ret;
+	}
+
+	@Override
+	public void put(ByteBuffer dst, Integer value) {
+		putInt(dst, value);
+	}
+	
+}
@@ -0,0 +1,97 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads a wrapped field in reversed byte order.
+ * 
+ * <p>Fields with native byte order support (all numeric and string fields)
+ * are read and written directly in little-endian order via the field returned
+ * by {@link Field#withOrder(ByteOrder)}, with no intermediate copies. Other
+ * fields fall back to copying and reversing their bytes. New code should
+ * generally prefer {@link Field#little()}, which avoids the wrapper entirely
+ * when possible.</p>
+ * @author tim
+ */
+public class LittleField<T> extends Field<T> {
+
+	private final Field<T> wrapped;
+	private final Field<T> ordered;
+
+	public LittleField(Field<T> wrapped) {
+		super(wrapped.length, ByteOrder.LITTLE_ENDIAN);
+		
+		this.wrapped = wrapped;
+		this.ordered = wrapped.withOrder(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	@Override
+	public int defaultLength() {
+		return wrapped.defaultLength();
+	}
+	
+	@Override
+	public T value(ByteBuffer bytes) {
+		if (ordered != null) {
+			return ordered.value(bytes);
+		}
+		
+		byte[] field = new byte[wrapped.length];
+		bytes.get(field);
+		
+		ByteBuffer flipped = flip(ByteBuffer.wrap(field));
+		
+		T value = wrapped.value(flipped);
+		
+		return value;
+	}
+
+	@Override
+	public ByteBuffer bytesInternal(T value) {
+		if (ordered != null) {
+			return ordered.bytes(value);
+		}
+		
+		return flip(wrapped.bytes(value));
+	}
+	
+	/**
+	 * Writes the wrapped field into {@code dst}. Fields without native byte
+	 * order support are written normally and then have their bytes reversed
+	 * in place, avoiding any intermediate buffers.
+	 * @param dst the buffer to write into
+	 * @param value the value to write
+	 */
+	@Override
+	public void put(ByteBuffer dst, T value) {
+		if (ordered != null) {
+			ordered.put(dst, value);
+			return;
+		}
+		
+		int start = dst.position();
+		wrapped.put(dst, value);
+		
+		for (int i = start, j = dst.position() - 1; i < j; i++, j--) {
+			byte tmp = dst.get(i);
+			dst.put(i, dst.get(j));
+			dst.put(j, tmp);
+		}
+	}
+
+	public static ByteBuffer flip(ByteBuffer buf) {
+		buf.rewind();
+		
+		ByteBuffer ret = ByteBuffer.allocate(buf.limit());
+		
+		for (int i = buf.limit() - 1; i >= 0; i--) {
+			ret.put(buf.get(i));
+		}
+		
+		ret.rewind();
+		
+		return ret;
+	}
+	
+}
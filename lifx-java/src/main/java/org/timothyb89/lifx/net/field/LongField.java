@@ -0,0 +1,66 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Base class for numeric fields backed by a primitive {@code long}. Subclasses
+ * implement the absolute {@link LongCodec} methods; this class provides
+ * relative variants that advance the buffer position, along with the boxed
+ * {@link Field} API as a thin adapter.
+ * @author tim
+ */
+public abstract class LongField extends Field<Long> implements LongCodec {
+
+	public LongField() {
+	}
+
+	public LongField(ByteOrder order) {
+		super(order);
+	}
+	
+	/**
+	 * Reads the field at the buffer's current position, advancing the position
+	 * by the length of this field.
+	 * @param bytes the buffer to read from
+	 * @return the decoded value
+	 */
+	public long getLong(ByteBuffer bytes) {
+		int position = bytes.position();
+		long value = getLong(bytes, position);
+		bytes.position(position + length);
+		
+		return value;
+	}
+	
+	/**
+	 * Writes the field at the buffer's current position, advancing the
+	 * position by the length of this field.
+	 * @param bytes the buffer to write to
+	 * @param value the value to encode
+	 */
+	public void putLong(ByteBuffer bytes, long value) {
+		int position = bytes.position();
+		putLong(bytes, position, value);
+		bytes.position(position + length);
+	}
+	
+	@Override
+	public Long value(ByteBuffer bytes) {
+		return getLong(bytes);
+	}
+
+	@Override
+	protected ByteBuffer bytesInternal(Long value) {
+		ByteBuffer ret = ByteBuffer.allocate(length);
+		putLong(ret, value);
+		
+		return ret;
+	}
+
+	@Override
+	public void put(ByteBuffer dst, Long value) {
+		putLong(dst, value);
+	}
+	
+}
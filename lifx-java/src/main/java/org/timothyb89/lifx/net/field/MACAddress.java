@@ -0,0 +1,198 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import lombok.ToString;
+
+/**
+ * An immutable 48-bit MAC address, stored packed into the low bits of a
+ * {@code long} (most significant byte first). Equality and hashing operate
+ * directly on the packed value, and the hex representation is only built when
+ * first requested.
+ *
+ * <p>Addresses decoded from the wire should be obtained through
+ * {@link #read(ByteBuffer, int)} or {@link #valueOf(long)}, which consult a
+ * small direct-mapped cache so that the same handful of bulb and site
+ * addresses seen over and over do not allocate a new instance per packet.</p>
+ * @author tim
+ */
+@ToString(of = {"hex"})
+public class MACAddress {
+
+	/**
+	 * The number of bytes in an encoded address.
+	 */
+	public static final int LENGTH = 6;
+
+	private static final long MASK = 0xFFFFFFFFFFFFL;
+
+	private static final int CACHE_BITS = 10;
+
+	/**
+	 * Direct-mapped cache of recently seen addresses. Instances are immutable
+	 * (the lazily built hex string aside, which is idempotent), so entries may
+	 * be read and replaced without synchronization.
+	 */
+	private static final MACAddress[] CACHE = new MACAddress[1 << CACHE_BITS];
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private final long value;
+	private String hex;
+
+	/**
+	 * Creates an address from the packed 48-bit value. Bits above the lowest
+	 * 48 are ignored.
+	 * @param value the packed address
+	 */
+	public MACAddress(long value) {
+		this.value = value & MASK;
+	}
+
+	/**
+	 * Creates an address from the first 6 bytes of the given buffer. The
+	 * buffer's position is not used or modified.
+	 * @param bytes the buffer to read from
+	 */
+	public MACAddress(ByteBuffer bytes) {
+		this(bits(bytes, 0));
+	}
+
+	public MACAddress() {
+		this(0L);
+	}
+
+	/**
+	 * Returns an address for the given packed value, reusing a cached
+	 * instance if one is available.
+	 * @param value the packed address
+	 * @return a MACAddress for the value
+	 */
+	public static MACAddress valueOf(long value) {
+		value &= MASK;
+
+		int slot = slot(value);
+		MACAddress cached = CACHE[slot];
+		if (cached != null && cached.value == value) {
+			return cached;
+		}
+
+		MACAddress ret = new MACAddress(value);
+		CACHE[slot] = ret;
+
+		return ret;
+	}
+
+	/**
+	 * Reads an address from the 6 bytes at the given absolute offset,
+	 * reusing a cached instance if one is available. The buffer's position is
+	 * not modified.
+	 * @param bytes the buffer to read from
+	 * @param offset the offset of the first address byte
+	 * @return a MACAddress for the encoded value
+	 */
+	public static MACAddress read(ByteBuffer bytes, int offset) {
+		return valueOf(bits(bytes, offset));
+	}
+
+	/**
+	 * Reads the packed value of the 6-byte address at the given absolute
+	 * offset without creating a MACAddress instance.
+	 * @param bytes the buffer to read from
+	 * @param offset the offset of the first address byte
+	 * @return the packed address
+	 */
+	public static long bits(ByteBuffer bytes, int offset) {
+		long ret = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			ret = (ret << 8) | (bytes.get(offset + i) & 0xFF);
+		}
+
+		return ret;
+	}
+
+	private static int slot(long value) {
+		// addresses tend to share a vendor prefix, so mix all bits into the
+		// index rather than relying on the low bits alone
+		return (int) ((value * 0x9E3779B97F4A7C15L) >>> (64 - CACHE_BITS));
+	}
+
+	/**
+	 * Writes this address into the 6 bytes at the given absolute offset. The
+	 * buffer's position is not modified.
+	 * @param dst the buffer to write into
+	 * @param offset the offset of the first address byte
+	 */
+	public void write(ByteBuffer dst, int offset) {
+		for (int i = 0; i < LENGTH; i++) {
+			int shift = 8 * (LENGTH - 1 - i);
+			dst.put(offset + i, (byte) (value >>> shift));
+		}
+	}
+
+	/**
+	 * Returns the packed 48-bit value of this address.
+	 * @return the packed address
+	 */
+	public long getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns a new buffer containing the 6 encoded address bytes. Prefer
+	 * {@link #write(ByteBuffer, int)} or {@link #getValue()}, which do not
+	 * allocate.
+	 * @return a new buffer containing this address
+	 */
+	public ByteBuffer getBytes() {
+		ByteBuffer ret = ByteBuffer.allocate(LENGTH);
+		write(ret, 0);
+
+		return ret;
+	}
+
+	/**
+	 * Returns the address as colon-separated uppercase hex pairs, e.g.
+	 * {@code D0:73:D5:00:11:22}. The string is built on first use.
+	 * @return the hex representation of this address
+	 */
+	public String getHex() {
+		String ret = hex;
+		if (ret == null) {
+			char[] chars = new char[LENGTH * 3 - 1];
+			for (int i = 0; i < LENGTH; i++) {
+				int b = (int) (value >>> (8 * (LENGTH - 1 - i))) & 0xFF;
+
+				if (i > 0) {
+					chars[i * 3 - 1] = ':';
+				}
+
+				chars[i * 3] = HEX_DIGITS[b >>> 4];
+				chars[i * 3 + 1] = HEX_DIGITS[b & 0x0F];
+			}
+
+			ret = new String(chars);
+			hex = ret;
+		}
+
+		return ret;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (value ^ (value >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+
+		return value == ((MACAddress) obj).value;
+	}
+
+}
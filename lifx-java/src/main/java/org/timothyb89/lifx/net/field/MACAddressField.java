@@ -19,15 +19,23 @@ public class MACAddressField extends Field<MACAddress> {
 
 	@Override
 	public MACAddress value(ByteBuffer bytes) {
-		byte[] data = new byte[length];
-		bytes.get(data);
+		int position = bytes.position();
+		MACAddress ret = MACAddress.read(bytes, position);
+		bytes.position(position + length);
 		
-		return new MACAddress(ByteBuffer.wrap(data));
+		return ret;
 	}
 
 	@Override
 	protected ByteBuffer bytesInternal(MACAddress value) {
-		return value.getBytes().duplicate();
+		return value.getBytes();
+	}
+
+	@Override
+	public void put(ByteBuffer dst, MACAddress value) {
+		int position = dst.position();
+		value.write(dst, position);
+		dst.position(position + length);
 	}
 	
 }
@@ -0,0 +1,105 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-length, zero-padded string field. Little-endian string fields store
+ * their characters in reverse order (e.g. a build month of {@code "Jan"} sent
+ * as {@code "naJ"}); they are read and written in place without reversing
+ * the underlying bytes first.
+ * @author tim
+ */
+public class StringField extends Field<String> {
+
+	public static final Charset CHARSET = StandardCharsets.US_ASCII;
+
+	private Charset charset;
+	
+	public StringField() {
+		charset = StandardCharsets.US_ASCII;
+	}
+	
+	public StringField(int length) {
+		super(length);
+		
+		charset = StandardCharsets.US_ASCII;
+	}
+
+	public StringField(int length, Charset charset) {
+		super(length);
+		
+		this.charset = charset;
+	}
+	
+	public StringField(int length, Charset charset, ByteOrder order) {
+		super(length, order);
+		
+		this.charset = charset;
+	}
+	
+	@Override
+	public int defaultLength() {
+		return 3;
+	}
+	
+	/**
+	 * Decodes the string as ASCII, dropping any null characters. Bytes outside
+	 * of the ASCII range are decoded as {@code U+FFFD}.
+	 * @param bytes the buffer to read from
+	 * @return the decoded string
+	 */
+	@Override
+	public String value(ByteBuffer bytes) {
+		int offset = bytes.position();
+		String ret = Codecs.getString(bytes, offset, length, order);
+		bytes.position(offset + length);
+		
+		return ret;
+	}
+
+	@Override
+	public ByteBuffer bytesInternal(String value) {
+		ByteBuffer ret = ByteBuffer.allocate(length);
+		put(ret, value);
+		
+		return ret;
+	}
+	
+	/**
+	 * Writes the given string as ASCII directly into the buffer, truncating or
+	 * zero-padding to the field length. Non-ASCII characters are replaced with
+	 * {@code '?'}.
+	 * @param dst the buffer to write into
+	 * @param value the string to write, or null
+	 */
+	@Override
+	public void put(ByteBuffer dst, String value) {
+		int offset = dst.position();
+		Codecs.putString(dst, offset, length, value, order);
+		dst.position(offset + length);
+	}
+
+	@Override
+	protected StringField withOrder(ByteOrder order) {
+		return new StringField(length, charset, order);
+	}
+
+	@Override
+	public StringField little() {
+		return withOrder(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	public StringField ascii() {
+		charset = StandardCharsets.US_ASCII;
+		return this;
+	}
+	
+	public StringField utf8() {
+		charset = StandardCharsets.UTF_8;
+		return this;
+	}
+	
+}
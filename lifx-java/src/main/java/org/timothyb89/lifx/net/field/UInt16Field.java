@@ -0,0 +1,44 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *
+ * @author tim
+ */
+public class UInt16Field extends IntField {
+
+	public UInt16Field() {
+	}
+
+	public UInt16Field(ByteOrder order) {
+		super(order);
+	}
+	
+	@Override
+	public int defaultLength() {
+		return 2;
+	}
+
+	@Override
+	public int getInt(ByteBuffer bytes, int offset) {
+		return Codecs.getUInt16(bytes, offset, order);
+	}
+
+	@Override
+	public void putInt(ByteBuffer bytes, int offset, int value) {
+		Codecs.putUInt16(bytes, offset, value, order);
+	}
+	
+	@Override
+	protected UInt16Field withOrder(ByteOrder order) {
+		return new UInt16Field(order);
+	}
+	
+	@Override
+	public UInt16Field little() {
+		return withOrder(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+}
@@ -0,0 +1,44 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *
+ * @author tim
+ */
+public class UInt32Field extends LongField {
+
+	public UInt32Field() {
+	}
+
+	public UInt32Field(ByteOrder order) {
+		super(order);
+	}
+	
+	@Override
+	public int defaultLength() {
+		return 4;
+	}
+
+	@Override
+	public long getLong(ByteBuffer bytes, int offset) {
+		return Codecs.getUInt32(bytes, offset, order);
+	}
+
+	@Override
+	public void putLong(ByteBuffer bytes, int offset, long value) {
+		Codecs.putUInt32(bytes, offset, value, order);
+	}
+	
+	@Override
+	protected UInt32Field withOrder(ByteOrder order) {
+		return new UInt32Field(order);
+	}
+	
+	@Override
+	public UInt32Field little() {
+		return withOrder(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+}
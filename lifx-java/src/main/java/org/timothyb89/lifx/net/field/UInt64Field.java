@@ -0,0 +1,46 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A pseudo-uint64 field. Bytes will be stored directly in a long value, so
+ * unexpected values will likely be shown if exposed to users. Most bit-level
+ * operations should still work (addition, multiplication, shifting, etc).
+ * @author tim
+ */
+public class UInt64Field extends LongField {
+
+	public UInt64Field() {
+	}
+
+	public UInt64Field(ByteOrder order) {
+		super(order);
+	}
+	
+	@Override
+	public int defaultLength() {
+		return 8;
+	}
+
+	@Override
+	public long getLong(ByteBuffer bytes, int offset) {
+		return Codecs.getInt64(bytes, offset, order);
+	}
+
+	@Override
+	public void putLong(ByteBuffer bytes, int offset, long value) {
+		Codecs.putInt64(bytes, offset, value, order);
+	}
+	
+	@Override
+	protected UInt64Field withOrder(ByteOrder order) {
+		return new UInt64Field(order);
+	}
+	
+	@Override
+	public UInt64Field little() {
+		return withOrder(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+}
@@ -0,0 +1,38 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * @author tim
+ */
+public class UInt8Field extends IntField {
+
+	public UInt8Field() {
+	}
+	
+	@Override
+	public int defaultLength() {
+		return 1;
+	}
+
+	@Override
+	public int getInt(ByteBuffer bytes, int offset) {
+		return Codecs.getUInt8(bytes, offset);
+	}
+
+	@Override
+	public void putInt(ByteBuffer bytes, int offset, int value) {
+		Codecs.putUInt8(bytes, offset, value);
+	}
+	
+	/**
+	 * Single-byte fields have no byte order, so this field is returned as-is.
+	 * @return this field
+	 */
+	@Override
+	public UInt8Field little() {
+		return this;
+	}
+	
+}
@@ -0,0 +1,98 @@
+package org.timothyb89.lifx.net.filter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * Drops datagrams identical to one received within a short window, e.g. the
+ * same response arriving via several interfaces or retransmitted by a
+ * gateway. Datagrams are compared by a 64-bit hash of their full contents.
+ * 
+ * <p>Recent hashes are kept in a fixed-size direct-mapped table, so memory
+ * use is constant; a hash collision in the table only evicts the older entry,
+ * which may let a duplicate through but never drops a unique datagram (short
+ * of a full 64-bit hash collision).</p>
+ * @author tim
+ */
+public class DedupFilter extends PacketFilter {
+	
+	public static final int DEFAULT_TABLE_SIZE = 256;
+	public static final long DEFAULT_WINDOW_MILLIS = 250;
+	
+	@Getter private final long windowMillis;
+	
+	private final long windowNanos;
+	private final int mask;
+	private final long[] hashes;
+	private final long[] times;
+	
+	/**
+	 * Creates a new dedup filter.
+	 * @param windowMillis the window in which duplicates are dropped, in ms
+	 * @param tableSize the number of recent datagrams to track; rounded up to
+	 *     a power of two
+	 */
+	public DedupFilter(long windowMillis, int tableSize) {
+		if (windowMillis <= 0 || tableSize <= 0) {
+			throw new IllegalArgumentException(
+					"Window and table size must be positive");
+		}
+		
+		this.windowMillis = windowMillis;
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		
+		int size = Integer.highestOneBit(tableSize);
+		if (size < tableSize) {
+			size <<= 1;
+		}
+		
+		mask = size - 1;
+		hashes = new long[size];
+		times = new long[size];
+	}
+	
+	public DedupFilter(long windowMillis) {
+		this(windowMillis, DEFAULT_TABLE_SIZE);
+	}
+	
+	public DedupFilter() {
+		this(DEFAULT_WINDOW_MILLIS, DEFAULT_TABLE_SIZE);
+	}
+	
+	private static long hash(ByteBuffer buf) {
+		// FNV-1a over the datagram, then a final mix so the low bits used
+		// for the table index depend on every byte
+		long h = 0xCBF29CE484222325L;
+		for (int i = 0, limit = buf.limit(); i < limit; i++) {
+			h ^= buf.get(i) & 0xFF;
+			h *= 0x100000001B3L;
+		}
+		
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		
+		return h;
+	}
+	
+	@Override
+	protected boolean accept(PacketHeader header) {
+		long h = hash(header.getBuffer());
+		long now = System.nanoTime();
+		int slot = (int) h & mask;
+		
+		synchronized (this) {
+			if (hashes[slot] == h && times[slot] != 0
+					&& now - times[slot] <= windowNanos) {
+				return false;
+			}
+			
+			hashes[slot] = h;
+			times[slot] = now;
+		}
+		
+		return true;
+	}
+	
+}
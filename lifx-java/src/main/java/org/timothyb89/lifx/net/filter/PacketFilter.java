@@ -0,0 +1,56 @@
+package org.timothyb89.lifx.net.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A prefilter applied by {@link org.timothyb89.lifx.net.BroadcastListener}
+ * to every valid datagram before it is decoded. Filters see only the
+ * {@link PacketHeader}, and so can reject datagrams (e.g. from unmanaged
+ * sites, or of types nobody is interested in) before any packet object is
+ * created.
+ * 
+ * <p>Filters are called on the receive thread and should be cheap. Each
+ * filter keeps a count of the datagrams it has dropped.</p>
+ * @author tim
+ */
+public abstract class PacketFilter {
+	
+	private final AtomicLong dropped = new AtomicLong();
+	
+	/**
+	 * Determines whether the datagram with the given header should be
+	 * processed further.
+	 * @param header the preamble of the received datagram
+	 * @return true to accept the datagram, false to drop it
+	 */
+	protected abstract boolean accept(PacketHeader header);
+	
+	/**
+	 * Applies this filter to the given header, counting the datagram if it is
+	 * dropped.
+	 * @param header the preamble of the received datagram
+	 * @return true if the datagram was accepted
+	 */
+	public final boolean test(PacketHeader header) {
+		if (accept(header)) {
+			return true;
+		}
+		
+		dropped.incrementAndGet();
+		return false;
+	}
+	
+	/**
+	 * Returns the number of datagrams dropped by this filter.
+	 * @return the number of dropped datagrams
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "(dropped=" + dropped.get() + ")";
+	}
+	
+}
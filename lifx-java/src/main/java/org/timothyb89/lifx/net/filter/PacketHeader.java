@@ -0,0 +1,66 @@
+package org.timothyb89.lifx.net.filter;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import lombok.Getter;
+import lombok.ToString;
+import org.timothyb89.lifx.net.field.Codecs;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ * The preamble of a received datagram, read with absolute gets and kept in
+ * primitive fields. A single instance is reused for every datagram received
+ * by a listener, so filters can inspect packets without anything being
+ * allocated or decoded.
+ * 
+ * <p>Instances are only valid for the duration of a
+ * {@link PacketFilter#accept(PacketHeader)} call.</p>
+ * @author tim
+ */
+@ToString(exclude = { "buffer" })
+public class PacketHeader {
+	
+	@Getter private InetSocketAddress source;
+	@Getter private ByteBuffer buffer;
+	
+	@Getter private int size;
+	@Getter private int protocol;
+	@Getter private long bulbAddress;
+	@Getter private long site;
+	@Getter private long timestamp;
+	@Getter private int type;
+	
+	/**
+	 * Reads the preamble of the packet in the given buffer, which must hold
+	 * at least {@link Packet#PREAMBLE_LENGTH} bytes starting at index 0. The
+	 * buffer's position is not modified.
+	 * @param source the source address of the datagram
+	 * @param buffer the receive buffer
+	 */
+	public void read(InetSocketAddress source, ByteBuffer buffer) {
+		this.source = source;
+		this.buffer = buffer;
+		
+		size = Codecs.getUInt16(
+				buffer, Packet.OFFSET_SIZE, ByteOrder.LITTLE_ENDIAN);
+		protocol = Codecs.getUInt16(
+				buffer, Packet.OFFSET_PROTOCOL, ByteOrder.LITTLE_ENDIAN);
+		bulbAddress = MACAddress.bits(buffer, Packet.OFFSET_BULB_ADDRESS);
+		site = MACAddress.bits(buffer, Packet.OFFSET_SITE);
+		timestamp = Codecs.getInt64(
+				buffer, Packet.OFFSET_TIMESTAMP, ByteOrder.BIG_ENDIAN);
+		type = Codecs.getUInt16(
+				buffer, Packet.OFFSET_PACKET_TYPE, ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	/**
+	 * Clears references held from the last datagram.
+	 */
+	public void clear() {
+		source = null;
+		buffer = null;
+	}
+	
+}
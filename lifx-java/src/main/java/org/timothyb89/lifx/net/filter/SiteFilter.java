@@ -0,0 +1,83 @@
+package org.timothyb89.lifx.net.filter;
+
+import java.util.Arrays;
+import org.timothyb89.lifx.net.field.MACAddress;
+
+/**
+ * Drops datagrams whose {@code site} field is not one of an allowed set of
+ * sites. Sites are kept as a sorted array of packed addresses, replaced on
+ * every change, so lookups are a lock-free binary search.
+ * 
+ * <p>Note that gateway discovery responses carry the gateway's site as well,
+ * so gateways on other sites will not be discovered.</p>
+ * @author tim
+ */
+public class SiteFilter extends PacketFilter {
+	
+	private volatile long[] sites;
+	
+	public SiteFilter(MACAddress... sites) {
+		this.sites = new long[0];
+		
+		for (MACAddress site : sites) {
+			allow(site);
+		}
+	}
+	
+	/**
+	 * Adds the given site to the allowed set.
+	 * @param site the site address to allow
+	 */
+	public synchronized void allow(MACAddress site) {
+		long value = site.getValue();
+		
+		long[] current = sites;
+		int index = Arrays.binarySearch(current, value);
+		if (index >= 0) {
+			return;
+		}
+		
+		index = -(index + 1);
+		long[] copy = new long[current.length + 1];
+		System.arraycopy(current, 0, copy, 0, index);
+		copy[index] = value;
+		System.arraycopy(current, index, copy, index + 1,
+				current.length - index);
+		
+		sites = copy;
+	}
+	
+	/**
+	 * Removes the given site from the allowed set.
+	 * @param site the site address to disallow
+	 */
+	public synchronized void disallow(MACAddress site) {
+		long[] current = sites;
+		int index = Arrays.binarySearch(current, site.getValue());
+		if (index < 0) {
+			return;
+		}
+		
+		long[] copy = new long[current.length - 1];
+		System.arraycopy(current, 0, copy, 0, index);
+		System.arraycopy(current, index + 1, copy, index,
+				current.length - index - 1);
+		
+		sites = copy;
+	}
+	
+	/**
+	 * Checks if the given site is in the allowed set.
+	 * @param site the site address to check
+	 * @return true if the site is allowed
+	 */
+	public boolean isAllowed(MACAddress site) {
+		return Arrays.binarySearch(sites, site.getValue()) >= 0;
+	}
+	
+	@Override
+	protected boolean accept(PacketHeader header) {
+		return Arrays.binarySearch(sites, header.getSite()) >= 0;
+	}
+	
+}
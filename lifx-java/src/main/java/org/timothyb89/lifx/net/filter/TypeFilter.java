@@ -0,0 +1,91 @@
+package org.timothyb89.lifx.net.filter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drops datagrams of packet types that nobody has subscribed to. Types are
+ * tracked in a 65536-bit bitmap, so a lookup is a single array load.
+ * 
+ * <p>When a TypeFilter is installed on a
+ * {@link org.timothyb89.lifx.net.BroadcastListener}, gateways subscribe the
+ * types they handle themselves (discovery, status updates and any responses
+ * expected by their futures) via
+ * {@link org.timothyb89.lifx.net.BroadcastListener#subscribe(int...)}.
+ * Clients handling other packet types from events must subscribe those types
+ * as well, or they will be dropped.</p>
+ * @author tim
+ */
+public class TypeFilter extends PacketFilter {
+	
+	private static final int TYPES = 1 << 16;
+	
+	private final AtomicLongArray bits;
+
+	public TypeFilter(int... types) {
+		bits = new AtomicLongArray(TYPES / 64);
+		
+		subscribe(types);
+	}
+	
+	/**
+	 * Subscribes to the given packet types, allowing them through this
+	 * filter.
+	 * @param types the packet types to allow
+	 */
+	public void subscribe(int... types) {
+		for (int type : types) {
+			int index = index(type);
+			long mask = 1L << type;
+			
+			long current;
+			do {
+				current = bits.get(index);
+			} while (!bits.compareAndSet(index, current, current | mask));
+		}
+	}
+	
+	/**
+	 * Unsubscribes from the given packet types, so they will be dropped.
+	 * @param types the packet types to drop
+	 */
+	public void unsubscribe(int... types) {
+		for (int type : types) {
+			int index = index(type);
+			long mask = 1L << type;
+			
+			long current;
+			do {
+				current = bits.get(index);
+			} while (!bits.compareAndSet(index, current, current & ~mask));
+		}
+	}
+	
+	/**
+	 * Checks if the given packet type is subscribed.
+	 * @param type the packet type to check
+	 * @return true if datagrams of this type are accepted
+	 */
+	public boolean isSubscribed(int type) {
+		if (type < 0 || type >= TYPES) {
+			return false;
+		}
+		
+		// shifts only use the low 6 bits, so no masking is needed
+		return (bits.get(type >>> 6) & (1L << type)) != 0;
+	}
+	
+	private static int index(int type) {
+		if (type < 0 || type >= TYPES) {
+			throw new IllegalArgumentException(
+					"Packet type out of range: " + type);
+		}
+		
+		return type >>> 6;
+	}
+	
+	@Override
+	protected boolean accept(PacketHeader header) {
+		return isSubscribed(header.getType());
+	}
+	
+}
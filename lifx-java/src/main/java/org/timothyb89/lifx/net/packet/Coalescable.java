@@ -0,0 +1,15 @@
+package org.timothyb89.lifx.net.packet;
+
+/**
+ * Marks a packet that sets some state on a bulb outright, such that only the
+ * most recent packet of its type matters. While such a packet is waiting to be
+ * sent, a newer packet of the same type for the same bulb may replace it; see
+ * {@link org.timothyb89.lifx.gateway.SendScheduler#setCoalescing(boolean)}.
+ * 
+ * <p>Requests that trigger responses, or whose effect depends on the state
+ * left by earlier packets, must not implement this.</p>
+ * @author tim
+ */
+public interface Coalescable {
+	
+}
@@ -24,8 +24,8 @@ public class GenericPacket extends Packet {
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(0);
+	protected void encodePacket(ByteBuffer dst) {
+
 	}
 
 	@Override
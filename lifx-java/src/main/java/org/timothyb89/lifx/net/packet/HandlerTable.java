@@ -0,0 +1,71 @@
+package org.timothyb89.lifx.net.packet;
+
+/**
+ * A table mapping 16-bit packet types to handlers. Types are split into a
+ * high byte selecting one of 256 pages and a low byte indexing into that page,
+ * so a lookup is two array loads with no hashing or boxing, while only pages
+ * that actually contain handlers are allocated.
+ *
+ * <p>The table is copy-on-write: registration copies the page being modified
+ * (and the page directory) and publishes the result through a volatile field.
+ * Lookups never lock and always observe a fully built table.</p>
+ * @param <H> the handler type
+ * @author tim
+ */
+class HandlerTable<H> {
+
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int MAX_TYPE = 0xFFFF;
+
+	private volatile Object[][] pages;
+
+	HandlerTable() {
+		pages = new Object[PAGE_SIZE][];
+	}
+
+	/**
+	 * Returns the handler registered for the given type, or {@code null} if
+	 * none exists or the type is outside the uint16 range.
+	 * @param type the packet type
+	 * @return the registered handler, or null
+	 */
+	@SuppressWarnings("unchecked")
+	H get(int type) {
+		if ((type & ~MAX_TYPE) != 0) {
+			return null;
+		}
+
+		Object[] page = pages[type >>> PAGE_BITS];
+		if (page == null) {
+			return null;
+		}
+
+		return (H) page[type & PAGE_MASK];
+	}
+
+	/**
+	 * Associates a handler with the given type, replacing any existing
+	 * handler. A {@code null} handler removes the registration.
+	 * @param type the packet type
+	 * @param handler the handler, or null
+	 */
+	synchronized void put(int type, H handler) {
+		if ((type & ~MAX_TYPE) != 0) {
+			throw new IllegalArgumentException(
+					"Packet type out of range: " + type);
+		}
+
+		int index = type >>> PAGE_BITS;
+
+		Object[][] copy = pages.clone();
+		Object[] page = copy[index];
+		page = page == null ? new Object[PAGE_SIZE] : page.clone();
+		page[type & PAGE_MASK] = handler;
+		copy[index] = page;
+
+		pages = copy;
+	}
+
+}
@@ -0,0 +1,457 @@
+package org.timothyb89.lifx.net.packet;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.timothyb89.lifx.gateway.Gateway;
+import org.timothyb89.lifx.gateway.PacketResponseFuture;
+import org.timothyb89.lifx.net.field.ByteField;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.field.MACAddressField;
+import org.timothyb89.lifx.net.field.UInt16Field;
+import org.timothyb89.lifx.net.field.UInt64Field;
+
+/**
+ * Represents an abstract packet, providing conversion functionality to and from
+ * {@link ByteBuffer}s for common packet (preamble) fields. Subtypes of this
+ * class can provide conversion functionality for specialized fields.
+ * 
+ * <p>Defining new packet types essentially involves extending this class,
+ * defining the fields and implementing {@link #packetType()},
+ * {@link #packetLength()}, {@link #parsePacket(ByteBuffer)}, and
+ * {@link #encodePacket(ByteBuffer)}. By convention, packet
+ * type should be stored in a {@code public static final int PACKET_TYPE} field
+ * in each subtype, followed by a listing of fields contained in the packet.</p>
+ * 
+ * <p>Payload fields should be declared with
+ * {@link org.timothyb89.lifx.codegen.WireField} and the class annotated with
+ * {@link org.timothyb89.lifx.codegen.PacketCodec}; the generated
+ * {@code <Name>Codec} class then provides the payload length along with
+ * {@code decode()} and {@code encode()} methods to delegate to. The
+ * generated codec also exposes field offsets and static readers for use
+ * elsewhere (e.g. by packet views).</p>
+ * @author tim
+ */
+@ToString(of = { "packetType", "size", "bulbAddress" })
+public abstract class Packet {
+
+	public static final Field<Integer>    FIELD_SIZE         = new UInt16Field().little();
+	public static final Field<Integer>    FIELD_PROTOCOL     = new UInt16Field().little();
+	public static final Field<ByteBuffer> FIELD_RESERVED_1   = new ByteField(4);
+	public static final Field<MACAddress> FIELD_BULB_ADDRESS = new MACAddressField();
+	public static final Field<ByteBuffer> FIELD_RESERVED_2   = new ByteField(2);
+	public static final Field<MACAddress> FIELD_SITE         = new MACAddressField();
+	public static final Field<ByteBuffer> FIELD_RESERVED_3   = new ByteField(2);
+	public static final Field<Long>       FIELD_TIMESTAMP    = new UInt64Field();
+	public static final Field<Integer>    FIELD_PACKET_TYPE  = new UInt16Field().little();
+	public static final Field<ByteBuffer> FIELD_RESERVED_4   = new ByteField(2);
+	
+	/*
+	 * The numeric preamble fields, typed for primitive access. The public
+	 * constants above keep their original declared types.
+	 */
+	private static final UInt16Field SIZE        = (UInt16Field) FIELD_SIZE;
+	private static final UInt16Field PROTOCOL    = (UInt16Field) FIELD_PROTOCOL;
+	private static final UInt64Field TIMESTAMP   = (UInt64Field) FIELD_TIMESTAMP;
+	private static final UInt16Field PACKET_TYPE = (UInt16Field) FIELD_PACKET_TYPE;
+	
+	/**
+	 * The encoded length of the preamble, equal to the sum of the lengths of
+	 * {@link #PREAMBLE_FIELDS}. Payload fields begin at this offset.
+	 */
+	public static final int PREAMBLE_LENGTH = 36;
+	
+	/*
+	 * Offsets of preamble fields within an encoded packet, for reading or
+	 * patching individual fields in place.
+	 */
+	public static final int OFFSET_SIZE         = 0;
+	public static final int OFFSET_PROTOCOL     = 2;
+	public static final int OFFSET_BULB_ADDRESS = 8;
+	public static final int OFFSET_SITE         = 16;
+	public static final int OFFSET_TIMESTAMP    = 24;
+	public static final int OFFSET_PACKET_TYPE  = 32;
+	
+	/**
+	 * An ordered array of all fields contained in the common packet preamble.
+	 */
+	public static final Field<?>[] PREAMBLE_FIELDS = new Field<?>[] {
+		FIELD_SIZE,
+		FIELD_PROTOCOL,
+		FIELD_RESERVED_1,
+		FIELD_BULB_ADDRESS,
+		FIELD_RESERVED_2,
+		FIELD_SITE,
+		FIELD_RESERVED_3,
+		FIELD_TIMESTAMP,
+		FIELD_PACKET_TYPE,
+		FIELD_RESERVED_4
+	};
+	
+	@Getter protected int size;
+	@Getter protected int protocol;
+	@Getter protected ByteBuffer reserved1;
+	@Getter @Setter protected MACAddress bulbAddress;
+	@Getter protected ByteBuffer reserved2;
+	@Getter @Setter protected MACAddress site;
+	@Getter protected ByteBuffer reserved3;
+	@Getter protected long timestamp;
+	@Getter protected int packetType;
+	@Getter protected ByteBuffer reserved4;
+	
+	/**
+	 * Backing storage for the reserved fields, allocated by the first parse
+	 * and reused by later ones, so a recycled pooled packet parses without
+	 * allocating.
+	 */
+	private byte[] reserved;
+	
+	private static final AtomicIntegerFieldUpdater<Packet> REFS =
+			AtomicIntegerFieldUpdater.newUpdater(Packet.class, "refs");
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static final AtomicReferenceFieldUpdater<Packet, PacketPool<?>>
+			POOL = (AtomicReferenceFieldUpdater) AtomicReferenceFieldUpdater
+					.newUpdater(Packet.class, PacketPool.class, "pool");
+	
+	/**
+	 * The pool this packet was acquired from, or null if it is not pooled (or
+	 * has been detached from its pool).
+	 */
+	private volatile PacketPool<?> pool;
+	private volatile int refs;
+	
+	/**
+	 * Creates an empty packet, setting some default values via
+	 * {@link #preambleDefaults()}.
+	 */
+	public Packet() {
+		preambleDefaults();
+	}
+	
+	/**
+	 * Parses, in order, the defined preamble fields, storing collected values.
+	 * The buffer's position will be left at the end of the parsed fields and
+	 * should be equal to the value returned by {@link #preambleLength()}.
+	 * @param bytes the buffer to read from.
+	 */
+	protected void parsePreamble(ByteBuffer bytes) {
+		if (reserved == null) {
+			allocateReserved();
+		}
+		
+		size        = SIZE              .getInt(bytes);
+		protocol    = PROTOCOL          .getInt(bytes);
+		bytes.get(reserved, 0, 4);
+		bulbAddress = FIELD_BULB_ADDRESS.value(bytes);
+		bytes.get(reserved, 4, 2);
+		site        = FIELD_SITE        .value(bytes);
+		bytes.get(reserved, 6, 2);
+		timestamp   = TIMESTAMP         .getLong(bytes);
+		packetType  = PACKET_TYPE       .getInt(bytes);
+		bytes.get(reserved, 8, 2);
+	}
+	
+	/**
+	 * Allocates storage for the reserved fields, exposing each as a view of
+	 * its part of {@link #reserved}.
+	 */
+	private void allocateReserved() {
+		reserved = new byte[10];
+		
+		reserved1 = ByteBuffer.wrap(reserved, 0, 4).slice();
+		reserved2 = ByteBuffer.wrap(reserved, 4, 2).slice();
+		reserved3 = ByteBuffer.wrap(reserved, 6, 2).slice();
+		reserved4 = ByteBuffer.wrap(reserved, 8, 2).slice();
+	}
+	
+	/**
+	 * Returns the length of the packet header, defined as the sum of the
+	 * lengths of all defined fields (see {@link #PREAMBLE_FIELDS}).
+	 * @return {@link #PREAMBLE_LENGTH}
+	 */
+	protected int preambleLength() {
+		return PREAMBLE_LENGTH;
+	}
+	
+	/**
+	 * Writes the encoded preamble into the given buffer at its current
+	 * position. Exactly {@link #preambleLength()} bytes are written, following
+	 * the order of {@link #PREAMBLE_FIELDS}.
+	 * 
+	 * <p>Certain fields are set to default values based on other class methods.
+	 * For example, the size and packet type fields will be set to the values
+	 * returned from {@link #length()} and {@link #packetType()}, respectively.
+	 * Other defaults (such as the protocol, bulb address, site, and timestamp)
+	 * may be specified either by directly setting the relevant protected
+	 * variables or by overriding {@link #preambleDefaults()}.</p>
+	 * @param dst the buffer to write into
+	 */
+	protected void encodePreamble(ByteBuffer dst) {
+		SIZE              .putInt(dst, length());
+		PROTOCOL          .putInt(dst, protocol);
+		FIELD_RESERVED_1  .put(dst, null); // empty
+		FIELD_BULB_ADDRESS.put(dst, bulbAddress);
+		FIELD_RESERVED_2  .put(dst, null); // empty
+		FIELD_SITE        .put(dst, site);
+		FIELD_RESERVED_3  .put(dst, null); // empty
+		TIMESTAMP         .putLong(dst, timestamp);
+		PACKET_TYPE       .putInt(dst, packetType());
+		FIELD_RESERVED_4  .put(dst, null); // empty
+	}
+	
+	/**
+	 * Sets default preamble values. If needed, subclasses may override these
+	 * values by specifically overriding this method, or by setting individual
+	 * values within the constructor, as this method is called automatically
+	 * during initialization.
+	 */
+	protected void preambleDefaults() {
+		size = 0; // not used when sending
+		protocol = 13312; // ?
+		bulbAddress = MACAddress.valueOf(0);
+		site = MACAddress.valueOf(0);
+		timestamp = 0;
+		packetType = packetType();
+	}
+	
+	/**
+	 * Returns the packet type. Note that this value is technically distinct
+	 * from {@code getPacketType()} in that it returns the packet type the
+	 * current {@code Packet} subtype is designed to parse, while
+	 * {@code getPacketType()} returns the actual {@code packetType} field of
+	 * a parsed packet. However, these values should always match.
+	 * @return the packet type intended to be handled by this Packet subtype
+	 */
+	public abstract int packetType();
+	
+	/**
+	 * Returns the length of the payload specific to this packet subtype. The
+	 * length of the preamble is specifically excluded.
+	 * @return the length of this specialized packet payload
+	 */
+	protected abstract int packetLength();
+	
+	/**
+	 * Parses the given {@link ByteBuffer} into class fields. Subtypes may
+	 * implement {@link #parsePacket(ByteBuffer)} to parse additional fields;
+	 * the preamble by default is always parsed.
+	 * @param bytes the buffer to extract data from
+	 */
+	public void parse(ByteBuffer bytes) {
+		//ByteBufferTest.printBuffer(bytes);
+		bytes.rewind();
+		parsePreamble(bytes);
+		parsePacket(bytes);
+	}
+	
+	/**
+	 * Extracts data from the given {@link ByteBuffer} into fields specific to
+	 * this packet subtype. The preamble will already have been parsed; as such,
+	 * the buffer will be positioned at the end of the preamble. If needed,
+	 * {@link #preambleLength()} may be used to restore the position of the
+	 * buffer.
+	 * @param bytes the raw bytes to parse
+	 */
+	protected abstract void parsePacket(ByteBuffer bytes);
+	
+	/**
+	 * Returns a {@link ByteBuffer} containing the full payload for this packet,
+	 * including the populated preamble and any specialized packet payload. The
+	 * returned buffer will be at position zero.
+	 * 
+	 * <p>This allocates a new buffer for every call; callers sending packets
+	 * at a high rate should prefer {@link #encodeInto(ByteBuffer)} with a
+	 * reused buffer.</p>
+	 * @return the full packet payload
+	 */
+	public ByteBuffer bytes() {
+		ByteBuffer ret = ByteBuffer.allocate(length());
+		encodeInto(ret);
+		ret.rewind();
+		
+		return ret;
+	}
+	
+	/**
+	 * Writes the full packet, including the preamble and any specialized
+	 * packet payload, into the given buffer starting at its current position.
+	 * No intermediate buffers are created, so a single (possibly direct)
+	 * buffer may be reused to encode any number of packets.
+	 * 
+	 * <p>On return, the position of {@code dst} will have been advanced by
+	 * exactly {@link #length()} bytes. If fewer than {@code length()} bytes
+	 * remain in the buffer, nothing is written and a
+	 * {@link BufferOverflowException} is thrown.</p>
+	 * @param dst the buffer to write into
+	 * @return the given buffer, for chaining
+	 * @throws BufferOverflowException if {@code dst} is too small
+	 */
+	public ByteBuffer encodeInto(ByteBuffer dst) {
+		int length = length();
+		if (dst.remaining() < length) {
+			throw new BufferOverflowException();
+		}
+		
+		int start = dst.position();
+		encodePreamble(dst);
+		encodePacket(dst);
+		dst.position(start + length);
+		
+		return dst;
+	}
+	
+	/**
+	 * Writes the payload for this packet into the given buffer at its current
+	 * position. Exactly {@link #packetLength()} bytes should be written. This
+	 * specifically excludes preamble fields and should contain only data
+	 * specific to the packet subtype.
+	 * <p>Implementations should write directly into {@code dst} (generally via
+	 * {@link Field#put(ByteBuffer, Object)}) rather than building a separate
+	 * buffer.</p>
+	 * <p>By default this copies the buffer returned by {@link #packetBytes()},
+	 * so subtypes written against earlier releases still work. Every subtype
+	 * must override one of the two methods.</p>
+	 * @param dst the buffer to write into
+	 */
+	protected void encodePacket(ByteBuffer dst) {
+		ByteBuffer payload = packetBytes();
+		payload.rewind();
+		
+		dst.put(payload);
+	}
+	
+	/**
+	 * Returns a {@link ByteBuffer} containing the payload for this packet. Its
+	 * length must match the value of {@link #packetLength()}. By default this
+	 * encodes the payload with {@link #encodePacket(ByteBuffer)} into a new
+	 * buffer, at position zero.
+	 * @return the packet payload
+	 * @deprecated override {@link #encodePacket(ByteBuffer)} instead, which
+	 *     writes into the caller's buffer rather than allocating a new one
+	 */
+	@Deprecated
+	protected ByteBuffer packetBytes() {
+		ByteBuffer ret = ByteBuffer.allocate(packetLength());
+		encodePacket(ret);
+		ret.rewind();
+		
+		return ret;
+	}
+	
+	/**
+	 * Gets the total length of this packet, in bytes. Specifically, this method
+	 * is the sum of the preamble ({@link #preambleLength()}) and the payload
+	 * length ({@link #packetLength()}); subtypes should override methods for
+	 * those values if desired.
+	 * @return the total length of this packet
+	 */
+	public int length() {
+		return preambleLength() + packetLength();
+	}
+	
+	/**
+	 * Attaches this packet to the given pool with a single reference. Called
+	 * by {@link PacketPool} when the packet is handed out.
+	 * @param pool the owning pool
+	 */
+	void attach(PacketPool<?> pool) {
+		this.refs = 1;
+		this.pool = pool;
+	}
+	
+	/**
+	 * Returns true if this packet is currently owned by a {@link PacketPool}
+	 * and may be recycled once released.
+	 * @return true if this packet is pooled
+	 */
+	public boolean isPooled() {
+		return pool != null;
+	}
+	
+	/**
+	 * Adds a reference to this pooled packet, preventing it from being
+	 * recycled until a matching {@link #release()}. Has no effect on packets
+	 * that are not pooled.
+	 * @return this packet
+	 */
+	public Packet retain() {
+		if (pool == null) {
+			return this;
+		}
+		
+		int r;
+		do {
+			r = refs;
+			if (r <= 0) {
+				throw new IllegalStateException(
+						"Packet retained after being recycled: " + this);
+			}
+		} while (!REFS.compareAndSet(this, r, r + 1));
+		
+		return this;
+	}
+	
+	/**
+	 * Releases a reference to this pooled packet. Once the last reference is
+	 * released the packet is returned to its pool and may be overwritten at
+	 * any time. Has no effect on packets that are not pooled.
+	 */
+	public void release() {
+		PacketPool<?> p = pool;
+		if (p == null) {
+			return;
+		}
+		
+		int r = REFS.decrementAndGet(this);
+		if (r == 0) {
+			p.recycle(this);
+		} else if (r < 0) {
+			throw new IllegalStateException(
+					"Packet released more times than retained: " + this);
+		}
+	}
+	
+	/**
+	 * Permanently removes this packet from its pool, if any, so that it is
+	 * never recycled. This is appropriate for packets that are kept
+	 * indefinitely, e.g. as part of a {@link PacketResponseFuture} result;
+	 * subsequent calls to {@link #retain()} and {@link #release()} have no
+	 * effect.
+	 * @return this packet
+	 */
+	public Packet detach() {
+		PacketPool<?> p = pool;
+		if (p != null && POOL.compareAndSet(this, p, null)) {
+			p.detached(this);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Returns a list of expected response packet types. An empty array means
+	 * no responses are expected (suitable for response packet definitions),
+	 * while one or more values will cause {@link PacketResponseFuture}
+	 * instances returned by {@link Gateway} to wait until all packets of all
+	 * the listed types have been received before returning a value.
+	 * 
+	 * <p>Note that optional response packets, or responses sent over UDP,
+	 * should not be listed here. Any instance where an optional packet is not
+	 * received will prevent other futures from being fulfilled.</p>
+	 * 
+	 * <p>When providing values here, note that {@link Gateway} will always wait
+	 * for all of the defined response types to be fulfilled. If a response
+	 * isn't guaranteed it's probably best to leave it out; clients may add
+	 * expected response types to {@link PacketResponseFuture} on an individual
+	 * basis.</p>
+	 * 
+	 * @return a list of expected responses
+	 */
+	public abstract int[] expectedResponses();
+	
+}
@@ -0,0 +1,316 @@
+package org.timothyb89.lifx.net.packet;
+
+import org.timothyb89.lifx.net.packet.response.*;
+import org.timothyb89.lifx.net.packet.handler.*;
+import org.timothyb89.lifx.net.packet.view.*;
+
+/**
+ * A static factory for registering packet types that may be received and
+ * dispatched to client code. Packet handlers (used to construct actual packet
+ * instances) may be retrieved via their packet type.
+ * 
+ * <p>Handlers are kept in a table indexed directly by packet type, and new
+ * registrations are published without locking, so lookups from the receive
+ * loop via {@link #handler(int)} are cheap and never contend with
+ * registration.</p>
+ * 
+ * <p>This factory does not handle packet types used only for sending (most
+ * request types, like {@code PowerStateRequest}) or types received only via UDP
+ * (like {@code PANGatewayResponse}).</p>
+ * @author tim
+ */
+public class PacketFactory {
+	
+	private static final PacketFactory instance = new PacketFactory();
+
+	public static PacketFactory getInstance() {
+		return instance;
+	}
+	
+	private final HandlerTable<PacketHandler<?>> handlers;
+	private final HandlerTable<ViewHandler<?>> viewHandlers;
+	
+	private PacketFactory() {
+		handlers = new HandlerTable<>();
+		viewHandlers = new HandlerTable<>();
+		
+		register(PowerStateResponse.TYPE,
+				new PacketSupplier<PowerStateResponse>() {
+			@Override
+			public PowerStateResponse create() {
+				return new PowerStateResponse();
+			}
+		});
+		
+		register(LightStatusResponse.TYPE,
+				new PacketSupplier<LightStatusResponse>() {
+			@Override
+			public LightStatusResponse create() {
+				return new LightStatusResponse();
+			}
+		});
+		
+		register(BulbLabelResponse.TYPE,
+				new PacketSupplier<BulbLabelResponse>() {
+			@Override
+			public BulbLabelResponse create() {
+				return new BulbLabelResponse();
+			}
+		});
+		
+		register(MeshFirmwareResponse.TYPE,
+				new PacketSupplier<MeshFirmwareResponse>() {
+			@Override
+			public MeshFirmwareResponse create() {
+				return new MeshFirmwareResponse();
+			}
+		});
+		
+		register(TagLabelsResponse.TYPE,
+				new PacketSupplier<TagLabelsResponse>() {
+			@Override
+			public TagLabelsResponse create() {
+				return new TagLabelsResponse();
+			}
+		});
+		
+		register(TagsResponse.TYPE,
+				new PacketSupplier<TagsResponse>() {
+			@Override
+			public TagsResponse create() {
+				return new TagsResponse();
+			}
+		});
+		
+		register(WifiInfoResponse.TYPE,
+				new PacketSupplier<WifiInfoResponse>() {
+			@Override
+			public WifiInfoResponse create() {
+				return new WifiInfoResponse();
+			}
+		});
+		
+		registerView(LightStatusResponse.TYPE,
+				new ThreadLocalViewHandler<LightStatusView>() {
+			@Override
+			protected LightStatusView create() {
+				return new LightStatusView();
+			}
+		});
+		
+		registerView(PowerStateResponse.TYPE,
+				new ThreadLocalViewHandler<PowerStateView>() {
+			@Override
+			protected PowerStateView create() {
+				return new PowerStateView();
+			}
+		});
+		
+		registerView(WifiInfoResponse.TYPE,
+				new ThreadLocalViewHandler<WifiInfoView>() {
+			@Override
+			protected WifiInfoView create() {
+				return new WifiInfoView();
+			}
+		});
+	}
+	
+	/**
+	 * Registers a packet handler for the given packet type.
+	 * @param type the type to register
+	 * @param handler the packet handler to associate with the type
+	 */
+	public final void register(int type, PacketHandler<?> handler) {
+		handlers.put(type, handler);
+	}
+	
+	/**
+	 * Registers a new generic packet handler for the given packet type, using
+	 * the given supplier to create packet instances. This is the preferred way
+	 * to register packet types, as it avoids reflection entirely.
+	 * @param <T> the packet type to register
+	 * @param type the type of the packet to register
+	 * @param supplier the supplier used to create packet instances
+	 */
+	public final <T extends Packet> void register(
+			int type, PacketSupplier<T> supplier) {
+		handlers.put(type, new GenericHandler<>(type, supplier));
+	}
+	
+	/**
+	 * Registers a new generic packet handler using the given supplier. The
+	 * packet type is determined from {@link Packet#packetType()} of a single
+	 * instance created at registration.
+	 * @param <T> the packet type to register
+	 * @param supplier the supplier used to create packet instances
+	 */
+	public final <T extends Packet> void register(PacketSupplier<T> supplier) {
+		register(supplier.create().packetType(), supplier);
+	}
+	
+	/**
+	 * Registers a new generic packet handler for the given packet class. The
+	 * packet class must meet the criteria for {@link GenericHandler};
+	 * specifically, it must have an no-argument constructor and require no
+	 * parsing logic outside of an invocation of
+	 * {@link Packet#parse(java.nio.ByteBuffer)}. Packets are created
+	 * reflectively; prefer {@link #register(int, PacketSupplier)}.
+	 * @param type the type of the packet to register
+	 * @param clazz the class of the packet to register
+	 */
+	public final void register(int type, Class<? extends Packet> clazz) {
+		handlers.put(type, new GenericHandler<>(clazz));
+	}
+	
+	/**
+	 * Registers a generic packet type. All requirements of
+	 * {@link GenericHandler} must met; specifically, classes must have a
+	 * no-args constructor and require no additional parsing logic.
+	 * Additionally, a public static integer {@code TYPE} field must be defined.
+	 * Packets are created reflectively; prefer
+	 * {@link #register(PacketSupplier)}.
+	 * @param <T> the packet type to register
+	 * @param clazz the packet class to register
+	 */
+	public final <T extends Packet> void register(Class<T> clazz) {
+		GenericHandler<T> handler = new GenericHandler<>(clazz);
+		
+		if (!handler.isTypeFound()) {
+			throw new IllegalArgumentException(
+					"Unable to register generic packet with no TYPE field.");
+		}
+		
+		handlers.put(handler.getType(), handler);
+	}
+	
+	/**
+	 * Gets a registered handler for the given packet type, if any exists. If
+	 * no matching handler can be found, {@code null} is returned.
+	 * @param packetType the packet type of the handler to retrieve
+	 * @return a packet handler, or null
+	 */
+	public PacketHandler<?> getHandler(int packetType) {
+		return handlers.get(packetType);
+	}
+	
+	/**
+	 * Gets the registered handler for the given packet type, or {@code null}
+	 * if none exists. This is the fast path used by the receive loop and does
+	 * not lock or allocate.
+	 * @param packetType the packet type of the handler to retrieve
+	 * @return a packet handler, or null
+	 */
+	public static PacketHandler<?> handler(int packetType) {
+		return instance.handlers.get(packetType);
+	}
+	
+	public static PacketHandler<?> createHandler(int packetType) {
+		return handler(packetType);
+	}
+	
+	/**
+	 * Enables pooling for the given packet type, replacing its handler with a
+	 * {@link PooledHandler}. Packets of this type are then reused rather than
+	 * created per datagram, and are recycled once released (by
+	 * {@link org.timothyb89.lifx.net.BroadcastListener}, after the packet has
+	 * been dispatched). Consumers that keep a reference to such packets past
+	 * event dispatch must {@link Packet#retain()} or {@link Packet#detach()}
+	 * them.
+	 * 
+	 * <p>The type must already be registered with a {@link GenericHandler}.
+	 * If pooling is already enabled, the existing pool is returned.</p>
+	 * @param <T> the packet type
+	 * @param type the packet type to pool
+	 * @param capacity the maximum number of idle packets to retain
+	 * @return the packet pool for the type
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T extends Packet> PacketPool<T> enablePooling(
+			int type, int capacity) {
+		PacketHandler<?> handler = handlers.get(type);
+		if (handler instanceof PooledHandler) {
+			return ((PooledHandler<T>) handler).getPool();
+		}
+		
+		if (!(handler instanceof GenericHandler)) {
+			throw new IllegalArgumentException(String.format(
+					"Packet type 0x%02X has no generic handler to pool", type));
+		}
+		
+		PacketSupplier<T> supplier = ((GenericHandler<T>) handler).getSupplier();
+		PacketPool<T> pool = new PacketPool<>(supplier, capacity);
+		handlers.put(type, new PooledHandler<>(pool));
+		
+		return pool;
+	}
+	
+	/**
+	 * Disables pooling for the given packet type, if enabled. Packets already
+	 * handed out by the pool are still recycled when released.
+	 * @param type the packet type
+	 */
+	public synchronized void disablePooling(int type) {
+		PacketHandler<?> handler = handlers.get(type);
+		if (handler instanceof PooledHandler) {
+			PacketPool<?> pool = ((PooledHandler<?>) handler).getPool();
+			handlers.put(type, unpooled(type, pool));
+		}
+	}
+	
+	private static <T extends Packet> PacketHandler<T> unpooled(
+			int type, PacketPool<T> pool) {
+		return new GenericHandler<>(type, pool.getSupplier());
+	}
+	
+	/**
+	 * Gets the packet pool for the given type, if pooling is enabled.
+	 * @param type the packet type
+	 * @return the packet pool, or null
+	 */
+	public PacketPool<?> getPool(int type) {
+		PacketHandler<?> handler = handlers.get(type);
+		if (handler instanceof PooledHandler) {
+			return ((PooledHandler<?>) handler).getPool();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Registers a view handler for the given packet type. View handlers are
+	 * used to deliver packets of the type as views when a
+	 * {@link org.timothyb89.lifx.net.BroadcastListener} is in view mode.
+	 * @param type the type to register
+	 * @param handler the view handler to associate with the type
+	 */
+	public final void registerView(int type, ViewHandler<?> handler) {
+		viewHandlers.put(type, handler);
+	}
+	
+	/**
+	 * Gets a registered view handler for the given packet type, if any
+	 * exists. If no matching view handler can be found, {@code null} is
+	 * returned.
+	 * @param packetType the packet type of the view handler to retrieve
+	 * @return a view handler, or null
+	 */
+	public ViewHandler<?> getViewHandler(int packetType) {
+		return viewHandlers.get(packetType);
+	}
+	
+	/**
+	 * Gets the registered view handler for the given packet type, or
+	 * {@code null} if none exists. Like {@link #handler(int)}, this does not
+	 * lock or allocate.
+	 * @param packetType the packet type of the view handler to retrieve
+	 * @return a view handler, or null
+	 */
+	public static ViewHandler<?> viewHandler(int packetType) {
+		return instance.viewHandlers.get(packetType);
+	}
+	
+	public static ViewHandler<?> createViewHandler(int packetType) {
+		return viewHandler(packetType);
+	}
+	
+}
@@ -0,0 +1,230 @@
+package org.timothyb89.lifx.net.packet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.timothyb89.lifx.net.packet.handler.PacketSupplier;
+
+/**
+ * A bounded pool of reusable packet instances of a single type. Pooled
+ * packets are reference counted: {@link #acquire()} hands out a packet with a
+ * single reference, {@link Packet#retain()} and {@link Packet#release()} add
+ * and remove references, and the packet returns to the pool once the last
+ * reference is released. Packets that need to be kept indefinitely should be
+ * removed from the pool with {@link Packet#detach()} instead.
+ * 
+ * <p>Packets are reset simply by being parsed again, since parsing overwrites
+ * every field. As with {@link org.timothyb89.lifx.net.BufferPool}, a released
+ * packet must not be used again by its previous holder.</p>
+ * 
+ * <p>When leak detection is enabled via {@link #setLeakDetection(boolean)},
+ * the stack trace of each {@link #acquire()} is recorded until the packet is
+ * recycled or detached. {@link #checkLeaks(long)} can then report packets
+ * that have been held for longer than expected, along with where they were
+ * acquired. This is expensive and intended for debugging only.</p>
+ * @author tim
+ * @param <T> the packet type
+ */
+@Slf4j
+@ToString(of = { "capacity", "created", "reused", "dropped", "detached" })
+public class PacketPool<T extends Packet> {
+	
+	private static volatile boolean leakDetection = false;
+	
+	@Getter private final PacketSupplier<T> supplier;
+	@Getter private final int capacity;
+	
+	private final BlockingQueue<T> packets;
+	private final Map<Packet, Lease> leases;
+	
+	private final AtomicLong created;
+	private final AtomicLong reused;
+	private final AtomicLong dropped;
+	private final AtomicLong detached;
+	
+	/**
+	 * Creates a new packet pool.
+	 * @param supplier the supplier used to create new packets
+	 * @param capacity the maximum number of idle packets to retain
+	 */
+	public PacketPool(PacketSupplier<T> supplier, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(
+					"Pool capacity must be positive");
+		}
+		
+		this.supplier = supplier;
+		this.capacity = capacity;
+		
+		packets = new ArrayBlockingQueue<>(capacity);
+		leases = Collections.synchronizedMap(new IdentityHashMap<Packet, Lease>());
+		
+		created = new AtomicLong();
+		reused = new AtomicLong();
+		dropped = new AtomicLong();
+		detached = new AtomicLong();
+	}
+	
+	/**
+	 * Enables or disables leak detection for all packet pools. Only packets
+	 * acquired while leak detection is enabled are tracked.
+	 * @param enabled true to record acquisition sites
+	 */
+	public static void setLeakDetection(boolean enabled) {
+		leakDetection = enabled;
+	}
+	
+	public static boolean isLeakDetection() {
+		return leakDetection;
+	}
+	
+	/**
+	 * Takes an idle packet from the pool, or creates a new one if the pool is
+	 * empty. The returned packet holds a single reference, which the caller
+	 * is responsible for releasing.
+	 * @return a pooled packet
+	 */
+	public T acquire() {
+		T ret = packets.poll();
+		if (ret == null) {
+			ret = supplier.create();
+			created.incrementAndGet();
+		} else {
+			reused.incrementAndGet();
+		}
+		
+		ret.attach(this);
+		
+		if (leakDetection) {
+			leases.put(ret, new Lease());
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Returns a packet to the pool once its last reference is released.
+	 * @param packet the packet to recycle
+	 */
+	@SuppressWarnings("unchecked")
+	void recycle(Packet packet) {
+		if (!leases.isEmpty()) {
+			leases.remove(packet);
+		}
+		
+		if (!packets.offer((T) packet)) {
+			dropped.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Notes that a packet has been permanently removed from the pool.
+	 * @param packet the detached packet
+	 */
+	void detached(Packet packet) {
+		if (!leases.isEmpty()) {
+			leases.remove(packet);
+		}
+		
+		detached.incrementAndGet();
+	}
+	
+	/**
+	 * Logs a warning for each tracked packet that has been held for longer
+	 * than the given age, including the stack trace of its acquisition. Only
+	 * packets acquired with leak detection enabled are considered.
+	 * @param maxAgeMillis the maximum expected lease duration, in ms
+	 * @return the number of packets reported
+	 */
+	public int checkLeaks(long maxAgeMillis) {
+		long now = System.currentTimeMillis();
+		
+		List<Map.Entry<Packet, Lease>> entries;
+		synchronized (leases) {
+			entries = new ArrayList<>(leases.entrySet());
+		}
+		
+		int count = 0;
+		for (Map.Entry<Packet, Lease> e : entries) {
+			long age = now - e.getValue().time;
+			if (age > maxAgeMillis) {
+				log.warn("Pooled packet {} held for {} ms", e.getKey(), age,
+						e.getValue());
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Returns the number of packets currently tracked by leak detection, i.e.
+	 * acquired but not yet recycled or detached.
+	 * @return the number of tracked outstanding packets
+	 */
+	public int getOutstanding() {
+		return leases.size();
+	}
+	
+	/**
+	 * @return the number of packets created because the pool was empty
+	 */
+	public long getCreated() {
+		return created.get();
+	}
+	
+	/**
+	 * @return the number of packets handed out from the pool
+	 */
+	public long getReused() {
+		return reused.get();
+	}
+	
+	/**
+	 * @return the number of released packets discarded as the pool was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	/**
+	 * @return the number of packets permanently detached from the pool
+	 */
+	public long getDetached() {
+		return detached.get();
+	}
+	
+	/**
+	 * Returns the number of idle packets currently held by the pool.
+	 * @return the number of available packets
+	 */
+	public int getAvailable() {
+		return packets.size();
+	}
+	
+	/**
+	 * Records where a pooled packet was acquired.
+	 */
+	private static class Lease extends Throwable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final long time;
+		
+		public Lease() {
+			super("Pooled packet acquired here");
+			
+			time = System.currentTimeMillis();
+		}
+		
+	}
+	
+}
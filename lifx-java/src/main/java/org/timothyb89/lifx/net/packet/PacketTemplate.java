@@ -0,0 +1,109 @@
+package org.timothyb89.lifx.net.packet;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import lombok.ToString;
+import org.timothyb89.lifx.net.field.MACAddress;
+
+/**
+ * A packet encoded once and reused for any number of sends. Many packets are
+ * sent repeatedly with only their destination changing (status refreshes,
+ * discovery broadcasts, a power change fanned out to every bulb); a template
+ * copies the pre-encoded bytes and patches only the bulb address and site
+ * fields, rather than encoding every field from scratch.
+ * 
+ * <p>The template takes a snapshot of the packet at construction time, so
+ * later changes to the packet are not reflected. The packet itself remains
+ * available via {@link #getPacket()} (e.g. for response tracking) and should
+ * not be modified.</p>
+ * @author tim
+ */
+@ToString(of = { "packet" })
+public class PacketTemplate {
+	
+	@Getter private final Packet packet;
+	
+	private final ByteBuffer encoded;
+	
+	/**
+	 * Creates a new template by encoding the given packet.
+	 * @param packet the packet to encode
+	 */
+	public PacketTemplate(Packet packet) {
+		this.packet = packet;
+		
+		encoded = packet.bytes().asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Returns the total encoded length of the packet.
+	 * @return the packet length, in bytes
+	 */
+	public int length() {
+		return encoded.capacity();
+	}
+	
+	/**
+	 * Returns the packet type of the template packet.
+	 * @return the packet type
+	 */
+	public int packetType() {
+		return packet.packetType();
+	}
+	
+	/**
+	 * Returns a read-only view of the encoded packet, unmodified, at position
+	 * zero. The returned buffer shares its contents with this template and
+	 * may be sent as-is (e.g. for fixed broadcasts).
+	 * @return a read-only buffer containing the encoded packet
+	 */
+	public ByteBuffer bytes() {
+		return encoded.duplicate();
+	}
+	
+	/**
+	 * Returns a new buffer containing a copy of the encoded packet with the
+	 * given addresses patched in, at position zero.
+	 * @see #encodeInto(ByteBuffer, MACAddress, MACAddress)
+	 * @param bulbAddress the bulb address to set, or null to keep the template
+	 *     value
+	 * @param site the site to set, or null to keep the template value
+	 * @return a new buffer containing the patched packet
+	 */
+	public ByteBuffer bytes(MACAddress bulbAddress, MACAddress site) {
+		ByteBuffer ret = ByteBuffer.allocate(length());
+		encodeInto(ret, bulbAddress, site);
+		ret.rewind();
+		
+		return ret;
+	}
+	
+	/**
+	 * Copies the encoded packet into the given buffer at its current position
+	 * and patches in the given bulb address and site. On return the
+	 * buffer's position will have been advanced by {@link #length()} bytes.
+	 * @param dst the buffer to write into
+	 * @param bulbAddress the bulb address to set, or null to keep the template
+	 *     value
+	 * @param site the site to set, or null to keep the template value
+	 * @return the given buffer, for chaining
+	 * @throws BufferOverflowException if {@code dst} is too small
+	 */
+	public ByteBuffer encodeInto(
+			ByteBuffer dst, MACAddress bulbAddress, MACAddress site) {
+		int start = dst.position();
+		dst.put(encoded.duplicate());
+		
+		if (bulbAddress != null) {
+			bulbAddress.write(dst, start + Packet.OFFSET_BULB_ADDRESS);
+		}
+		
+		if (site != null) {
+			site.write(dst, start + Packet.OFFSET_SITE);
+		}
+		
+		return dst;
+	}
+	
+}
@@ -0,0 +1,94 @@
+package org.timothyb89.lifx.net.packet.handler;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ * A generic handler that creates "standard" packet instances using a
+ * {@link PacketSupplier}.
+ * 
+ * <p>Packet types must require no additional logic (other than parsing).
+ * Handlers created from a packet class fall back to a reflective supplier,
+ * which requires an empty constructor; where possible, a supplier invoking the
+ * constructor directly should be given instead.</p>
+ * @author timothyb89
+ * @param <T> the packet subtype this handler constructs
+ */
+public class GenericHandler<T extends Packet> implements PacketHandler<T> {
+	
+	@Getter private final PacketSupplier<T> supplier;
+	
+	@Getter private boolean typeFound;
+	@Getter private int type;
+	
+	/**
+	 * Creates a handler for the given packet type using the given supplier.
+	 * @param type the packet type
+	 * @param supplier the supplier used to create packet instances
+	 */
+	public GenericHandler(int type, PacketSupplier<T> supplier) {
+		this.supplier = supplier;
+		this.type = type;
+		this.typeFound = true;
+	}
+	
+	/**
+	 * Creates a handler for the given packet class. The constructor and the
+	 * packet's static {@code TYPE} field, if any, are looked up reflectively
+	 * once, but each packet is still created reflectively.
+	 * @param clazz the packet class
+	 */
+	public GenericHandler(Class<T> clazz) {
+		supplier = new ReflectiveSupplier<>(clazz);
+		
+		try {
+			Field typeField = clazz.getField("TYPE");
+			type = (int) typeField.get(null);
+			typeFound = true;
+		} catch (NoSuchFieldException | IllegalAccessException ex) {
+			// silently ignore
+			typeFound = false;
+		}
+	}
+	
+	@Override
+	public T handle(ByteBuffer buf) {
+		T ret = supplier.create();
+		ret.parse(buf);
+		return ret;
+	}
+	
+	/**
+	 * A supplier that creates packets via their no-argument constructor.
+	 * @param <T> the packet type
+	 */
+	private static class ReflectiveSupplier<T extends Packet>
+			implements PacketSupplier<T> {
+		
+		private final Constructor<T> constructor;
+		
+		public ReflectiveSupplier(Class<T> clazz) {
+			try {
+				constructor = clazz.getConstructor();
+			} catch (NoSuchMethodException ex) {
+				throw new IllegalArgumentException(
+						"Packet class cannot be handled by GenericHandler", ex);
+			}
+		}
+		
+		@Override
+		public T create() {
+			try {
+				return constructor.newInstance();
+			} catch (ReflectiveOperationException ex) {
+				throw new IllegalArgumentException(
+						"Unable to instantiate empty packet", ex);
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,28 @@
+package org.timothyb89.lifx.net.packet.handler;
+
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ * Creates new, empty packet instances for a {@link GenericHandler}. Packet
+ * types should generally be registered with a supplier that invokes their
+ * constructor directly, e.g.:
+ * 
+ * <pre>
+ * factory.register(new PacketSupplier&lt;PowerStateResponse&gt;() {
+ *     public PowerStateResponse create() {
+ *         return new PowerStateResponse();
+ *     }
+ * });
+ * </pre>
+ * @author tim
+ * @param <T> the packet type created by this supplier
+ */
+public interface PacketSupplier<T extends Packet> {
+	
+	/**
+	 * Creates a new, unparsed packet instance.
+	 * @return a new packet
+	 */
+	public abstract T create();
+	
+}
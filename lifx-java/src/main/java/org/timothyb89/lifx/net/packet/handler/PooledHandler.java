@@ -0,0 +1,38 @@
+package org.timothyb89.lifx.net.packet.handler;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.PacketPool;
+
+/**
+ * A handler that reuses packet instances from a {@link PacketPool} rather
+ * than creating a new packet for every datagram. Packets returned by this
+ * handler hold a single reference which must eventually be released; see
+ * {@link PacketPool}.
+ * @author tim
+ * @param <T> the packet subtype this handler constructs
+ */
+public class PooledHandler<T extends Packet> implements PacketHandler<T> {
+	
+	@Getter private final PacketPool<T> pool;
+
+	public PooledHandler(PacketPool<T> pool) {
+		this.pool = pool;
+	}
+	
+	@Override
+	public T handle(ByteBuffer buf) {
+		T ret = pool.acquire();
+		
+		try {
+			ret.parse(buf);
+		} catch (RuntimeException ex) {
+			ret.release();
+			throw ex;
+		}
+		
+		return ret;
+	}
+	
+}
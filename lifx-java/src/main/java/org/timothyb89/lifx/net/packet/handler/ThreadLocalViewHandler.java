@@ -0,0 +1,38 @@
+package org.timothyb89.lifx.net.packet.handler;
+
+import java.nio.ByteBuffer;
+import org.timothyb89.lifx.net.packet.view.PacketView;
+
+/**
+ * A {@link ViewHandler} that keeps a single view instance per thread, so
+ * repeated calls from the same thread reuse the same view.
+ * @author tim
+ * @param <V> the view type
+ */
+public abstract class ThreadLocalViewHandler<V extends PacketView>
+		implements ViewHandler<V> {
+	
+	private final ThreadLocal<V> views = new ThreadLocal<V>() {
+		@Override
+		protected V initialValue() {
+			return create();
+		}
+	};
+	
+	/**
+	 * Creates a new, unwrapped view instance. Called at most once per thread.
+	 * @return a new view
+	 */
+	protected abstract V create();
+
+	@Override
+	public V wrap(ByteBuffer buf) {
+		V view = views.get();
+		if (!view.wrap(buf)) {
+			return null;
+		}
+		
+		return view;
+	}
+	
+}
@@ -0,0 +1,24 @@
+package org.timothyb89.lifx.net.packet.handler;
+
+import java.nio.ByteBuffer;
+import org.timothyb89.lifx.net.packet.view.PacketView;
+
+/**
+ * A handler responsible for pointing a reusable {@link PacketView} at an
+ * encoded packet, as an alternative to {@link PacketHandler} for consumers
+ * that don't need a fully materialized packet.
+ * @author tim
+ * @param <V> the view type
+ */
+public interface ViewHandler<V extends PacketView> {
+	
+	/**
+	 * Wraps the packet between the buffer's current position and its limit.
+	 * The returned view may be reused on subsequent calls, and is only valid
+	 * until then.
+	 * @param buf the buffer containing the encoded packet
+	 * @return a view over the packet, or null if the packet is too short
+	 */
+	public abstract V wrap(ByteBuffer buf);
+	
+}
@@ -27,8 +27,8 @@ public class BulbLabelRequest extends Packet {
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(0);
+	protected void encodePacket(ByteBuffer dst) {
+		// do nothing
 	}
 
 	@Override
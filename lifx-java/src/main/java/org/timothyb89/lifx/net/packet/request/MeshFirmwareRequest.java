@@ -28,8 +28,8 @@ public class MeshFirmwareRequest extends Packet {
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(0);
+	protected void encodePacket(ByteBuffer dst) {
+		// do nothing
 	}
 
 	@Override
@@ -36,8 +36,8 @@ public class PANGatewayRequest extends Packet {
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(0);
+	protected void encodePacket(ByteBuffer dst) {
+		// empty
 	}
 
 	@Override
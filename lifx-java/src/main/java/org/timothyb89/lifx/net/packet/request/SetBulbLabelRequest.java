@@ -3,6 +3,9 @@ package org.timothyb89.lifx.net.packet.request;
 import java.nio.ByteBuffer;
 import lombok.Getter;
 import lombok.Setter;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
 import org.timothyb89.lifx.net.field.Field;
 import org.timothyb89.lifx.net.field.StringField;
 import org.timothyb89.lifx.net.packet.Packet;
@@ -11,13 +14,16 @@ import org.timothyb89.lifx.net.packet.Packet;
  *
  * @author tim
  */
+@PacketCodec
 public class SetBulbLabelRequest extends Packet {
 
 	public static final int TYPE = 0x18;
 	
-	public static final Field<String> FIELD_LABEL = new StringField(32).utf8();
+	/** @deprecated use {@link SetBulbLabelRequestCodec#readLabel} */
+	@Deprecated public static final Field<String> FIELD_LABEL = new StringField(32).utf8();
 	
-	@Getter @Setter private String label;
+	@WireField(value = WireType.STRING, length = 32)
+	@Getter @Setter String label;
 
 	public SetBulbLabelRequest(String label) {
 		this.label = label;
@@ -30,17 +36,17 @@ public class SetBulbLabelRequest extends Packet {
 
 	@Override
 	protected int packetLength() {
-		return 32;
+		return SetBulbLabelRequestCodec.LENGTH;
 	}
 
 	@Override
 	protected void parsePacket(ByteBuffer bytes) {
-		label = FIELD_LABEL.value(bytes);
+		SetBulbLabelRequestCodec.decode(this, bytes);
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return FIELD_LABEL.bytes(label);
+	protected void encodePacket(ByteBuffer dst) {
+		SetBulbLabelRequestCodec.encode(this, dst);
 	}
 
 	@Override
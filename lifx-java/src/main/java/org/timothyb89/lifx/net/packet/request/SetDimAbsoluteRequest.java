@@ -0,0 +1,68 @@
+package org.timothyb89.lifx.net.packet.request;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import lombok.Setter;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.UInt16Field;
+import org.timothyb89.lifx.net.field.UInt32Field;
+import org.timothyb89.lifx.net.packet.Coalescable;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ *
+ * @author timothyb89
+ */
+@PacketCodec
+public class SetDimAbsoluteRequest extends Packet implements Coalescable {
+
+	public static final int TYPE = 0x68;
+	
+	/** @deprecated use {@link SetDimAbsoluteRequestCodec#readDim} */
+	@Deprecated public static final Field<Integer> FIELD_DIM      = new UInt16Field().little();
+	/** @deprecated use {@link SetDimAbsoluteRequestCodec#readDuration} */
+	@Deprecated public static final Field<Long>    FIELD_DURATION = new UInt32Field().little();
+	
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter @Setter int dim;
+	@WireField(value = WireType.UINT32, little = true)
+	@Getter @Setter long duration;
+
+	public SetDimAbsoluteRequest() {
+		
+	}
+
+	public SetDimAbsoluteRequest(int dim, long duration) {
+		this.dim = dim;
+		this.duration = duration;
+	}
+	
+	@Override
+	public int packetType() {
+		return TYPE;
+	}
+
+	@Override
+	protected int packetLength() {
+		return SetDimAbsoluteRequestCodec.LENGTH;
+	}
+
+	@Override
+	protected void parsePacket(ByteBuffer bytes) {
+		SetDimAbsoluteRequestCodec.decode(this, bytes);
+	}
+
+	@Override
+	protected void encodePacket(ByteBuffer dst) {
+		SetDimAbsoluteRequestCodec.encode(this, dst);
+	}
+
+	@Override
+	public int[] expectedResponses() {
+		return new int[] {};
+	}
+	
+}
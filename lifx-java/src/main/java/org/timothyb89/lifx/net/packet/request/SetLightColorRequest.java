@@ -0,0 +1,125 @@
+package org.timothyb89.lifx.net.packet.request;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import lombok.Setter;
+import org.timothyb89.lifx.bulb.LIFXColor;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
+import org.timothyb89.lifx.net.field.ByteField;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.UInt16Field;
+import org.timothyb89.lifx.net.field.UInt32Field;
+import org.timothyb89.lifx.net.packet.Coalescable;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ *
+ * @author tim
+ */
+@PacketCodec
+public class SetLightColorRequest extends Packet implements Coalescable {
+
+	public static final int TYPE = 0x66;
+	
+	/** @deprecated use {@link SetLightColorRequestCodec#readStream} */
+	@Deprecated public static final Field<ByteBuffer> FIELD_STREAM     = new ByteField(1);
+	/** @deprecated use {@link SetLightColorRequestCodec#readHue} */
+	@Deprecated public static final Field<Integer>    FIELD_HUE        = new UInt16Field().little();
+	/** @deprecated use {@link SetLightColorRequestCodec#readSaturation} */
+	@Deprecated public static final Field<Integer>    FIELD_SATURATION = new UInt16Field().little();
+	/** @deprecated use {@link SetLightColorRequestCodec#readBrightness} */
+	@Deprecated public static final Field<Integer>    FIELD_BRIGHTNESS = new UInt16Field().little();
+	/** @deprecated use {@link SetLightColorRequestCodec#readKelvin} */
+	@Deprecated public static final Field<Integer>    FIELD_KELVIN     = new UInt16Field().little();
+	/** @deprecated use {@link SetLightColorRequestCodec#readFadeTime} */
+	@Deprecated public static final Field<Long>       FIELD_FADE_TIME  = new UInt32Field().little();
+	
+	@WireField(WireType.UINT8)
+	int stream;
+	
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter @Setter int hue;
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter @Setter int saturation;
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter @Setter int brightness;
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter @Setter int kelvin;
+	@WireField(value = WireType.UINT32, little = true)
+	@Getter @Setter long fadeTime;
+
+	public SetLightColorRequest() {
+		protocol = 0x1400;
+	}
+
+	public SetLightColorRequest(int hue, int saturation, int brightness, int kelvin, long fadeTime) {
+		this();
+		
+		this.hue = hue;
+		this.saturation = saturation;
+		this.brightness = brightness;
+		this.kelvin = kelvin;
+		this.fadeTime = fadeTime;
+		
+		protocol = 0x1400;
+	}
+	
+	public SetLightColorRequest(LIFXColor color, long fadeTime) {
+		this();
+		
+		this.fadeTime = fadeTime;
+		
+		hue = color.getHue();
+		saturation = color.getSaturation();
+		brightness = color.getValue();
+		kelvin = color.getKelvin();
+		
+		protocol = 0x1400;
+	}
+	
+	/**
+	 * Returns the stream ID of this request.
+	 * @return the stream ID, from 0 to 255
+	 */
+	public int getStreamId() {
+		return stream;
+	}
+	
+	/**
+	 * Returns the stream field as a single-byte buffer.
+	 * @return a new buffer holding the stream ID
+	 * @deprecated use {@link #getStreamId()}
+	 */
+	@Deprecated
+	public ByteBuffer getStream() {
+		return ByteBuffer.allocate(1).put(0, (byte) stream);
+	}
+	
+	@Override
+	public int packetType() {
+		return TYPE;
+	}
+
+	@Override
+	protected int packetLength() {
+		return SetLightColorRequestCodec.LENGTH;
+	}
+
+	@Override
+	protected void parsePacket(ByteBuffer bytes) {
+		SetLightColorRequestCodec.decode(this, bytes);
+	}
+
+	@Override
+	protected void encodePacket(ByteBuffer dst) {
+		SetLightColorRequestCodec.encode(this, dst);
+	}
+
+	@Override
+	public int[] expectedResponses() {
+		return new int[] {};
+	}
+	
+}
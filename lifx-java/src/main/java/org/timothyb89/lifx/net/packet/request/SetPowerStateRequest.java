@@ -4,21 +4,28 @@ import java.nio.ByteBuffer;
 import lombok.Getter;
 import lombok.Setter;
 import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
 import org.timothyb89.lifx.net.field.Field;
 import org.timothyb89.lifx.net.field.UInt16Field;
+import org.timothyb89.lifx.net.packet.Coalescable;
 import org.timothyb89.lifx.net.packet.Packet;
 
 /**
  *
  * @author tim
  */
-public class SetPowerStateRequest extends Packet {
+@PacketCodec
+public class SetPowerStateRequest extends Packet implements Coalescable {
 
 	public static final int TYPE = 0x15;
 	
-	public static final Field<Integer> FIELD_STATE = new UInt16Field();
+	/** @deprecated use {@link SetPowerStateRequestCodec#readState} */
+	@Deprecated public static final Field<Integer> FIELD_STATE = new UInt16Field();
 	
-	@Getter @Setter private PowerState state;
+	@WireField(WireType.UINT16)
+	@Getter @Setter PowerState state;
 
 	public SetPowerStateRequest() {
 		state = PowerState.OFF;
@@ -39,18 +46,17 @@ public class SetPowerStateRequest extends Packet {
 
 	@Override
 	protected int packetLength() {
-		return 2;
+		return SetPowerStateRequestCodec.LENGTH;
 	}
 
 	@Override
 	protected void parsePacket(ByteBuffer bytes) {
-		state = PowerState.fromValue(FIELD_STATE.value(bytes));
+		SetPowerStateRequestCodec.decode(this, bytes);
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(2)
-				.put(FIELD_STATE.bytes(state.getValue()));
+	protected void encodePacket(ByteBuffer dst) {
+		SetPowerStateRequestCodec.encode(this, dst);
 	}
 
 	@Override
@@ -3,6 +3,9 @@ package org.timothyb89.lifx.net.packet.request;
 import java.nio.ByteBuffer;
 import lombok.Getter;
 import lombok.Setter;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
 import org.timothyb89.lifx.net.field.Field;
 import org.timothyb89.lifx.net.field.UInt64Field;
 import org.timothyb89.lifx.net.packet.Packet;
@@ -11,13 +14,16 @@ import org.timothyb89.lifx.net.packet.Packet;
  *
  * @author tim
  */
+@PacketCodec
 public class SetTagsRequest extends Packet {
 
 	public static final int TYPE = 0x1B;
 	
-	public static final Field<Long> FIELD_TAGS = new UInt64Field();
+	/** @deprecated use {@link SetTagsRequestCodec#readTags} */
+	@Deprecated public static final Field<Long> FIELD_TAGS = new UInt64Field();
 	
-	@Getter @Setter private long tags;
+	@WireField(WireType.UINT64)
+	@Getter @Setter long tags;
 
 	public SetTagsRequest() {
 	}
@@ -33,18 +39,17 @@ public class SetTagsRequest extends Packet {
 
 	@Override
 	protected int packetLength() {
-		return 8;
+		return SetTagsRequestCodec.LENGTH;
 	}
 
 	@Override
 	protected void parsePacket(ByteBuffer bytes) {
-		tags = FIELD_TAGS.value(bytes);
+		SetTagsRequestCodec.decode(this, bytes);
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(packetLength())
-				.put(FIELD_TAGS.bytes(tags));
+	protected void encodePacket(ByteBuffer dst) {
+		SetTagsRequestCodec.encode(this, dst);
 	}
 
 	@Override
@@ -2,6 +2,9 @@ package org.timothyb89.lifx.net.packet.response;
 
 import java.nio.ByteBuffer;
 import lombok.Getter;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
 import org.timothyb89.lifx.net.field.Field;
 import org.timothyb89.lifx.net.field.StringField;
 import org.timothyb89.lifx.net.packet.Packet;
@@ -10,13 +13,16 @@ import org.timothyb89.lifx.net.packet.Packet;
  *
  * @author tim
  */
+@PacketCodec
 public class BulbLabelResponse extends Packet {
 
 	public static final int TYPE = 0x19;
 	
-	public static final Field<String> FIELD_LABEL = new StringField(32).utf8();
+	/** @deprecated use {@link BulbLabelResponseCodec#readLabel} */
+	@Deprecated public static final Field<String> FIELD_LABEL = new StringField(32).utf8();
 	
-	@Getter private String label;
+	@WireField(value = WireType.STRING, length = 32)
+	@Getter String label;
 	
 	@Override
 	public int packetType() {
@@ -25,17 +31,17 @@ public class BulbLabelResponse extends Packet {
 
 	@Override
 	protected int packetLength() {
-		return 32;
+		return BulbLabelResponseCodec.LENGTH;
 	}
 
 	@Override
 	protected void parsePacket(ByteBuffer bytes) {
-		label = FIELD_LABEL.value(bytes);
+		BulbLabelResponseCodec.decode(this, bytes);
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return FIELD_LABEL.bytes(label);
+	protected void encodePacket(ByteBuffer dst) {
+		BulbLabelResponseCodec.encode(this, dst);
 	}
 
 	@Override
@@ -0,0 +1,85 @@
+package org.timothyb89.lifx.net.packet.response;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import lombok.ToString;
+import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.StringField;
+import org.timothyb89.lifx.net.field.UInt16Field;
+import org.timothyb89.lifx.net.field.UInt64Field;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ *
+ * @author tim
+ */
+@ToString(callSuper = true)
+@PacketCodec
+public class LightStatusResponse extends Packet {
+	
+	public static final int TYPE = 0x6B;
+	
+	/** @deprecated use {@link LightStatusResponseCodec#readHue} */
+	@Deprecated public static final Field<Integer> FIELD_HUE        = new UInt16Field().little();
+	/** @deprecated use {@link LightStatusResponseCodec#readSaturation} */
+	@Deprecated public static final Field<Integer> FIELD_SATURATION = new UInt16Field().little();
+	/** @deprecated use {@link LightStatusResponseCodec#readBrightness} */
+	@Deprecated public static final Field<Integer> FIELD_BRIGHTNESS = new UInt16Field().little();
+	/** @deprecated use {@link LightStatusResponseCodec#readKelvin} */
+	@Deprecated public static final Field<Integer> FIELD_KELVIN     = new UInt16Field().little();
+	/** @deprecated use {@link LightStatusResponseCodec#readDim} */
+	@Deprecated public static final Field<Integer> FIELD_DIM        = new UInt16Field().little();
+	/** @deprecated use {@link LightStatusResponseCodec#readPower} */
+	@Deprecated public static final Field<Integer> FIELD_POWER      = new UInt16Field();
+	/** @deprecated use {@link LightStatusResponseCodec#readLabel} */
+	@Deprecated public static final Field<String>  FIELD_LABEL      = new StringField(32);
+	/** @deprecated use {@link LightStatusResponseCodec#readTags} */
+	@Deprecated public static final Field<Long>    FIELD_TAGS       = new UInt64Field();
+	
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter int hue;
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter int saturation;
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter int brightness;
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter int kelvin;
+	@WireField(value = WireType.UINT16, little = true)
+	@Getter int dim;
+	@WireField(WireType.UINT16)
+	@Getter PowerState power; // PowerState?
+	@WireField(value = WireType.STRING, length = 32)
+	@Getter String label;
+	@WireField(WireType.UINT64)
+	@Getter long tags;
+	
+	@Override
+	public int packetType() {
+		return TYPE;
+	}
+
+	@Override
+	protected int packetLength() {
+		return LightStatusResponseCodec.LENGTH;
+	}
+
+	@Override
+	protected void parsePacket(ByteBuffer bytes) {
+		LightStatusResponseCodec.decode(this, bytes);
+	}
+
+	@Override
+	protected void encodePacket(ByteBuffer dst) {
+		LightStatusResponseCodec.encode(this, dst);
+	}
+
+	@Override
+	public int[] expectedResponses() {
+		return new int[] {};
+	}
+	
+}
@@ -0,0 +1,106 @@
+package org.timothyb89.lifx.net.packet.response;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import lombok.ToString;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.StringField;
+import org.timothyb89.lifx.net.field.UInt32Field;
+import org.timothyb89.lifx.net.field.UInt8Field;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ *
+ * @author tim
+ */
+@ToString(callSuper = true)
+@PacketCodec
+public class MeshFirmwareResponse extends Packet {
+
+	public static final int TYPE = 0x0F;
+	
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readBuildSecond} */
+	@Deprecated public static final Field<Integer> FIELD_BUILD_SECOND   = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readBuildMinute} */
+	@Deprecated public static final Field<Integer> FIELD_BUILD_MINUTE   = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readBuildHour} */
+	@Deprecated public static final Field<Integer> FIELD_BUILD_HOUR     = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readBuildDay} */
+	@Deprecated public static final Field<Integer> FIELD_BUILD_DAY      = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readBuildMonth} */
+	@Deprecated public static final Field<String>  FIELD_BUILD_MONTH    = new StringField(3).little();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readBuildYear} */
+	@Deprecated public static final Field<Integer> FIELD_BUILD_YEAR     = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readInstallSecond} */
+	@Deprecated public static final Field<Integer> FIELD_INSTALL_SECOND = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readInstallMinute} */
+	@Deprecated public static final Field<Integer> FIELD_INSTALL_MINUTE = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readInstallHour} */
+	@Deprecated public static final Field<Integer> FIELD_INSTALL_HOUR   = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readInstallDay} */
+	@Deprecated public static final Field<Integer> FIELD_INSTALL_DAY    = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readInstallMonth} */
+	@Deprecated public static final Field<String>  FIELD_INSTALL_MONTH  = new StringField(3).little();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readInstallYear} */
+	@Deprecated public static final Field<Integer> FIELD_INSTALL_YEAR   = new UInt8Field();
+	/** @deprecated use {@link MeshFirmwareResponseCodec#readVersion} */
+	@Deprecated public static final Field<Long>    FIELD_VERSION        = new UInt32Field().little();
+	
+	@WireField(WireType.UINT8)
+	@Getter int buildSecond;
+	@WireField(WireType.UINT8)
+	@Getter int buildMinute;
+	@WireField(WireType.UINT8)
+	@Getter int buildHour;
+	@WireField(WireType.UINT8)
+	@Getter int buildDay;
+	@WireField(value = WireType.STRING, length = 3, little = true)
+	@Getter String buildMonth;
+	@WireField(WireType.UINT8)
+	@Getter int buildYear;
+	
+	@WireField(WireType.UINT8)
+	@Getter int installSecond;
+	@WireField(WireType.UINT8)
+	@Getter int installMinute;
+	@WireField(WireType.UINT8)
+	@Getter int installHour;
+	@WireField(WireType.UINT8)
+	@Getter int installDay;
+	@WireField(value = WireType.STRING, length = 3, little = true)
+	@Getter String installMonth;
+	@WireField(WireType.UINT8)
+	@Getter int installYear;
+	
+	@WireField(value = WireType.UINT32, little = true)
+	@Getter long version;
+	
+	@Override
+	public int packetType() {
+		return TYPE;
+	}
+
+	@Override
+	protected int packetLength() {
+		return MeshFirmwareResponseCodec.LENGTH;
+	}
+
+	@Override
+	protected void parsePacket(ByteBuffer bytes) {
+		MeshFirmwareResponseCodec.decode(this, bytes);
+	}
+
+	@Override
+	protected void encodePacket(ByteBuffer dst) {
+		MeshFirmwareResponseCodec.encode(this, dst);
+	}
+
+	@Override
+	public int[] expectedResponses() {
+		return new int[] {};
+	}
+	
+}
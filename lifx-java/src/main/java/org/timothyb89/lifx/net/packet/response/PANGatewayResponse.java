@@ -0,0 +1,62 @@
+package org.timothyb89.lifx.net.packet.response;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import lombok.ToString;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.UInt32Field;
+import org.timothyb89.lifx.net.field.UInt8Field;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ *
+ * @author tim
+ */
+@ToString(callSuper = true)
+@PacketCodec
+public class PANGatewayResponse extends Packet {
+
+	public static final int TYPE = 0x03;
+	
+	/** @deprecated use {@link PANGatewayResponseCodec#readService} */
+	@Deprecated public static final Field<Integer> FIELD_SERVICE = new UInt8Field();
+	/** @deprecated use {@link PANGatewayResponseCodec#readPort} */
+	@Deprecated public static final Field<Long>    FIELD_PORT    = new UInt32Field().little();
+	
+	@WireField(WireType.UINT8)
+	@Getter int service;
+	@WireField(value = WireType.UINT32, little = true)
+	@Getter long port;
+	
+	public PANGatewayResponse() {
+	}
+	
+	@Override
+	protected void parsePacket(ByteBuffer bytes) {
+		PANGatewayResponseCodec.decode(this, bytes);
+	}
+
+	@Override
+	public int packetType() {
+		return TYPE;
+	}
+
+	@Override
+	protected int packetLength() {
+		return PANGatewayResponseCodec.LENGTH;
+	}
+
+	@Override
+	protected void encodePacket(ByteBuffer dst) {
+		PANGatewayResponseCodec.encode(this, dst);
+	}
+
+	@Override
+	public int[] expectedResponses() {
+		return new int[] {};
+	}
+	
+}
@@ -4,6 +4,9 @@ import java.nio.ByteBuffer;
 import lombok.Getter;
 import lombok.ToString;
 import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
 import org.timothyb89.lifx.net.field.Field;
 import org.timothyb89.lifx.net.field.UInt16Field;
 import org.timothyb89.lifx.net.packet.Packet;
@@ -13,13 +16,16 @@ import org.timothyb89.lifx.net.packet.Packet;
  * @author tim
  */
 @ToString(callSuper = true)
+@PacketCodec
 public class PowerStateResponse extends Packet {
 
 	public static final int TYPE = 0x16;
 	
-	public static final Field<Integer> FIELD_STATE = new UInt16Field();
+	/** @deprecated use {@link PowerStateResponseCodec#readState} */
+	@Deprecated public static final Field<Integer> FIELD_STATE = new UInt16Field();
 	
-	@Getter private PowerState state;
+	@WireField(WireType.UINT16)
+	@Getter PowerState state;
 	
 	@Override
 	public int packetType() {
@@ -28,19 +34,17 @@ public class PowerStateResponse extends Packet {
 
 	@Override
 	protected int packetLength() {
-		return 2;
+		return PowerStateResponseCodec.LENGTH;
 	}
 
 	@Override
 	protected void parsePacket(ByteBuffer bytes) {
-		int stateValue = FIELD_STATE.value(bytes);
-		state = PowerState.fromValue(stateValue);
+		PowerStateResponseCodec.decode(this, bytes);
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(packetLength())
-				.put(FIELD_STATE.bytes(state.getValue()));
+	protected void encodePacket(ByteBuffer dst) {
+		PowerStateResponseCodec.encode(this, dst);
 	}
 
 	@Override
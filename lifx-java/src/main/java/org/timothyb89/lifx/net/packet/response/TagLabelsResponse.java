@@ -0,0 +1,57 @@
+package org.timothyb89.lifx.net.packet.response;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.StringField;
+import org.timothyb89.lifx.net.field.UInt64Field;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ *
+ * @author tim
+ */
+@PacketCodec
+public class TagLabelsResponse extends Packet {
+
+	public static final int TYPE = 0x1F;
+	
+	/** @deprecated use {@link TagLabelsResponseCodec#readTags} */
+	@Deprecated public static final Field<Long>   FIELD_TAGS  = new UInt64Field();
+	/** @deprecated use {@link TagLabelsResponseCodec#readLabel} */
+	@Deprecated public static final Field<String> FIELD_LABEL = new StringField(32).utf8();
+	
+	@WireField(WireType.UINT64)
+	@Getter long tags;
+	@WireField(value = WireType.STRING, length = 32)
+	@Getter String label;
+	
+	@Override
+	public int packetType() {
+		return TYPE;
+	}
+
+	@Override
+	protected int packetLength() {
+		return TagLabelsResponseCodec.LENGTH;
+	}
+
+	@Override
+	protected void parsePacket(ByteBuffer bytes) {
+		TagLabelsResponseCodec.decode(this, bytes);
+	}
+
+	@Override
+	protected void encodePacket(ByteBuffer dst) {
+		TagLabelsResponseCodec.encode(this, dst);
+	}
+
+	@Override
+	public int[] expectedResponses() {
+		return new int[] {};
+	}
+	
+}
@@ -2,6 +2,9 @@ package org.timothyb89.lifx.net.packet.response;
 
 import java.nio.ByteBuffer;
 import lombok.Getter;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
 import org.timothyb89.lifx.net.field.Field;
 import org.timothyb89.lifx.net.field.UInt64Field;
 import org.timothyb89.lifx.net.packet.Packet;
@@ -10,13 +13,16 @@ import org.timothyb89.lifx.net.packet.Packet;
  *
  * @author tim
  */
+@PacketCodec
 public class TagsResponse extends Packet {
 
 	public static final int TYPE = 0x1C;
 	
-	public static final Field<Long> FIELD_TAGS = new UInt64Field();
+	/** @deprecated use {@link TagsResponseCodec#readTags} */
+	@Deprecated public static final Field<Long> FIELD_TAGS = new UInt64Field();
 	
-	@Getter private long tags;
+	@WireField(WireType.UINT64)
+	@Getter long tags;
 	
 	@Override
 	public int packetType() {
@@ -25,18 +31,17 @@ public class TagsResponse extends Packet {
 
 	@Override
 	protected int packetLength() {
-		return 8;
+		return TagsResponseCodec.LENGTH;
 	}
 
 	@Override
 	protected void parsePacket(ByteBuffer bytes) {
-		tags = FIELD_TAGS.value(bytes);
+		TagsResponseCodec.decode(this, bytes);
 	}
 
 	@Override
-	protected ByteBuffer packetBytes() {
-		return ByteBuffer.allocate(packetLength())
-				.put(FIELD_TAGS.bytes(tags));
+	protected void encodePacket(ByteBuffer dst) {
+		TagsResponseCodec.encode(this, dst);
 	}
 
 	@Override
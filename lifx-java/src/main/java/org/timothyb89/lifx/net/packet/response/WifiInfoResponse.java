@@ -0,0 +1,66 @@
+package org.timothyb89.lifx.net.packet.response;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+import org.timothyb89.lifx.codegen.PacketCodec;
+import org.timothyb89.lifx.codegen.WireField;
+import org.timothyb89.lifx.codegen.WireType;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.FloatField;
+import org.timothyb89.lifx.net.field.UInt16Field;
+import org.timothyb89.lifx.net.field.UInt32Field;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ *
+ * @author tim
+ */
+@PacketCodec
+public class WifiInfoResponse extends Packet {
+
+	public static final int TYPE = 0x11;
+	
+	/** @deprecated use {@link WifiInfoResponseCodec#readSignal} */
+	@Deprecated public static final Field<Float>   FIELD_SIGNAL = new FloatField().little();
+	/** @deprecated use {@link WifiInfoResponseCodec#readRx} */
+	@Deprecated public static final Field<Long>    FIELD_RX     = new UInt32Field().little();
+	/** @deprecated use {@link WifiInfoResponseCodec#readTx} */
+	@Deprecated public static final Field<Long>    FIELD_TX     = new UInt32Field().little();
+	/** @deprecated use {@link WifiInfoResponseCodec#readMcuTemperature} */
+	@Deprecated public static final Field<Integer> FIELD_TEMP   = new UInt16Field();
+	
+	@WireField(value = WireType.FLOAT32, little = true)
+	@Getter float signal;
+	@WireField(value = WireType.UINT32, little = true)
+	@Getter long rx;
+	@WireField(value = WireType.UINT32, little = true)
+	@Getter long tx;
+	@WireField(WireType.UINT16)
+	@Getter int mcuTemperature;
+	
+	@Override
+	public int packetType() {
+		return TYPE;
+	}
+
+	@Override
+	protected int packetLength() {
+		return WifiInfoResponseCodec.LENGTH;
+	}
+
+	@Override
+	protected void parsePacket(ByteBuffer bytes) {
+		WifiInfoResponseCodec.decode(this, bytes);
+	}
+
+	@Override
+	protected void encodePacket(ByteBuffer dst) {
+		WifiInfoResponseCodec.encode(this, dst);
+	}
+
+	@Override
+	public int[] expectedResponses() {
+		return new int[] {};
+	}
+	
+}
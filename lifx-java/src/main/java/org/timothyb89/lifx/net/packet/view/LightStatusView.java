@@ -0,0 +1,60 @@
+package org.timothyb89.lifx.net.packet.view;
+
+import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.net.packet.response.LightStatusResponse;
+import org.timothyb89.lifx.net.packet.response.LightStatusResponseCodec;
+
+/**
+ * A flyweight view over an encoded {@link LightStatusResponse}.
+ * @author tim
+ */
+public class LightStatusView extends PacketView {
+
+	@Override
+	public int packetType() {
+		return LightStatusResponse.TYPE;
+	}
+
+	@Override
+	protected int payloadLength() {
+		return LightStatusResponseCodec.LENGTH;
+	}
+	
+	public int getHue() {
+		return LightStatusResponseCodec.readHue(buffer, payloadOffset());
+	}
+	
+	public int getSaturation() {
+		return LightStatusResponseCodec.readSaturation(buffer, payloadOffset());
+	}
+	
+	public int getBrightness() {
+		return LightStatusResponseCodec.readBrightness(buffer, payloadOffset());
+	}
+	
+	public int getKelvin() {
+		return LightStatusResponseCodec.readKelvin(buffer, payloadOffset());
+	}
+	
+	public int getDim() {
+		return LightStatusResponseCodec.readDim(buffer, payloadOffset());
+	}
+	
+	public PowerState getPower() {
+		return LightStatusResponseCodec.readPower(buffer, payloadOffset());
+	}
+	
+	/**
+	 * Decodes the bulb label. Note that, unlike the numeric accessors, this
+	 * allocates a new {@code String} on every call.
+	 * @return the bulb label
+	 */
+	public String getLabel() {
+		return LightStatusResponseCodec.readLabel(buffer, payloadOffset());
+	}
+	
+	public long getTags() {
+		return LightStatusResponseCodec.readTags(buffer, payloadOffset());
+	}
+	
+}
@@ -0,0 +1,169 @@
+package org.timothyb89.lifx.net.packet.view;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import lombok.Getter;
+import org.timothyb89.lifx.net.field.Codecs;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+
+/**
+ * A read-only, reusable view over an encoded packet. Unlike {@link Packet},
+ * nothing is parsed up front: each accessor decodes its field on demand using
+ * absolute reads at a fixed offset, so reading one or two fields from a
+ * datagram costs neither a full parse nor any allocation.
+ * 
+ * <p>Views are flyweights: a single instance may be pointed at any number of
+ * packets in turn via {@link #wrap(ByteBuffer, int, int)}. The view holds a
+ * reference to the wrapped buffer, so it is only valid for as long as the
+ * buffer contents are unchanged. In particular, views delivered by
+ * {@link org.timothyb89.lifx.net.BroadcastListener} are only valid for the
+ * duration of the callback; values that need to be kept must be copied
+ * out.</p>
+ * 
+ * <p>Subtypes define accessors for their payload fields, using
+ * {@link #payloadOffset()} as the base offset, and report the payload length
+ * they require via {@link #payloadLength()}.</p>
+ * @author tim
+ */
+public abstract class PacketView {
+	
+	@Getter protected ByteBuffer buffer;
+	@Getter protected int offset;
+	@Getter protected int length;
+	
+	/**
+	 * Points this view at the packet encoded in the given buffer. The
+	 * buffer's position and limit are not modified. If the given length is
+	 * too short to contain this packet type, the view is left unwrapped and
+	 * {@code false} is returned.
+	 * @param buffer the buffer containing the encoded packet
+	 * @param offset the offset of the first byte of the packet preamble
+	 * @param length the number of valid bytes following {@code offset}
+	 * @return true if the view was wrapped, false if the packet is too short
+	 */
+	public boolean wrap(ByteBuffer buffer, int offset, int length) {
+		if (length < Packet.PREAMBLE_LENGTH + payloadLength()) {
+			clear();
+			return false;
+		}
+		
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+		
+		return true;
+	}
+	
+	/**
+	 * Points this view at the packet between the buffer's current position
+	 * and its limit.
+	 * @see #wrap(ByteBuffer, int, int)
+	 * @param buffer the buffer containing the encoded packet
+	 * @return true if the view was wrapped, false if the packet is too short
+	 */
+	public boolean wrap(ByteBuffer buffer) {
+		return wrap(buffer, buffer.position(), buffer.remaining());
+	}
+	
+	/**
+	 * Releases the reference to the currently wrapped buffer, if any.
+	 */
+	public void clear() {
+		buffer = null;
+		offset = 0;
+		length = 0;
+	}
+	
+	/**
+	 * Returns the packet type this view is designed to read.
+	 * @return the packet type handled by this view
+	 */
+	public abstract int packetType();
+	
+	/**
+	 * Returns the minimum payload length (excluding the preamble) required
+	 * for this view to read all of its fields.
+	 * @return the payload length of this packet type
+	 */
+	protected abstract int payloadLength();
+	
+	/**
+	 * Returns the absolute offset of the first payload byte within the
+	 * wrapped buffer.
+	 * @return the offset of the payload
+	 */
+	protected int payloadOffset() {
+		return offset + Packet.PREAMBLE_LENGTH;
+	}
+	
+	public int getSize() {
+		return Codecs.getUInt16(buffer,
+				offset + Packet.OFFSET_SIZE, ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	public int getProtocol() {
+		return Codecs.getUInt16(buffer,
+				offset + Packet.OFFSET_PROTOCOL, ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	public long getTimestamp() {
+		return Codecs.getInt64(buffer,
+				offset + Packet.OFFSET_TIMESTAMP, ByteOrder.BIG_ENDIAN);
+	}
+	
+	public int getPacketType() {
+		return Codecs.getUInt16(buffer,
+				offset + Packet.OFFSET_PACKET_TYPE, ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	/**
+	 * Returns the 48-bit bulb address packed into the low bits of a
+	 * {@code long}, as in {@link MACAddress#getValue()}. This does not
+	 * allocate.
+	 * @return the packed bulb address
+	 */
+	public long getBulbAddressBits() {
+		return MACAddress.bits(buffer, offset + Packet.OFFSET_BULB_ADDRESS);
+	}
+	
+	/**
+	 * Returns the 48-bit site address packed into the low bits of a
+	 * {@code long}.
+	 * @see #getBulbAddressBits()
+	 * @return the packed site address
+	 */
+	public long getSiteBits() {
+		return MACAddress.bits(buffer, offset + Packet.OFFSET_SITE);
+	}
+	
+	/**
+	 * Returns the bulb address, reusing a cached {@link MACAddress} instance
+	 * where possible.
+	 * @return the bulb address
+	 */
+	public MACAddress getBulbAddress() {
+		return MACAddress.read(buffer, offset + Packet.OFFSET_BULB_ADDRESS);
+	}
+	
+	/**
+	 * Returns the site address, reusing a cached {@link MACAddress} instance
+	 * where possible.
+	 * @return the site address
+	 */
+	public MACAddress getSite() {
+		return MACAddress.read(buffer, offset + Packet.OFFSET_SITE);
+	}
+	
+	@Override
+	public String toString() {
+		if (buffer == null) {
+			return getClass().getSimpleName() + "(unwrapped)";
+		}
+		
+		return String.format("%s(packetType=0x%02X, size=%d, bulbAddress=%012X)",
+				getClass().getSimpleName(),
+				getPacketType(), getSize(), getBulbAddressBits());
+	}
+	
+}
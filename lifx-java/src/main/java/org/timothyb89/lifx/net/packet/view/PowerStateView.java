@@ -0,0 +1,27 @@
+package org.timothyb89.lifx.net.packet.view;
+
+import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.net.packet.response.PowerStateResponse;
+import org.timothyb89.lifx.net.packet.response.PowerStateResponseCodec;
+
+/**
+ * A flyweight view over an encoded {@link PowerStateResponse}.
+ * @author tim
+ */
+public class PowerStateView extends PacketView {
+
+	@Override
+	public int packetType() {
+		return PowerStateResponse.TYPE;
+	}
+
+	@Override
+	protected int payloadLength() {
+		return PowerStateResponseCodec.LENGTH;
+	}
+	
+	public PowerState getState() {
+		return PowerStateResponseCodec.readState(buffer, payloadOffset());
+	}
+	
+}
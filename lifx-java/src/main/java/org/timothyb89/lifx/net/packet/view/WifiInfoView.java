@@ -0,0 +1,38 @@
+package org.timothyb89.lifx.net.packet.view;
+
+import org.timothyb89.lifx.net.packet.response.WifiInfoResponse;
+import org.timothyb89.lifx.net.packet.response.WifiInfoResponseCodec;
+
+/**
+ * A flyweight view over an encoded {@link WifiInfoResponse}.
+ * @author tim
+ */
+public class WifiInfoView extends PacketView {
+
+	@Override
+	public int packetType() {
+		return WifiInfoResponse.TYPE;
+	}
+
+	@Override
+	protected int payloadLength() {
+		return WifiInfoResponseCodec.LENGTH;
+	}
+	
+	public float getSignal() {
+		return WifiInfoResponseCodec.readSignal(buffer, payloadOffset());
+	}
+	
+	public long getRx() {
+		return WifiInfoResponseCodec.readRx(buffer, payloadOffset());
+	}
+	
+	public long getTx() {
+		return WifiInfoResponseCodec.readTx(buffer, payloadOffset());
+	}
+	
+	public int getMcuTemperature() {
+		return WifiInfoResponseCodec.readMcuTemperature(buffer, payloadOffset());
+	}
+	
+}
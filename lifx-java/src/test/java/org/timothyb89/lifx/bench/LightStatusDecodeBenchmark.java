@@ -0,0 +1,221 @@
+package org.timothyb89.lifx.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.response.LightStatusResponse;
+
+/**
+ * Compares the cost of decoding a {@link LightStatusResponse} using the
+ * original copy-and-reverse {@code LittleField} implementation against the
+ * current byte-order-aware fields.
+ *
+ * <p>This is not run as part of the test suite; run it directly with
+ * {@code mvn test-compile exec:java
+ * -Dexec.mainClass=org.timothyb89.lifx.bench.LightStatusDecodeBenchmark
+ * -Dexec.classpathScope=test}. Allocation figures are only reported on JVMs
+ * that support per-thread allocation accounting (e.g. HotSpot).</p>
+ * 
+ * <p>A single response instance is reused for the current implementation so
+ * that both paths construct the same two {@link MACAddress} instances per
+ * decode, leaving only the cost of the fields themselves.</p>
+ * @author tim
+ */
+public class LightStatusDecodeBenchmark {
+
+	private static final int WARMUP = 50000;
+	private static final int ITERATIONS = 500000;
+
+	private static volatile Object sink;
+
+	public static void main(String[] args) {
+		ByteBuffer datagram = createDatagram();
+
+		for (int round = 0; round < 3; round++) {
+			System.out.println("round " + (round + 1));
+			run("legacy LittleField", new Decoder() {
+				@Override
+				public Object decode(ByteBuffer buf) {
+					return LegacyDecoder.decode(buf);
+				}
+			}, datagram.duplicate());
+
+			run("byte-order-aware (big-endian buffer)", new Decoder() {
+				private final LightStatusResponse r = new LightStatusResponse();
+				
+				@Override
+				public Object decode(ByteBuffer buf) {
+					r.parse(buf);
+					return r;
+				}
+			}, datagram.duplicate());
+
+			run("byte-order-aware (little-endian buffer)", new Decoder() {
+				private final LightStatusResponse r = new LightStatusResponse();
+				
+				@Override
+				public Object decode(ByteBuffer buf) {
+					r.parse(buf);
+					return r;
+				}
+			}, datagram.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+		}
+	}
+
+	private static void run(String name, Decoder decoder, ByteBuffer buf) {
+		for (int i = 0; i < WARMUP; i++) {
+			buf.rewind();
+			sink = decoder.decode(buf);
+		}
+
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			buf.rewind();
+			sink = decoder.decode(buf);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+
+		String allocation = allocatedBefore < 0
+				? "n/a"
+				: String.format("%d B/op", allocated / ITERATIONS);
+
+		System.out.println(String.format("  %-40s %8.1f ns/op  %s",
+				name, (double) elapsed / ITERATIONS, allocation));
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+
+		return ((com.sun.management.ThreadMXBean) bean)
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static ByteBuffer createDatagram() {
+		ByteBuffer buf = ByteBuffer.allocate(88).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putShort((short) 88);
+		buf.putShort((short) 0x5400);
+		buf.putInt(0);
+		buf.put(new byte[] { (byte) 0xD0, 0x73, (byte) 0xD5, 0x00, 0x11, 0x22 });
+		buf.putShort((short) 0);
+		buf.put(new byte[] { (byte) 0xD0, 0x73, (byte) 0xD5, 0x00, 0x00, 0x01 });
+		buf.putShort((short) 0);
+		buf.putLong(0);
+		buf.putShort((short) LightStatusResponse.TYPE);
+		buf.putShort((short) 0);
+
+		buf.putShort((short) 0x1234); // hue
+		buf.putShort((short) 0xFFFF); // saturation
+		buf.putShort((short) 0x8000); // brightness
+		buf.putShort((short) 3500);   // kelvin
+		buf.putShort((short) 0);      // dim
+		buf.putShort((short) 0xFFFF); // power
+		buf.put(StandardCharsets.US_ASCII.encode("kitchen"));
+		buf.position(buf.position() + 32 - "kitchen".length());
+		buf.putLong(0);               // tags
+
+		buf.rewind();
+		return buf;
+	}
+
+	private interface Decoder {
+
+		Object decode(ByteBuffer buf);
+
+	}
+
+	/**
+	 * A faithful copy of the decoding path prior to byte-order-aware fields:
+	 * every little-endian field is copied into a new array, reversed into a
+	 * second buffer, and boxed on the way out.
+	 */
+	private static class LegacyDecoder {
+
+		private static ByteBuffer flip(ByteBuffer buf) {
+			buf.rewind();
+
+			ByteBuffer ret = ByteBuffer.allocate(buf.limit());
+			for (int i = buf.limit() - 1; i >= 0; i--) {
+				ret.put(buf.get(i));
+			}
+
+			ret.rewind();
+			return ret;
+		}
+
+		private static Integer littleUInt16(ByteBuffer bytes) {
+			byte[] field = new byte[2];
+			bytes.get(field);
+
+			return flip(ByteBuffer.wrap(field)).getShort() & 0xFFFF;
+		}
+
+		private static Integer uint16(ByteBuffer bytes) {
+			return bytes.getShort() & 0xFFFF;
+		}
+
+		private static Long uint64(ByteBuffer bytes) {
+			return bytes.getLong();
+		}
+
+		private static ByteBuffer reserved(ByteBuffer bytes, int length) {
+			byte[] data = new byte[length];
+			bytes.get(data);
+
+			return ByteBuffer.wrap(data);
+		}
+
+		private static MACAddress mac(ByteBuffer bytes) {
+			byte[] data = new byte[6];
+			bytes.get(data);
+
+			return new MACAddress(ByteBuffer.wrap(data));
+		}
+
+		private static String string(ByteBuffer bytes, int length) {
+			byte[] buf = new byte[length];
+			bytes.get(buf);
+
+			String ret = StandardCharsets.US_ASCII
+					.decode(ByteBuffer.wrap(buf)).toString();
+			return ret.replace("\0", "");
+		}
+
+		public static Object[] decode(ByteBuffer bytes) {
+			bytes.rewind();
+
+			Object[] ret = new Object[18];
+			ret[0]  = littleUInt16(bytes); // size
+			ret[1]  = littleUInt16(bytes); // protocol
+			ret[2]  = reserved(bytes, 4);
+			ret[3]  = mac(bytes);          // bulb address
+			ret[4]  = reserved(bytes, 2);
+			ret[5]  = mac(bytes);          // site
+			ret[6]  = reserved(bytes, 2);
+			ret[7]  = uint64(bytes);       // timestamp
+			ret[8]  = littleUInt16(bytes); // packet type
+			ret[9]  = reserved(bytes, 2);
+
+			ret[10] = littleUInt16(bytes); // hue
+			ret[11] = littleUInt16(bytes); // saturation
+			ret[12] = littleUInt16(bytes); // brightness
+			ret[13] = littleUInt16(bytes); // kelvin
+			ret[14] = littleUInt16(bytes); // dim
+			ret[15] = PowerState.fromValue(uint16(bytes));
+			ret[16] = string(bytes, 32);   // label
+			ret[17] = uint64(bytes);       // tags
+
+			return ret;
+		}
+
+	}
+
+}
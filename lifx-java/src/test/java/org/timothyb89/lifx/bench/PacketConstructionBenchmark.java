@@ -0,0 +1,89 @@
+package org.timothyb89.lifx.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.PacketFactory;
+import org.timothyb89.lifx.net.packet.handler.GenericHandler;
+import org.timothyb89.lifx.net.packet.handler.PacketHandler;
+import org.timothyb89.lifx.net.packet.handler.PacketSupplier;
+import org.timothyb89.lifx.net.packet.response.*;
+
+/**
+ * Compares the cost of creating empty packet instances reflectively (as
+ * {@link GenericHandler} did for every received packet when registered by
+ * class) against the direct suppliers now registered with
+ * {@link PacketFactory}, for each built-in response type.
+ *
+ * <p>This is not run as part of the test suite; run it directly with
+ * {@code mvn test-compile exec:java
+ * -Dexec.mainClass=org.timothyb89.lifx.bench.PacketConstructionBenchmark
+ * -Dexec.classpathScope=test}. Only construction is measured; parsing costs
+ * the same either way.</p>
+ * @author tim
+ */
+public class PacketConstructionBenchmark {
+
+	private static final int WARMUP = 50000;
+	private static final int ITERATIONS = 1000000;
+
+	private static final List<Class<? extends Packet>> TYPES =
+			Arrays.<Class<? extends Packet>>asList(
+					PowerStateResponse.class,
+					LightStatusResponse.class,
+					BulbLabelResponse.class,
+					MeshFirmwareResponse.class,
+					TagLabelsResponse.class,
+					TagsResponse.class,
+					WifiInfoResponse.class);
+
+	private static volatile Object sink;
+
+	public static void main(String[] args) throws Exception {
+		for (int round = 0; round < 3; round++) {
+			System.out.println("round " + (round + 1));
+
+			for (Class<? extends Packet> clazz : TYPES) {
+				int type = clazz.getField("TYPE").getInt(null);
+
+				PacketSupplier<?> reflective = reflective(clazz);
+				PacketSupplier<?> direct = supplier(type);
+
+				System.out.println("  " + clazz.getSimpleName());
+				run("reflective", reflective);
+				run("supplier", direct);
+			}
+		}
+	}
+
+	private static <T extends Packet> PacketSupplier<T> reflective(
+			Class<T> clazz) {
+		return new GenericHandler<>(clazz).getSupplier();
+	}
+
+	private static PacketSupplier<?> supplier(int type) {
+		PacketHandler<?> handler = PacketFactory.handler(type);
+		if (!(handler instanceof GenericHandler)) {
+			throw new IllegalStateException(
+					"No generic handler registered for type " + type);
+		}
+
+		return ((GenericHandler<?>) handler).getSupplier();
+	}
+
+	private static void run(String name, PacketSupplier<?> supplier) {
+		for (int i = 0; i < WARMUP; i++) {
+			sink = supplier.create();
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink = supplier.create();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println(String.format("    %-12s %8.1f ns/op",
+				name, (double) elapsed / ITERATIONS));
+	}
+
+}
@@ -0,0 +1,247 @@
+package org.timothyb89.lifx.bench;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.timothyb89.lifx.gateway.PacketResponseFuture;
+import org.timothyb89.lifx.gateway.ResponseIndex;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.request.LightStatusRequest;
+import org.timothyb89.lifx.net.packet.response.LightStatusResponse;
+
+/**
+ * Compares the cost of matching a received response to its outstanding
+ * request using the original linear scan over all pending futures against
+ * {@link ResponseIndex}, as the number of outstanding requests grows.
+ *
+ * <p>Each outstanding request expects a {@link LightStatusResponse} from a
+ * distinct bulb, and every matched request is immediately replaced by a new
+ * one for the same bulb, so the number outstanding stays constant. Responses
+ * arrive round-robin across bulbs, which is roughly the worst case for the
+ * linear scan.</p>
+ *
+ * <p>This is not run as part of the test suite; run it directly with
+ * {@code mvn test-compile exec:java
+ * -Dexec.mainClass=org.timothyb89.lifx.bench.ResponseMatchBenchmark
+ * -Dexec.classpathScope=test}.</p>
+ * @author tim
+ */
+public class ResponseMatchBenchmark {
+	
+	private static final int[] OUTSTANDING = { 10, 100, 1000, 5000 };
+	
+	private static final int WARMUP = 5000;
+	private static final int ITERATIONS = 20000;
+	
+	private static volatile Object sink;
+	
+	public static void main(String[] args) {
+		for (int round = 0; round < 2; round++) {
+			System.out.println("round " + (round + 1));
+			
+			for (int n : OUTSTANDING) {
+				Packet[] packets = createResponses(n);
+				
+				System.out.println("  " + n + " outstanding");
+				run("linear scan", new LegacyMatcher(n), packets);
+				run("response index", new IndexMatcher(n), packets);
+			}
+		}
+	}
+	
+	private static Packet[] createResponses(int n) {
+		Packet[] ret = new Packet[n];
+		for (int i = 0; i < n; i++) {
+			LightStatusResponse r = new LightStatusResponse();
+			r.setBulbAddress(address(i));
+			ret[i] = r;
+		}
+		
+		return ret;
+	}
+	
+	private static MACAddress address(int i) {
+		return MACAddress.valueOf(0xD073D5000000L + i);
+	}
+	
+	private static void run(String name, Matcher matcher, Packet[] packets) {
+		for (int i = 0; i < WARMUP; i++) {
+			sink = matcher.match(packets[i % packets.length], i % packets.length);
+		}
+		
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink = matcher.match(packets[i % packets.length], i % packets.length);
+		}
+		long elapsed = System.nanoTime() - start;
+		
+		System.out.println(String.format("    %-16s %10.1f ns/op",
+				name, (double) elapsed / ITERATIONS));
+	}
+	
+	private interface Matcher {
+		
+		/**
+		 * Matches the given response, then replaces the fulfilled request.
+		 */
+		Object match(Packet response, int bulb);
+	
+	}
+	
+	private static class IndexMatcher implements Matcher {
+		
+		private final ResponseIndex index = new ResponseIndex();
+		
+		public IndexMatcher(int n) {
+			for (int i = 0; i < n; i++) {
+				request(i);
+			}
+		}
+		
+		private void request(int bulb) {
+			PacketResponseFuture f =
+					new PacketResponseFuture(new LightStatusRequest());
+			index.register(f);
+			f.expect(LightStatusResponse.TYPE, address(bulb));
+		}
+		
+		@Override
+		public Object match(Packet response, int bulb) {
+			PacketResponseFuture f = index.match(response);
+			request(bulb);
+			return f;
+		}
+	
+	}
+	
+	/**
+	 * A faithful copy of the matching path prior to {@link ResponseIndex}: a
+	 * deque of futures scanned in full for every packet, with boxed
+	 * expectation lists. Futures are built like the original
+	 * {@link PacketResponseFuture} so that creating replacement requests
+	 * costs about the same in both cases.
+	 */
+	private static class LegacyMatcher implements Matcher {
+		
+		private final Deque<LegacyFuture> responses = new ArrayDeque<>();
+		
+		public LegacyMatcher(int n) {
+			for (int i = 0; i < n; i++) {
+				request(i);
+			}
+		}
+		
+		private void request(int bulb) {
+			LegacyFuture f = new LegacyFuture(new LightStatusRequest());
+			f.expectingSourced.add(
+					new LegacyExpectation(address(bulb), LightStatusResponse.TYPE));
+			responses.offer(f);
+		}
+		
+		@Override
+		public Object match(Packet packet, int bulb) {
+			int type = packet.getPacketType();
+			
+			List<LegacyFuture> toRemove = new LinkedList<>();
+			
+			LegacyFuture recipient = null;
+			for (LegacyFuture f : responses) {
+				if (f.isFulfilled()) {
+					toRemove.add(f);
+					continue;
+				}
+				
+				if (recipient == null
+						&& f.isExpecting(type, packet.getBulbAddress())) {
+					recipient = f;
+				}
+			}
+			
+			responses.removeAll(toRemove);
+			
+			if (recipient != null) {
+				recipient.addResponse(packet);
+				
+				if (recipient.isFulfilled()) {
+					responses.remove(recipient);
+				}
+			}
+			
+			request(bulb);
+			return recipient;
+		}
+	
+	}
+	
+	private static class LegacyFuture {
+		
+		private final Packet packet;
+		private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(1);
+		private final List<Integer> expecting = new LinkedList<>();
+		private final List<LegacyExpectation> expectingSourced =
+				new LinkedList<>();
+		private final List<Packet> responses = new LinkedList<>();
+		
+		public LegacyFuture(Packet packet) {
+			this.packet = packet;
+			
+			for (int type : packet.expectedResponses()) {
+				expecting.add(type);
+			}
+		}
+		
+		private LegacyExpectation getExpectation(int type, MACAddress address) {
+			for (LegacyExpectation e : expectingSourced) {
+				if (e.type == type && e.address.equals(address)) {
+					return e;
+				}
+			}
+			
+			return null;
+		}
+		
+		public boolean isExpecting(int type, MACAddress address) {
+			return expecting.contains(type)
+					|| getExpectation(type, address) != null;
+		}
+		
+		public boolean isFulfilled() {
+			return expecting.isEmpty() && expectingSourced.isEmpty();
+		}
+		
+		public void addResponse(Packet response) {
+			int type = response.getPacketType();
+			
+			if (expecting.contains(type)) {
+				expecting.remove((Integer) type);
+				responses.add(response);
+				return;
+			}
+			
+			LegacyExpectation ex = getExpectation(
+					type, response.getBulbAddress());
+			if (ex != null) {
+				expectingSourced.remove(ex);
+				responses.add(response);
+			}
+		}
+	
+	}
+	
+	private static class LegacyExpectation {
+		
+		private final MACAddress address;
+		private final int type;
+		
+		public LegacyExpectation(MACAddress address, int type) {
+			this.address = address;
+			this.type = type;
+		}
+	
+	}
+
+}
@@ -0,0 +1,221 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LongObjectMap}.
+ * @author tim
+ */
+public class LongObjectMapTest extends TestCase {
+
+	/**
+	 * Finds {@code n} keys, starting from {@code from}, whose home slot in a
+	 * table of the given capacity is {@code slot}.
+	 */
+	private static List<Long> keysWithHome(
+			int slot, int capacity, int n, long from) {
+		List<Long> ret = new ArrayList<>();
+		for (long key = from; ret.size() < n; key++) {
+			if ((LongObjectMap.mix(key) & (capacity - 1)) == slot) {
+				ret.add(key);
+			}
+		}
+
+		return ret;
+	}
+
+	public void testPutGetReplace() {
+		LongObjectMap<String> map = new LongObjectMap<>();
+
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(2, "b"));
+		assertEquals("a", map.put(1, "c"));
+
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(1));
+		assertEquals("b", map.get(2));
+		assertNull(map.get(3));
+	}
+
+	public void testUnusualKeys() {
+		LongObjectMap<String> map = new LongObjectMap<>();
+
+		// empty slots are marked by null values, not zero keys
+		map.put(0, "zero");
+		map.put(-1, "minus one");
+		map.put(Long.MIN_VALUE, "min");
+		map.put(Long.MAX_VALUE, "max");
+
+		assertEquals("zero", map.get(0));
+		assertEquals("minus one", map.get(-1));
+		assertEquals("min", map.get(Long.MIN_VALUE));
+		assertEquals("max", map.get(Long.MAX_VALUE));
+
+		assertEquals("zero", map.remove(0));
+		assertNull(map.get(0));
+		assertEquals(3, map.size());
+	}
+
+	public void testNullValuesRejected() {
+		LongObjectMap<String> map = new LongObjectMap<>();
+
+		try {
+			map.put(1, null);
+			fail("Expected NullPointerException");
+		} catch (NullPointerException ex) {
+			// expected
+		}
+
+		assertEquals(0, map.size());
+	}
+
+	public void testRemoveMissing() {
+		LongObjectMap<String> map = new LongObjectMap<>();
+		map.put(1, "a");
+
+		assertNull(map.remove(2));
+		assertEquals(1, map.size());
+		assertEquals("a", map.get(1));
+	}
+
+	/**
+	 * Builds a cluster of colliding keys that wraps around the end of the
+	 * table, then removes its keys in every possible order, checking after
+	 * each removal that backward shifting left every remaining key findable.
+	 */
+	public void testRemoveFromWrappedCluster() {
+		int capacity = new LongObjectMap<String>(16).capacity();
+		assertEquals(32, capacity);
+
+		// three keys homed at the last slot, probing into slots 0 and 1,
+		// then keys homed at 0 and 2 that are pushed further along
+		List<Long> keys = new ArrayList<>();
+		keys.addAll(keysWithHome(capacity - 1, capacity, 3, 0));
+		keys.addAll(keysWithHome(0, capacity, 1, 0));
+		keys.addAll(keysWithHome(2, capacity, 1, 0));
+
+		// and one homed just after the cluster, which must never move
+		keys.addAll(keysWithHome(5, capacity, 1, 0));
+
+		// always insert in the same order, so the cluster layout is fixed
+		permute(new ArrayList<>(keys), 0, keys);
+	}
+
+	private void permute(List<Long> order, int k, List<Long> insertion) {
+		if (k == order.size()) {
+			removeInOrder(order, insertion);
+			return;
+		}
+
+		for (int i = k; i < order.size(); i++) {
+			Collections.swap(order, k, i);
+			permute(order, k + 1, insertion);
+			Collections.swap(order, k, i);
+		}
+	}
+
+	private void removeInOrder(List<Long> order, List<Long> insertion) {
+		LongObjectMap<Long> map = new LongObjectMap<>(16);
+		for (Long key : insertion) {
+			map.put(key, key);
+		}
+
+		for (int i = 0; i < order.size(); i++) {
+			assertEquals(order.get(i), map.remove(order.get(i)));
+			assertNull(map.get(order.get(i)));
+			assertEquals(order.size() - i - 1, map.size());
+
+			for (int j = i + 1; j < order.size(); j++) {
+				assertEquals("after removing " + order.subList(0, i + 1),
+						order.get(j), map.get(order.get(j)));
+			}
+		}
+	}
+
+	public void testResize() {
+		LongObjectMap<Integer> map = new LongObjectMap<>(2);
+		int initial = map.capacity();
+
+		for (int i = 0; i < 1000; i++) {
+			map.put(i * 0x10000L, i);
+
+			// the load factor never exceeds 1/2
+			assertTrue(map.size() * 2 <= map.capacity());
+		}
+
+		assertTrue(map.capacity() > initial);
+		assertEquals(1, Integer.bitCount(map.capacity()));
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Integer.valueOf(i), map.get(i * 0x10000L));
+		}
+
+		// removing after a resize uses the new mask
+		for (int i = 0; i < 1000; i += 2) {
+			assertEquals(Integer.valueOf(i), map.remove(i * 0x10000L));
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			if (i % 2 == 0) {
+				assertNull(map.get(i * 0x10000L));
+			} else {
+				assertEquals(Integer.valueOf(i), map.get(i * 0x10000L));
+			}
+		}
+
+		assertEquals(500, map.size());
+	}
+
+	public void testClear() {
+		LongObjectMap<String> map = new LongObjectMap<>();
+		map.put(1, "a");
+		map.put(2, "b");
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertNull(map.get(1));
+
+		map.put(1, "c");
+		assertEquals("c", map.get(1));
+	}
+
+	/**
+	 * Runs random operations over a small key space, so collisions and
+	 * removals within clusters are frequent, and checks the map against a
+	 * {@link HashMap}.
+	 */
+	public void testAgainstHashMap() {
+		Random random = new Random(42);
+		LongObjectMap<Long> map = new LongObjectMap<>(4);
+		Map<Long, Long> expected = new HashMap<>();
+
+		for (int i = 0; i < 100000; i++) {
+			long key = random.nextInt(200);
+
+			switch (random.nextInt(3)) {
+				case 0:
+					assertEquals(expected.put(key, (long) i),
+							map.put(key, (long) i));
+					break;
+				case 1:
+					assertEquals(expected.remove(key), map.remove(key));
+					break;
+				default:
+					assertEquals(expected.get(key), map.get(key));
+			}
+
+			assertEquals(expected.size(), map.size());
+		}
+
+		for (long key = 0; key < 200; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+	}
+
+}
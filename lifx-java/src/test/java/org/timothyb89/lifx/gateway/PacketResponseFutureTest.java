@@ -0,0 +1,125 @@
+package org.timothyb89.lifx.gateway;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.net.packet.request.SetPowerStateRequest;
+
+/**
+ * Tests for how a {@link PacketResponseFuture} reports failure and
+ * cancellation.
+ * @author tim
+ */
+public class PacketResponseFutureTest extends TestCase {
+
+	private PacketResponseFuture future;
+	private RecordingCallback callback;
+
+	@Override
+	protected void setUp() {
+		// expects no responses, so it is done only once sent or dropped
+		future = new PacketResponseFuture(
+				new SetPowerStateRequest(PowerState.ON));
+		future.hold();
+
+		callback = new RecordingCallback();
+		future.addCallback(callback);
+	}
+
+	public void testSupersededFutureIsCancelled() throws Exception {
+		assertFalse(future.isDone());
+
+		CancellationException cause =
+				new CancellationException("expected by test");
+		assertTrue(future.supersede(cause));
+
+		assertTrue(future.isCancelled());
+		assertTrue(future.isDone());
+		assertTrue(future.isFailed());
+		assertFalse(future.isExpired());
+
+		// get() throws the cancellation itself, as Future requires
+		try {
+			future.get();
+			fail("Expected CancellationException");
+		} catch (CancellationException ex) {
+			assertSame(cause, ex);
+		}
+
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			fail("Expected CancellationException");
+		} catch (CancellationException ex) {
+			assertSame(cause, ex);
+		}
+
+		assertSame(cause, callback.failure);
+		assertEquals(1, callback.calls);
+	}
+
+	public void testCancellationIsFinal() {
+		assertTrue(future.supersede(new CancellationException()));
+
+		assertFalse(future.supersede(new CancellationException()));
+		assertFalse(future.fail(new IOException("expected by test")));
+		future.sent();
+
+		assertTrue(future.isCancelled());
+		assertEquals(1, callback.calls);
+	}
+
+	public void testFailedFutureIsNotCancelled() throws Exception {
+		IOException cause = new IOException("expected by test");
+		assertTrue(future.fail(cause));
+
+		assertFalse(future.isCancelled());
+		assertTrue(future.isFailed());
+		assertFalse(future.supersede(new CancellationException()));
+
+		try {
+			future.get();
+			fail("Expected ExecutionException");
+		} catch (ExecutionException ex) {
+			assertSame(cause, ex.getCause());
+		}
+
+		assertSame(cause, callback.failure);
+	}
+
+	public void testSentFutureIsNotCancelled() throws Exception {
+		future.sent();
+
+		assertTrue(future.isDone());
+		assertFalse(future.isCancelled());
+		assertFalse(future.supersede(new CancellationException()));
+		assertNotNull(future.get());
+		assertNotNull(callback.response);
+	}
+
+	/**
+	 * A callback that records how it was called.
+	 */
+	private static class RecordingCallback implements ResponseCallback {
+
+		private int calls;
+		private PacketResponse response;
+		private Throwable failure;
+
+		@Override
+		public void onResponse(PacketResponse response) {
+			this.response = response;
+			calls++;
+		}
+
+		@Override
+		public void onFailure(Throwable cause) {
+			failure = cause;
+			calls++;
+		}
+
+	}
+
+}
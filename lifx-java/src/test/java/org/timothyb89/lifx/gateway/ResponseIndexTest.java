@@ -0,0 +1,195 @@
+package org.timothyb89.lifx.gateway;
+
+import junit.framework.TestCase;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.request.LightStatusRequest;
+import org.timothyb89.lifx.net.packet.response.LightStatusResponse;
+import org.timothyb89.lifx.net.packet.response.PowerStateResponse;
+
+/**
+ * Tests for {@link ResponseIndex}.
+ * @author tim
+ */
+public class ResponseIndexTest extends TestCase {
+
+	private static final MACAddress BULB_A = MACAddress.valueOf(0xD073D5000001L);
+	private static final MACAddress BULB_B = MACAddress.valueOf(0xD073D5000002L);
+
+	// every bit of the address set, so it fills the low 48 bits of the key
+	private static final MACAddress BULB_MAX = MACAddress.valueOf(0xFFFFFFFFFFFFL);
+
+	private ResponseIndex index;
+
+	@Override
+	protected void setUp() {
+		index = new ResponseIndex();
+	}
+
+	private PacketResponseFuture register() {
+		PacketResponseFuture ret =
+				new PacketResponseFuture(new LightStatusRequest());
+		index.register(ret);
+
+		return ret;
+	}
+
+	private static Packet status(MACAddress bulb) {
+		LightStatusResponse ret = new LightStatusResponse();
+		ret.setBulbAddress(bulb);
+
+		return ret;
+	}
+
+	private static Packet power(MACAddress bulb) {
+		PowerStateResponse ret = new PowerStateResponse();
+		ret.setBulbAddress(bulb);
+
+		return ret;
+	}
+
+	public void testMatchByTypeOnly() {
+		PacketResponseFuture f = register().expect(LightStatusResponse.TYPE);
+		assertEquals(1, index.size());
+
+		// any bulb will do, but not any type
+		assertNull(index.match(power(BULB_A)));
+		assertSame(f, index.match(status(BULB_B)));
+
+		assertTrue(f.isDone());
+		assertEquals(0, index.size());
+		assertNull(index.match(status(BULB_B)));
+	}
+
+	public void testMatchByTypeAndAddress() {
+		PacketResponseFuture f =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+
+		assertNull(index.match(status(BULB_B)));
+		assertNull(index.match(power(BULB_A)));
+		assertFalse(f.isDone());
+
+		assertSame(f, index.match(status(BULB_A)));
+		assertTrue(f.isDone());
+		assertEquals(0, index.size());
+	}
+
+	public void testExpectationsGivenBeforeRegistering() {
+		PacketResponseFuture f =
+				new PacketResponseFuture(new LightStatusRequest());
+		f.expect(LightStatusResponse.TYPE, BULB_A);
+		f.expect(PowerStateResponse.TYPE);
+
+		index.register(f);
+		assertEquals(2, index.size());
+
+		assertSame(f, index.match(power(BULB_B)));
+		assertSame(f, index.match(status(BULB_A)));
+		assertTrue(f.isDone());
+		assertEquals(0, index.size());
+	}
+
+	public void testKeysDistinguishTypeAndAddress() {
+		PacketResponseFuture status =
+				register().expect(LightStatusResponse.TYPE, BULB_MAX);
+		PacketResponseFuture power =
+				register().expect(PowerStateResponse.TYPE, BULB_MAX);
+		PacketResponseFuture other =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+
+		assertSame(power, index.match(power(BULB_MAX)));
+		assertSame(other, index.match(status(BULB_A)));
+		assertSame(status, index.match(status(BULB_MAX)));
+		assertEquals(0, index.size());
+	}
+
+	public void testFutureWaitsForAllResponses() {
+		PacketResponseFuture f = register()
+				.expect(LightStatusResponse.TYPE, BULB_A)
+				.expect(LightStatusResponse.TYPE, BULB_B);
+		assertEquals(2, index.size());
+
+		assertSame(f, index.match(status(BULB_A)));
+		assertFalse(f.isDone());
+		assertEquals(1, index.size());
+
+		// already received
+		assertNull(index.match(status(BULB_A)));
+
+		assertSame(f, index.match(status(BULB_B)));
+		assertTrue(f.isDone());
+		assertEquals(0, index.size());
+	}
+
+	public void testOldestFutureMatchesFirst() {
+		PacketResponseFuture any = register().expect(LightStatusResponse.TYPE);
+		PacketResponseFuture sourced =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+
+		assertSame(any, index.match(status(BULB_A)));
+		assertSame(sourced, index.match(status(BULB_A)));
+
+		// and the other way around
+		sourced = register().expect(LightStatusResponse.TYPE, BULB_A);
+		any = register().expect(LightStatusResponse.TYPE);
+
+		assertSame(sourced, index.match(status(BULB_A)));
+		assertSame(any, index.match(status(BULB_A)));
+	}
+
+	public void testSameExpectationQueuesInOrder() {
+		PacketResponseFuture first =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+		PacketResponseFuture second =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+
+		assertSame(first, index.match(status(BULB_A)));
+		assertSame(second, index.match(status(BULB_A)));
+		assertNull(index.match(status(BULB_A)));
+	}
+
+	public void testRemove() {
+		PacketResponseFuture f = register()
+				.expect(LightStatusResponse.TYPE)
+				.expect(PowerStateResponse.TYPE, BULB_A);
+		PacketResponseFuture g = register().expect(LightStatusResponse.TYPE);
+
+		index.remove(f);
+		assertEquals(1, index.size());
+
+		assertNull(index.match(power(BULB_A)));
+		assertSame(g, index.match(status(BULB_A)));
+		assertFalse(f.isDone());
+	}
+
+	public void testExpire() {
+		PacketResponseFuture f =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+
+		assertTrue(index.expire(f));
+		assertTrue(f.isExpired());
+		assertEquals(0, index.size());
+		assertNull(index.match(status(BULB_A)));
+
+		// a fulfilled future can't expire
+		PacketResponseFuture g =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+		assertSame(g, index.match(status(BULB_A)));
+		assertFalse(index.expire(g));
+		assertFalse(g.isExpired());
+	}
+
+	public void testCompletedFuturesAreSkipped() {
+		PacketResponseFuture f =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+		PacketResponseFuture g =
+				register().expect(LightStatusResponse.TYPE, BULB_A);
+
+		// completed without going through the index
+		f.fail(new IllegalStateException("expected by test"));
+
+		assertSame(g, index.match(status(BULB_A)));
+		assertEquals(0, index.size());
+	}
+
+}
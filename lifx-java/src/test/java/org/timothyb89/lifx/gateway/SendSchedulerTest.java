@@ -0,0 +1,397 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.timothyb89.lifx.net.TimerWheel;
+import org.timothyb89.lifx.net.field.MACAddress;
+
+/**
+ * Tests for {@link SendScheduler}. The scheduler's clock is set explicitly
+ * and its timer only records tasks, which the tests run by hand.
+ * @author tim
+ */
+public class SendSchedulerTest extends TestCase {
+
+	private static final MACAddress BULB_A = MACAddress.valueOf(0xD073D5000001L);
+	private static final MACAddress BULB_B = MACAddress.valueOf(0xD073D5000002L);
+	private static final MACAddress BULB_C = MACAddress.valueOf(0xD073D5000003L);
+
+	// coalescing keys: the packet types of SetLightColorRequest and
+	// SetPowerStateRequest, as Gateway uses for Coalescable packets
+	private static final int SET_COLOR = 0x66;
+	private static final int SET_POWER = 0x15;
+
+	private long now;
+	private ManualTimer timer;
+	private SendScheduler scheduler;
+	private List<String> sent;
+
+	@Override
+	protected void setUp() {
+		timer = new ManualTimer();
+		sent = new ArrayList<>();
+
+		scheduler = new SendScheduler(timer) {
+
+			@Override
+			long nanoTime() {
+				return now;
+			}
+
+		};
+
+		// start the clock after the gateway bucket was created, so it's full
+		now = System.nanoTime();
+
+		// one token every 50ms, up to 3 at once
+		scheduler.setBulbRate(20, 3);
+	}
+
+	private void advance(long millis) {
+		now += TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	private RecordingSend submit(MACAddress bulb, String name) {
+		RecordingSend ret = new RecordingSend(name, -1);
+		scheduler.submit(bulb, ret);
+
+		return ret;
+	}
+
+	public void testSendsWithinBurstImmediately() {
+		submit(BULB_A, "a1");
+		submit(BULB_A, "a2");
+		submit(BULB_A, "a3");
+
+		// other bulbs have their own buckets
+		submit(BULB_B, "b1");
+
+		assertEquals(Arrays.asList("a1", "a2", "a3", "b1"), sent);
+		assertEquals(0, timer.tasks.size());
+		assertEquals(0, scheduler.getDelayedCount());
+	}
+
+	public void testDelayQueuesInOrder() {
+		submit(BULB_A, "a1");
+		submit(BULB_A, "a2");
+		submit(BULB_A, "a3");
+
+		RecordingSend a4 = submit(BULB_A, "a4");
+		RecordingSend a5 = submit(BULB_A, "a5");
+
+		assertTrue(a4.deferred);
+		assertTrue(a5.deferred);
+		assertEquals(3, sent.size());
+		assertEquals(2, scheduler.getQueued());
+		assertEquals(2, scheduler.getDelayedCount());
+
+		// the lane arms a single timer for the head of its queue
+		assertEquals(1, timer.tasks.size());
+
+		// a token is available 50ms after the burst
+		advance(50);
+		timer.runAll();
+		assertEquals(Arrays.asList("a1", "a2", "a3", "a4"), sent);
+		assertEquals(1, timer.tasks.size());
+
+		advance(50);
+		timer.runAll();
+		assertEquals(Arrays.asList("a1", "a2", "a3", "a4", "a5"), sent);
+		assertEquals(0, timer.tasks.size());
+		assertEquals(0, scheduler.getQueued());
+		assertEquals(5, scheduler.getSentCount());
+	}
+
+	public void testQueuedSendsKeepOrderWhenTokensReturn() {
+		submit(BULB_A, "a1");
+		submit(BULB_A, "a2");
+		submit(BULB_A, "a3");
+		submit(BULB_A, "a4");
+
+		// a token is free again, but a4 is still waiting for the timer
+		advance(50);
+		submit(BULB_A, "a5");
+		assertEquals(Arrays.asList("a1", "a2", "a3"), sent);
+
+		timer.runAll();
+		assertEquals(Arrays.asList("a1", "a2", "a3", "a4"), sent);
+	}
+
+	public void testShedPolicy() {
+		scheduler.setPolicy(RatePolicy.SHED);
+
+		submit(BULB_A, "a1");
+		submit(BULB_A, "a2");
+		submit(BULB_A, "a3");
+		RecordingSend a4 = submit(BULB_A, "a4");
+
+		assertEquals(Arrays.asList("a1", "a2", "a3"), sent);
+		assertTrue(a4.shed instanceof RejectedExecutionException);
+		assertFalse(a4.deferred);
+		assertEquals(0, scheduler.getQueued());
+		assertEquals(1, scheduler.getShedCount());
+		assertEquals(0, timer.tasks.size());
+
+		// shedding doesn't consume tokens
+		advance(50);
+		submit(BULB_A, "a5");
+		assertEquals(Arrays.asList("a1", "a2", "a3", "a5"), sent);
+	}
+
+	public void testMaxDelayShedsByEstimate() {
+		scheduler.setBulbRate(20, 1);
+		scheduler.setMaxDelay(120);
+
+		submit(BULB_A, "a1");
+
+		// would wait 50ms, then 100ms
+		RecordingSend a2 = submit(BULB_A, "a2");
+		RecordingSend a3 = submit(BULB_A, "a3");
+
+		// would wait 150ms
+		RecordingSend a4 = submit(BULB_A, "a4");
+
+		assertNull(a2.shed);
+		assertNull(a3.shed);
+		assertTrue(a4.shed instanceof RejectedExecutionException);
+		assertEquals(2, scheduler.getQueued());
+		assertEquals(1, scheduler.getShedCount());
+
+		// once the queue drains a little, there is room again
+		advance(50);
+		timer.runAll();
+		RecordingSend a5 = submit(BULB_A, "a5");
+		assertNull(a5.shed);
+		assertEquals(2, scheduler.getQueued());
+	}
+
+	public void testGatewayRate() {
+		scheduler.setGatewayRate(20, 1);
+
+		submit(BULB_A, "a1");
+		RecordingSend b1 = submit(BULB_B, "b1");
+
+		// b1's own bucket is full, but the gateway's is not
+		assertEquals(Arrays.asList("a1"), sent);
+		assertTrue(b1.deferred);
+
+		advance(50);
+		timer.runAll();
+		assertEquals(Arrays.asList("a1", "b1"), sent);
+	}
+
+	public void testIdleLanesArePruned() {
+		submit(BULB_A, "a1");
+		submit(BULB_A, "a2");
+		submit(BULB_A, "a3");
+		submit(BULB_A, "a4");
+		submit(BULB_B, "b1");
+		assertEquals(2, scheduler.getLaneCount());
+
+		// B is idle with a full bucket long before the next sweep, while A
+		// still has a packet queued
+		advance(TimeUnit.SECONDS.toMillis(31));
+		submit(BULB_C, "c1");
+		assertEquals(2, scheduler.getLaneCount());
+
+		timer.runAll();
+		assertEquals(Arrays.asList("a1", "a2", "a3", "b1", "c1", "a4"), sent);
+
+		// a new lane for B starts with a full bucket, as before
+		submit(BULB_B, "b2");
+		submit(BULB_B, "b3");
+		submit(BULB_B, "b4");
+		assertEquals(3, scheduler.getLaneCount());
+		assertEquals(0, scheduler.getQueued());
+
+		// sweeps don't run more often than every 30s
+		advance(TimeUnit.SECONDS.toMillis(10));
+		submit(BULB_C, "c2");
+		assertEquals(3, scheduler.getLaneCount());
+
+		advance(TimeUnit.SECONDS.toMillis(21));
+		submit(BULB_C, "c3");
+		assertEquals(1, scheduler.getLaneCount());
+	}
+
+	private void drain(MACAddress bulb) {
+		submit(bulb, "x1");
+		submit(bulb, "x2");
+		submit(bulb, "x3");
+		sent.clear();
+	}
+
+	public void testCoalesceReplacesQueuedSendInPlace() {
+		drain(BULB_A);
+
+		RecordingSend color1 = new RecordingSend("color1", SET_COLOR);
+		RecordingSend power = new RecordingSend("power", SET_POWER);
+		RecordingSend color2 = new RecordingSend("color2", SET_COLOR);
+
+		scheduler.submit(BULB_A, color1);
+		scheduler.submit(BULB_A, power);
+		scheduler.submit(BULB_A, color2);
+
+		// the older color is dropped, and the newer one takes its place
+		// ahead of the power change
+		assertTrue(color1.coalesced instanceof CancellationException);
+		assertNull(power.coalesced);
+		assertNull(color2.coalesced);
+		assertTrue(color2.deferred);
+		assertEquals(2, scheduler.getQueued());
+		assertEquals(1, scheduler.getCoalescedCount());
+
+		advance(50);
+		timer.runAll();
+		advance(50);
+		timer.runAll();
+
+		assertEquals(Arrays.asList("color2", "power"), sent);
+		assertEquals(0, scheduler.getQueued());
+	}
+
+	public void testCoalesceOnlyWithinBulb() {
+		drain(BULB_A);
+		drain(BULB_B);
+
+		RecordingSend a = new RecordingSend("a", SET_COLOR);
+		RecordingSend b = new RecordingSend("b", SET_COLOR);
+
+		scheduler.submit(BULB_A, a);
+		scheduler.submit(BULB_B, b);
+
+		assertNull(a.coalesced);
+		assertNull(b.coalesced);
+		assertEquals(2, scheduler.getQueued());
+	}
+
+	public void testSendsWithoutKeyAreNotCoalesced() {
+		drain(BULB_A);
+
+		submit(BULB_A, "a1");
+		submit(BULB_A, "a2");
+
+		assertEquals(2, scheduler.getQueued());
+		assertEquals(0, scheduler.getCoalescedCount());
+	}
+
+	public void testCoalescingDisabled() {
+		scheduler.setCoalescing(false);
+		drain(BULB_A);
+
+		RecordingSend color1 = new RecordingSend("color1", SET_COLOR);
+		RecordingSend color2 = new RecordingSend("color2", SET_COLOR);
+
+		scheduler.submit(BULB_A, color1);
+		scheduler.submit(BULB_A, color2);
+
+		assertNull(color1.coalesced);
+		assertEquals(2, scheduler.getQueued());
+
+		advance(50);
+		timer.runAll();
+		advance(50);
+		timer.runAll();
+
+		assertEquals(Arrays.asList("color1", "color2"), sent);
+	}
+
+	/**
+	 * A timer that records tasks instead of running them.
+	 */
+	private static class ManualTimer extends TimerWheel {
+
+		private static final Runnable NOOP = new Runnable() {
+
+			@Override
+			public void run() {
+			}
+
+		};
+
+		private final List<Runnable> tasks;
+
+		public ManualTimer() {
+			super(DEFAULT_TICK_MILLIS, 1);
+
+			tasks = new ArrayList<>();
+		}
+
+		@Override
+		public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+			tasks.add(task);
+
+			// a real handle, which never fires during a test
+			return super.schedule(NOOP, 1, TimeUnit.DAYS);
+		}
+
+		/**
+		 * Runs the tasks scheduled so far; tasks they schedule are kept for
+		 * the next call.
+		 */
+		public void runAll() {
+			List<Runnable> run = new ArrayList<>(tasks);
+			tasks.clear();
+
+			for (Runnable task : run) {
+				task.run();
+			}
+		}
+
+	}
+
+	/**
+	 * A send that records what happened to it.
+	 */
+	private class RecordingSend extends SendScheduler.Send {
+
+		private final String name;
+		private final int coalesceKey;
+
+		private boolean deferred;
+		private Throwable shed;
+		private Throwable coalesced;
+
+		public RecordingSend(String name, int coalesceKey) {
+			this.name = name;
+			this.coalesceKey = coalesceKey;
+		}
+
+		@Override
+		protected int getCoalesceKey() {
+			return coalesceKey;
+		}
+
+		@Override
+		protected void send() {
+			sent.add(name);
+		}
+
+		@Override
+		protected void defer() {
+			deferred = true;
+		}
+
+		@Override
+		protected void shed(Throwable cause) {
+			shed = cause;
+		}
+
+		@Override
+		protected void coalesced(CancellationException cause) {
+			coalesced = cause;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.timothyb89.lifx.gateway;
+
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link TokenBucket}, driven entirely by explicit times.
+ * @author tim
+ */
+public class TokenBucketTest extends TestCase {
+
+	private static final long T0 = 1000000000L;
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	public void testBurstThenInterval() {
+		// one token every 50ms, up to 3 at once
+		TokenBucket bucket = new TokenBucket(20, 3, T0);
+		assertEquals(millis(50), bucket.getInterval());
+
+		assertEquals(0, bucket.tryTake(T0));
+		assertEquals(0, bucket.tryTake(T0));
+		assertEquals(0, bucket.tryTake(T0));
+
+		// burst used up; the next token is one interval away
+		assertEquals(millis(50), bucket.delay(T0));
+		assertEquals(millis(30), bucket.tryTake(T0 + millis(20)));
+
+		// a failed tryTake takes nothing
+		assertEquals(0, bucket.tryTake(T0 + millis(50)));
+		assertEquals(millis(50), bucket.delay(T0 + millis(50)));
+		assertEquals(0, bucket.tryTake(T0 + millis(100)));
+	}
+
+	public void testRefillCappedAtBurst() {
+		TokenBucket bucket = new TokenBucket(20, 3, T0);
+
+		// idle for far longer than it takes to refill
+		long later = T0 + TimeUnit.SECONDS.toNanos(10);
+		assertEquals(0, bucket.tryTake(later));
+		assertEquals(0, bucket.tryTake(later));
+		assertEquals(0, bucket.tryTake(later));
+		assertEquals(millis(50), bucket.tryTake(later));
+	}
+
+	public void testSteadyRate() {
+		TokenBucket bucket = new TokenBucket(20, 1, T0);
+
+		for (int i = 0; i < 100; i++) {
+			long now = T0 + i * millis(50);
+			assertEquals(0, bucket.tryTake(now));
+			assertEquals(millis(50), bucket.delay(now));
+		}
+	}
+
+	public void testIsFull() {
+		TokenBucket bucket = new TokenBucket(20, 3, T0);
+		assertTrue(bucket.isFull(T0));
+
+		bucket.take(T0);
+		assertFalse(bucket.isFull(T0));
+		assertFalse(bucket.isFull(T0 + millis(49)));
+		assertTrue(bucket.isFull(T0 + millis(50)));
+	}
+
+	public void testUnlimited() {
+		TokenBucket bucket = new TokenBucket(0, 1, T0);
+		assertTrue(bucket.isUnlimited());
+		assertEquals(0, bucket.getInterval());
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(0, bucket.tryTake(T0));
+		}
+
+		assertTrue(bucket.isFull(T0));
+
+		// an earlier time than the last take never holds it up
+		bucket.take(T0 + millis(1000));
+		assertEquals(0, bucket.delay(T0));
+	}
+
+	public void testSetRateKeepsState() {
+		TokenBucket bucket = new TokenBucket(20, 1, T0);
+		assertEquals(0, bucket.tryTake(T0));
+		assertEquals(millis(50), bucket.delay(T0));
+
+		// a larger burst makes the tokens owed available now
+		bucket.setRate(20, 2);
+		assertEquals(0, bucket.tryTake(T0));
+		assertEquals(millis(50), bucket.delay(T0));
+	}
+
+	public void testBurstMustBePositive() {
+		try {
+			new TokenBucket(20, 0, T0);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+package org.timothyb89.lifx.net;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.timothyb89.lifx.gateway.Gateway;
+import org.timothyb89.lifx.gateway.PacketResponseFuture;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.Packet;
+import org.timothyb89.lifx.net.packet.request.MeshFirmwareRequest;
+import org.timothyb89.lifx.net.packet.request.PowerStateRequest;
+import org.timothyb89.lifx.net.packet.response.LightStatusResponse;
+import org.timothyb89.lifx.net.packet.response.MeshFirmwareResponse;
+import org.timothyb89.lifx.net.packet.response.PowerStateResponse;
+import org.timothyb89.lifx.net.packet.view.LightStatusView;
+import org.timothyb89.lifx.net.packet.view.PacketView;
+import org.timothyb89.lifx.net.packet.view.PowerStateView;
+
+/**
+ * Tests for how a {@link BroadcastListener} in view mode routes packets to
+ * their gateway. A local socket plays the part of the gateway bulb.
+ * @author tim
+ */
+public class BroadcastListenerTest extends TestCase {
+
+	private static final MACAddress BULB = MACAddress.valueOf(0xD073D5000001L);
+	private static final MACAddress SITE = MACAddress.valueOf(0x4C4946585632L);
+
+	private static final int TIMEOUT = 5000;
+
+	private BroadcastListener listener;
+	private DatagramSocket socket;
+	private Gateway gateway;
+	private InetSocketAddress listenAddress;
+	private BlockingQueue<Integer> views;
+
+	@Override
+	protected void setUp() throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+
+		views = new LinkedBlockingQueue<>();
+
+		listener = new BroadcastListener();
+		listener.setInterfaceDiscovery(false);
+		listener.addBindAddress(new InetSocketAddress(loopback, 0));
+		listener.setViewMode(true);
+		listener.addViewListener(new PacketViewListener() {
+
+			@Override
+			public void viewReceived(BroadcastListener listener,
+					InetSocketAddress source, PacketView view) {
+				if (view instanceof LightStatusView) {
+					views.add(LightStatusResponse.TYPE);
+				} else if (view instanceof PowerStateView) {
+					views.add(PowerStateResponse.TYPE);
+				}
+			}
+
+		});
+		listener.startListen(true);
+
+		listenAddress = new InetSocketAddress(loopback, listener.getTransport()
+				.getEndpoints().get(0).getLocalAddress().getPort());
+
+		socket = new DatagramSocket(0, loopback);
+		socket.setSoTimeout(TIMEOUT);
+
+		InetSocketAddress gatewayAddress = new InetSocketAddress(
+				loopback, socket.getLocalPort());
+		gateway = new Gateway(listener, gatewayAddress,
+				socket.getLocalPort(), SITE);
+		listener.addRoute(gateway);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		listener.removeRoute(gateway);
+		listener.stopListen();
+		socket.close();
+	}
+
+	public void testViewsAreRoutedToGateway() throws Exception {
+		assertTrue(listener.isViewRouting());
+
+		reply(new LightStatusResponse());
+		assertEquals(LightStatusResponse.TYPE, nextView());
+
+		// the bulb is discovered from the viewed packet
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (gateway.getBulb(BULB) == null
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertNotNull(gateway.getBulb(BULB));
+
+		// and responses delivered as views still fulfill futures
+		PowerStateRequest request = new PowerStateRequest() {
+
+			@Override
+			public int[] expectedResponses() {
+				return new int[] { PowerStateResponse.TYPE };
+			}
+
+		};
+		request.setBulbAddress(BULB);
+
+		PacketResponseFuture future = gateway.sendRaw(request);
+		receive();
+		reply(new PowerStateResponse());
+
+		assertEquals(PowerStateResponse.TYPE, nextView());
+		assertNotNull(future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertTrue(future.isFulfilled());
+		assertNotNull(future.get().get(PowerStateResponse.class));
+	}
+
+	public void testViewsNotRoutedWhenDisabled() throws Exception {
+		listener.setViewRouting(false);
+
+		reply(new LightStatusResponse());
+		assertEquals(LightStatusResponse.TYPE, nextView());
+
+		// types without a view are still routed; once this response has
+		// fulfilled its future, the earlier packet has been handled too
+		MeshFirmwareRequest request = new MeshFirmwareRequest();
+		request.setBulbAddress(BULB);
+
+		PacketResponseFuture future = gateway.sendRaw(request);
+		receive();
+		reply(new MeshFirmwareResponse());
+
+		assertNotNull(future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertNull(gateway.getBulb(BULB));
+	}
+
+	/**
+	 * Sends the given packet to the listener from the gateway socket.
+	 */
+	private void reply(Packet packet) throws IOException {
+		packet.setBulbAddress(BULB);
+		packet.setSite(SITE);
+
+		ByteBuffer bytes = packet.bytes();
+		socket.send(new DatagramPacket(bytes.array(), bytes.arrayOffset(),
+				bytes.remaining(), listenAddress));
+	}
+
+	/**
+	 * Waits for a packet sent by the gateway.
+	 */
+	private void receive() throws IOException {
+		byte[] buf = new byte[256];
+		socket.receive(new DatagramPacket(buf, buf.length));
+	}
+
+	private int nextView() throws InterruptedException {
+		Integer type = views.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		assertNotNull("Expected a view", type);
+
+		return type;
+	}
+
+}
@@ -0,0 +1,145 @@
+package org.timothyb89.lifx.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link TimerWheel}. These run against the real clock, so they
+ * only check ordering and lower bounds, never exact firing times.
+ * @author tim
+ */
+public class TimerWheelTest extends TestCase {
+
+	private static final long TICK_MILLIS = 1;
+	private static final int WHEEL_SIZE = 512;
+
+	/**
+	 * Schedules timeouts that all hash to the same bucket, zero, one and two
+	 * laps of the wheel apart, and checks that they fire in deadline order,
+	 * none early, and that cancelled timeouts never fire whether or not they
+	 * had already been placed on the wheel.
+	 */
+	public void testExpiryOrderAcrossWrap() throws Exception {
+		TimerWheel wheel = new TimerWheel(TICK_MILLIS, WHEEL_SIZE);
+
+		List<String> fired = Collections.synchronizedList(
+				new ArrayList<String>());
+		CountDownLatch done = new CountDownLatch(3);
+
+		long start = System.nanoTime();
+
+		// scheduled out of order, so the later lap is in the bucket first
+		TimerWheel.Timeout late = wheel.schedule(
+				new Record("late", fired, done, start + millis(600)),
+				600, TimeUnit.MILLISECONDS);
+		TimerWheel.Timeout latest = wheel.schedule(
+				new Record("latest", fired, done, start + millis(1112)),
+				1112, TimeUnit.MILLISECONDS);
+		TimerWheel.Timeout early = wheel.schedule(
+				new Record("early", fired, done, start + millis(88)),
+				88, TimeUnit.MILLISECONDS);
+
+		// cancelled while still pending
+		TimerWheel.Timeout cancelledPending = wheel.schedule(
+				new Record("cancelledPending", fired, null, 0),
+				600, TimeUnit.MILLISECONDS);
+		assertTrue(cancelledPending.cancel());
+
+		// cancelled once it has been placed in a bucket
+		TimerWheel.Timeout cancelledPlaced = wheel.schedule(
+				new Record("cancelledPlaced", fired, null, 0),
+				600, TimeUnit.MILLISECONDS);
+		Thread.sleep(50);
+		assertTrue(cancelledPlaced.cancel());
+		assertFalse(cancelledPlaced.cancel());
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		// leave time for a cancelled timeout to (wrongly) fire
+		Thread.sleep(50);
+
+		assertEquals(Arrays.asList("early", "late", "latest"), fired);
+
+		assertTrue(early.isExpired());
+		assertTrue(late.isExpired());
+		assertTrue(latest.isExpired());
+		assertTrue(cancelledPending.isCancelled());
+		assertTrue(cancelledPlaced.isCancelled());
+
+		assertFalse(early.cancel());
+	}
+
+	/**
+	 * Checks that a task throwing an {@link Error} doesn't stop the timer
+	 * thread from running later tasks.
+	 */
+	public void testThrowingTaskDoesNotStopTimer() throws Exception {
+		TimerWheel wheel = new TimerWheel(TICK_MILLIS, WHEEL_SIZE);
+
+		final CountDownLatch after = new CountDownLatch(1);
+
+		wheel.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				throw new Error("expected by test");
+			}
+
+		}, 1, TimeUnit.MILLISECONDS);
+
+		wheel.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				after.countDown();
+			}
+
+		}, 20, TimeUnit.MILLISECONDS);
+
+		assertTrue(after.await(5, TimeUnit.SECONDS));
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * Records its name when run, failing if run before its deadline.
+	 */
+	private static class Record implements Runnable {
+
+		private final String name;
+		private final List<String> fired;
+		private final CountDownLatch done;
+		private final long deadline;
+
+		public Record(
+				String name, List<String> fired, CountDownLatch done,
+				long deadline) {
+			this.name = name;
+			this.fired = fired;
+			this.done = done;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void run() {
+			if (System.nanoTime() < deadline) {
+				fired.add(name + " (early)");
+			} else {
+				fired.add(name);
+			}
+
+			if (done != null) {
+				done.countDown();
+			}
+		}
+
+	}
+
+}
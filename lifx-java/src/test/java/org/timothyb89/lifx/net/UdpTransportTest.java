@@ -0,0 +1,249 @@
+package org.timothyb89.lifx.net;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link UdpTransport}.
+ * @author tim
+ */
+public class UdpTransportTest extends TestCase {
+
+	private static final int BUFFER_SIZE = 128;
+	private static final int SENDERS = 4;
+	private static final int SENDS = 2000;
+
+	/**
+	 * Closes the transport while several threads are still queueing pooled
+	 * sends, and checks that every send buffer is handed back to its pool
+	 * exactly once, whether it was written, drained by the closing loop or
+	 * rejected outright.
+	 */
+	public void testCloseReleasesEachSendBufferOnce() throws Exception {
+		final CountingPool sendPool = new CountingPool();
+		final CountDownLatch closed = new CountDownLatch(1);
+
+		final UdpTransport transport = new UdpTransport(
+				new UdpTransport.Handler() {
+
+					@Override
+					public boolean datagramReceived(
+							UdpTransport.Endpoint endpoint,
+							InetSocketAddress source, ByteBuffer buf) {
+						return false;
+					}
+
+					@Override
+					public void transportClosed(UdpTransport transport) {
+						closed.countDown();
+					}
+
+				},
+				BufferPool.heap(16, BUFFER_SIZE, ByteOrder.LITTLE_ENDIAN));
+
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		UdpTransport.Endpoint endpoint =
+				transport.bind(new InetSocketAddress(loopback, 0));
+		transport.start(true);
+
+		// send to ourselves so writes actually reach the socket
+		final InetSocketAddress destination = new InetSocketAddress(
+				loopback, endpoint.getLocalAddress().getPort());
+
+		final List<ByteBuffer> sent = new ArrayList<>();
+		final CountDownLatch started = new CountDownLatch(SENDERS);
+		List<Thread> senders = new ArrayList<>();
+
+		for (int i = 0; i < SENDERS; i++) {
+			Thread t = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					started.countDown();
+
+					for (int j = 0; j < SENDS; j++) {
+						ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+						buf.putInt(j).flip();
+
+						synchronized (sent) {
+							sent.add(buf);
+						}
+
+						try {
+							transport.send(buf, destination, sendPool);
+						} catch (ClosedChannelException ex) {
+							// released by send(); keep going to race the
+							// close as long as possible
+						}
+					}
+				}
+
+			});
+
+			senders.add(t);
+			t.start();
+		}
+
+		started.await();
+		transport.close();
+
+		for (Thread t : senders) {
+			t.join();
+		}
+
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+
+		assertEquals(SENDERS * SENDS, sent.size());
+		for (ByteBuffer buf : sent) {
+			assertEquals(1, sendPool.releases(buf));
+		}
+	}
+
+	/**
+	 * Blocks the handler, as a slow client event handler on a single-threaded
+	 * listener would, and checks that sends from another thread, and a send
+	 * the handler itself waits on, are still written.
+	 */
+	public void testBlockedHandlerDoesNotDelaySends() throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+
+		final DatagramSocket peer = new DatagramSocket(0, loopback);
+		peer.setSoTimeout(5000);
+		final InetSocketAddress peerAddress =
+				new InetSocketAddress(loopback, peer.getLocalPort());
+
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicReference<Throwable> handlerSend = new AtomicReference<>();
+
+		final UdpTransport[] transport = new UdpTransport[1];
+		transport[0] = new UdpTransport(
+				new UdpTransport.Handler() {
+
+					@Override
+					public boolean datagramReceived(
+							UdpTransport.Endpoint endpoint,
+							InetSocketAddress source, ByteBuffer buf) {
+						try {
+							// wait on our own send, as a handler calling
+							// get() on a sent packet's future does
+							transport[0].send(datagram(-1), peerAddress)
+									.get(5, TimeUnit.SECONDS);
+						} catch (Exception ex) {
+							handlerSend.set(ex);
+						}
+
+						blocked.countDown();
+
+						try {
+							release.await();
+						} catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+						}
+
+						return false;
+					}
+
+					@Override
+					public void transportClosed(UdpTransport transport) {
+					}
+
+				},
+				BufferPool.heap(16, BUFFER_SIZE, ByteOrder.LITTLE_ENDIAN));
+
+		try {
+			UdpTransport.Endpoint endpoint =
+					transport[0].bind(new InetSocketAddress(loopback, 0));
+			transport[0].start(true);
+
+			byte[] trigger = new byte[4];
+			peer.send(new DatagramPacket(trigger, trigger.length,
+					loopback, endpoint.getLocalAddress().getPort()));
+
+			assertTrue(blocked.await(10, TimeUnit.SECONDS));
+			assertNull(handlerSend.get());
+			assertEquals(-1, receive(peer));
+
+			// the loop is now stuck in the handler
+			List<SendFuture> futures = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				futures.add(transport[0].send(datagram(i), peerAddress));
+			}
+
+			for (int i = 0; i < 10; i++) {
+				futures.get(i).get(5, TimeUnit.SECONDS);
+				assertTrue(futures.get(i).isSuccess());
+				assertEquals(i, receive(peer));
+			}
+
+			// and all of that happened while it was still stuck
+			assertEquals(1, release.getCount());
+		} finally {
+			release.countDown();
+			transport[0].close();
+			peer.close();
+		}
+	}
+
+	private static ByteBuffer datagram(int value) {
+		ByteBuffer ret = ByteBuffer.allocate(4);
+		ret.putInt(value).flip();
+
+		return ret;
+	}
+
+	private static int receive(DatagramSocket socket) throws IOException {
+		byte[] buf = new byte[BUFFER_SIZE];
+		DatagramPacket packet = new DatagramPacket(buf, buf.length);
+		socket.receive(packet);
+
+		return ByteBuffer.wrap(buf, 0, packet.getLength()).getInt();
+	}
+
+	/**
+	 * A pool that counts how many times each buffer is released to it.
+	 */
+	private static class CountingPool extends BufferPool {
+
+		private final Map<ByteBuffer, Integer> released;
+
+		public CountingPool() {
+			super(1, BUFFER_SIZE, false, ByteOrder.LITTLE_ENDIAN);
+
+			released = new IdentityHashMap<>();
+		}
+
+		@Override
+		public void release(ByteBuffer buffer) {
+			synchronized (released) {
+				Integer count = released.get(buffer);
+				released.put(buffer, count == null ? 1 : count + 1);
+			}
+
+			super.release(buffer);
+		}
+
+		public int releases(ByteBuffer buffer) {
+			synchronized (released) {
+				Integer count = released.get(buffer);
+				return count == null ? 0 : count;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+package org.timothyb89.lifx.net.field;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link MACAddress}.
+ * @author tim
+ */
+public class MACAddressTest extends TestCase {
+
+	/**
+	 * Builds the expected hex string the way addresses were formatted before
+	 * they were packed into a long.
+	 */
+	private static String hex(byte[] bytes) {
+		StringBuilder ret = new StringBuilder();
+		for (byte b : bytes) {
+			if (ret.length() > 0) {
+				ret.append(':');
+			}
+
+			ret.append(String.format("%02X", b));
+		}
+
+		return ret.toString();
+	}
+
+	private static byte[] bytes(long value) {
+		byte[] ret = new byte[MACAddress.LENGTH];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = (byte) (value >>> (8 * (ret.length - 1 - i)));
+		}
+
+		return ret;
+	}
+
+	public void testHex() {
+		assertEquals("D0:73:D5:12:34:56",
+				MACAddress.valueOf(0xD073D5123456L).getHex());
+		assertEquals("00:00:00:00:00:00", new MACAddress().getHex());
+		assertEquals("00:01:02:0A:0B:0C",
+				new MACAddress(0x0001020A0B0CL).getHex());
+		assertEquals("FF:FF:FF:FF:FF:FF",
+				new MACAddress(0xFFFFFFFFFFFFL).getHex());
+
+		// built once, then reused
+		MACAddress address = new MACAddress(0xD073D5123456L);
+		assertSame(address.getHex(), address.getHex());
+	}
+
+	public void testEquality() {
+		long value = 0xD073D5ABCDEFL;
+		ByteBuffer encoded = ByteBuffer.wrap(new byte[] {
+			0, (byte) 0xD0, 0x73, (byte) 0xD5, (byte) 0xAB, (byte) 0xCD,
+			(byte) 0xEF, 0
+		});
+
+		MACAddress[] addresses = {
+			MACAddress.valueOf(value),
+			new MACAddress(value),
+			new MACAddress(ByteBuffer.wrap(bytes(value))),
+			MACAddress.read(encoded, 1)
+		};
+
+		for (MACAddress a : addresses) {
+			for (MACAddress b : addresses) {
+				assertEquals(a, b);
+				assertEquals(a.hashCode(), b.hashCode());
+			}
+
+			assertEquals(value, a.getValue());
+			assertFalse(a.equals(new MACAddress(value + 1)));
+			assertFalse(a.equals(null));
+			assertFalse(a.equals(a.getHex()));
+		}
+
+		// reading doesn't move the buffer
+		assertEquals(0, encoded.position());
+	}
+
+	public void testHighBitsIgnored() {
+		MACAddress address = new MACAddress(0xABCD000000000001L);
+
+		assertEquals(1L, address.getValue());
+		assertEquals(new MACAddress(1L), address);
+		assertEquals("00:00:00:00:00:01", address.getHex());
+		assertSame(MACAddress.valueOf(1L),
+				MACAddress.valueOf(0xFFFF000000000001L));
+	}
+
+	public void testCachedInstances() {
+		MACAddress first = MACAddress.valueOf(0xD073D5000042L);
+
+		assertSame(first, MACAddress.valueOf(0xD073D5000042L));
+		assertSame(first, MACAddress.read(
+				ByteBuffer.wrap(bytes(0xD073D5000042L)), 0));
+
+		// constructors always create new instances
+		assertNotSame(first, new MACAddress(0xD073D5000042L));
+	}
+
+	public void testManyAddresses() {
+		// far more addresses than cache slots, so slots are replaced; the
+		// cache must never return an instance for another address
+		Random random = new Random(42);
+		long[] values = new long[5000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextLong() & 0xFFFFFFFFFFFFL;
+		}
+
+		for (int round = 0; round < 2; round++) {
+			for (long value : values) {
+				MACAddress address = MACAddress.valueOf(value);
+				assertEquals(value, address.getValue());
+				assertEquals(hex(bytes(value)), address.getHex());
+
+				address = MACAddress.read(ByteBuffer.wrap(bytes(value)), 0);
+				assertEquals(value, address.getValue());
+			}
+		}
+	}
+
+	public void testRoundTrip() {
+		long value = 0x0123456789ABL;
+		MACAddress address = MACAddress.valueOf(value);
+
+		ByteBuffer copy = address.getBytes();
+		assertEquals(0, copy.position());
+		assertEquals(MACAddress.LENGTH, copy.remaining());
+		assertEquals(ByteBuffer.wrap(bytes(value)), copy);
+		assertEquals(address, new MACAddress(copy));
+
+		ByteBuffer dst = ByteBuffer.allocate(MACAddress.LENGTH + 4);
+		address.write(dst, 2);
+		assertEquals(0, dst.position());
+		assertEquals(0, dst.get(0));
+		assertEquals(0, dst.get(1));
+		assertEquals(0, dst.get(MACAddress.LENGTH + 2));
+		assertEquals(value, MACAddress.bits(dst, 2));
+		assertSame(address, MACAddress.read(dst, 2));
+	}
+
+}
@@ -0,0 +1,113 @@
+package org.timothyb89.lifx.net.packet;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link HandlerTable}.
+ * @author tim
+ */
+public class HandlerTableTest extends TestCase {
+
+	// the first and last types of the first, second and last pages
+	private static final int[] BOUNDARIES = { 0x0000, 0x00FF, 0x0100, 0xFFFF };
+
+	public void testEmpty() {
+		HandlerTable<String> table = new HandlerTable<>();
+
+		for (int type : BOUNDARIES) {
+			assertNull(table.get(type));
+		}
+	}
+
+	public void testBoundaryTypes() {
+		HandlerTable<String> table = new HandlerTable<>();
+
+		for (int type : BOUNDARIES) {
+			table.put(type, name(type));
+		}
+
+		for (int type : BOUNDARIES) {
+			assertEquals(name(type), table.get(type));
+		}
+
+		// neighbours, on the same and adjacent pages, are untouched
+		assertNull(table.get(0x0001));
+		assertNull(table.get(0x00FE));
+		assertNull(table.get(0x0101));
+		assertNull(table.get(0x01FF));
+		assertNull(table.get(0xFF00));
+		assertNull(table.get(0xFFFE));
+	}
+
+	public void testReplace() {
+		HandlerTable<String> table = new HandlerTable<>();
+
+		table.put(0x6B, "first");
+		table.put(0x6B, "second");
+
+		assertEquals("second", table.get(0x6B));
+	}
+
+	public void testRemoveByPuttingNull() {
+		HandlerTable<String> table = new HandlerTable<>();
+
+		for (int type : BOUNDARIES) {
+			table.put(type, name(type));
+		}
+
+		table.put(0x00FF, null);
+		assertNull(table.get(0x00FF));
+
+		// the rest of the page, and other pages, keep their handlers
+		assertEquals(name(0x0000), table.get(0x0000));
+		assertEquals(name(0x0100), table.get(0x0100));
+		assertEquals(name(0xFFFF), table.get(0xFFFF));
+
+		// removing from a page that was never allocated is harmless
+		table.put(0x1234, null);
+		assertNull(table.get(0x1234));
+
+		// and a removed type can be registered again
+		table.put(0x00FF, "again");
+		assertEquals("again", table.get(0x00FF));
+	}
+
+	public void testOutOfRangeLookups() {
+		HandlerTable<String> table = new HandlerTable<>();
+		for (int type : BOUNDARIES) {
+			table.put(type, name(type));
+		}
+
+		// out of range types never alias a valid one
+		assertNull(table.get(-1));
+		assertNull(table.get(0x10000));
+		assertNull(table.get(0x100FF));
+		assertNull(table.get(0x1FFFF));
+		assertNull(table.get(Integer.MIN_VALUE));
+		assertNull(table.get(Integer.MAX_VALUE));
+	}
+
+	public void testOutOfRangeRegistrations() {
+		HandlerTable<String> table = new HandlerTable<>();
+
+		int[] invalid = { -1, 0x10000, 0x100FF, Integer.MIN_VALUE };
+		for (int type : invalid) {
+			try {
+				table.put(type, name(type));
+				fail("Expected IllegalArgumentException for " + type);
+			} catch (IllegalArgumentException ex) {
+				// expected
+			}
+		}
+
+		// nothing was registered under the masked type either
+		assertNull(table.get(0x0000));
+		assertNull(table.get(0x00FF));
+		assertNull(table.get(0xFFFF));
+	}
+
+	private static String name(int type) {
+		return String.format("handler-%04X", type);
+	}
+
+}
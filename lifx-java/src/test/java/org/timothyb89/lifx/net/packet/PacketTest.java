@@ -0,0 +1,145 @@
+package org.timothyb89.lifx.net.packet;
+
+import java.nio.ByteBuffer;
+import junit.framework.TestCase;
+import org.timothyb89.lifx.net.field.Field;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.response.PowerStateResponse;
+
+/**
+ * Tests for the preamble handling in {@link Packet}.
+ * @author tim
+ */
+public class PacketTest extends TestCase {
+
+	/**
+	 * Encodes a power state response with the given reserved bytes, which
+	 * {@link Packet#encodeInto(ByteBuffer)} always leaves zeroed.
+	 */
+	private static ByteBuffer encode(int fill) {
+		PowerStateResponse packet = new PowerStateResponse();
+		packet.setBulbAddress(MACAddress.valueOf(0xD073D5000001L));
+
+		ByteBuffer ret = packet.bytes();
+		for (int i = 4; i < 8; i++) {
+			ret.put(i, (byte) fill);
+		}
+		ret.put(14, (byte) (fill + 1));
+		ret.put(15, (byte) (fill + 1));
+		ret.put(22, (byte) (fill + 2));
+		ret.put(23, (byte) (fill + 2));
+		ret.put(34, (byte) (fill + 3));
+		ret.put(35, (byte) (fill + 3));
+
+		return ret;
+	}
+
+	private static void assertBytes(ByteBuffer actual, int value, int length) {
+		assertEquals(0, actual.position());
+		assertEquals(length, actual.remaining());
+
+		for (int i = 0; i < length; i++) {
+			assertEquals(value, actual.get(i));
+		}
+	}
+
+	public void testPreambleLength() {
+		int sum = 0;
+		for (Field<?> f : Packet.PREAMBLE_FIELDS) {
+			sum += f.getLength();
+		}
+
+		assertEquals(Packet.PREAMBLE_LENGTH, sum);
+		assertEquals(Packet.PREAMBLE_LENGTH + 2,
+				new PowerStateResponse().length());
+	}
+
+	public void testParseReservedFields() {
+		PowerStateResponse packet = new PowerStateResponse();
+		packet.parse(encode(0x10));
+
+		assertBytes(packet.getReserved1(), 0x10, 4);
+		assertBytes(packet.getReserved2(), 0x11, 2);
+		assertBytes(packet.getReserved3(), 0x12, 2);
+		assertBytes(packet.getReserved4(), 0x13, 2);
+		assertEquals(MACAddress.valueOf(0xD073D5000001L),
+				packet.getBulbAddress());
+		assertEquals(PowerStateResponse.TYPE, packet.getPacketType());
+	}
+
+	public void testParseReusesReservedStorage() {
+		PowerStateResponse packet = new PowerStateResponse();
+		packet.parse(encode(0x10));
+
+		ByteBuffer reserved1 = packet.getReserved1();
+		ByteBuffer reserved4 = packet.getReserved4();
+
+		// parsing again, as a recycled pooled packet does, overwrites the
+		// same storage rather than allocating more
+		packet.parse(encode(0x20));
+
+		assertSame(reserved1, packet.getReserved1());
+		assertSame(reserved4, packet.getReserved4());
+		assertBytes(packet.getReserved1(), 0x20, 4);
+		assertBytes(packet.getReserved2(), 0x21, 2);
+		assertBytes(packet.getReserved3(), 0x22, 2);
+		assertBytes(packet.getReserved4(), 0x23, 2);
+	}
+
+	public void testLegacySubclassEncodes() {
+		LegacyPacket packet = new LegacyPacket();
+		ByteBuffer bytes = packet.bytes();
+
+		assertEquals(Packet.PREAMBLE_LENGTH + 3, bytes.remaining());
+		assertEquals(Packet.PREAMBLE_LENGTH + 3,
+				Packet.FIELD_SIZE.value(bytes).intValue());
+		assertEquals(1, bytes.get(Packet.PREAMBLE_LENGTH));
+		assertEquals(2, bytes.get(Packet.PREAMBLE_LENGTH + 1));
+		assertEquals(3, bytes.get(Packet.PREAMBLE_LENGTH + 2));
+	}
+
+	@SuppressWarnings("deprecation")
+	public void testPacketBytesDefaultsToEncodePacket() {
+		PowerStateResponse packet = new PowerStateResponse();
+		ByteBuffer expected = packet.bytes();
+		expected.position(Packet.PREAMBLE_LENGTH);
+
+		ByteBuffer payload = packet.packetBytes();
+		assertEquals(0, payload.position());
+		assertEquals(expected, payload);
+	}
+
+	/**
+	 * A packet written against the old API, which only overrides
+	 * {@link Packet#packetBytes()}.
+	 */
+	@SuppressWarnings("deprecation")
+	private static class LegacyPacket extends Packet {
+
+		@Override
+		public int packetType() {
+			return 0x7FFF;
+		}
+
+		@Override
+		protected int packetLength() {
+			return 3;
+		}
+
+		@Override
+		protected void parsePacket(ByteBuffer bytes) {
+		}
+
+		@Override
+		protected ByteBuffer packetBytes() {
+			return ByteBuffer.allocate(3).put(new byte[] { 1, 2, 3 });
+		}
+
+		@Override
+		public int[] expectedResponses() {
+			return new int[] {};
+		}
+
+	}
+
+}
@@ -0,0 +1,370 @@
+package org.timothyb89.lifx.net.packet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import junit.framework.TestCase;
+import org.timothyb89.lifx.bulb.PowerState;
+import org.timothyb89.lifx.net.field.MACAddress;
+import org.timothyb89.lifx.net.packet.request.*;
+import org.timothyb89.lifx.net.packet.response.*;
+
+/**
+ * Checks the encoding of every request and response packet against fixed
+ * bytes, and that those bytes parse back into the same fields.
+ *
+ * <p>The expected requests were produced by the encoder of the 1.0 release,
+ * before packets were encoded in place. Responses are compared against the
+ * datagrams that release parsed; its encoder is not used for them, since it
+ * wrote the hue in place of the power of a {@link LightStatusResponse} and
+ * didn't pad its label.</p>
+ * @author tim
+ */
+public class PacketWireFormatTest extends TestCase {
+
+	private static final MACAddress BULB = MACAddress.valueOf(0xD073D5123456L);
+	private static final MACAddress SITE = MACAddress.valueOf(0x4C4946585632L);
+	private static final long TIMESTAMP = 0x0102030405060708L;
+
+	private static final int PROTOCOL_DEFAULT = 0x3400;
+	private static final int PROTOCOL_SET = 0x1400;
+	private static final int PROTOCOL_RESPONSE = 0x5400;
+
+	/**
+	 * Returns the expected preamble of a packet with {@link #BULB},
+	 * {@link #SITE} and {@link #TIMESTAMP}.
+	 */
+	private static String preamble(int size, int protocol, int type) {
+		return String.format("%02X %02X %02X %02X 00 00 00 00 "
+				+ "D0 73 D5 12 34 56 00 00 "
+				+ "4C 49 46 58 56 32 00 00 "
+				+ "01 02 03 04 05 06 07 08 "
+				+ "%02X %02X 00 00",
+				size & 0xFF, size >> 8, protocol & 0xFF, protocol >> 8,
+				type & 0xFF, type >> 8);
+	}
+
+	private static String packet(int protocol, int type, String payload) {
+		int size = Packet.PREAMBLE_LENGTH;
+		if (!payload.isEmpty()) {
+			size += (payload.length() + 1) / 3;
+		}
+
+		String ret = preamble(size, protocol, type);
+		return payload.isEmpty() ? ret : ret + " " + payload;
+	}
+
+	private static String zeros(int n) {
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			ret.append(i == 0 ? "00" : " 00");
+		}
+
+		return ret.toString();
+	}
+
+	private static String hex(ByteBuffer bytes) {
+		StringBuilder ret = new StringBuilder();
+		for (int i = bytes.position(); i < bytes.limit(); i++) {
+			if (ret.length() > 0) {
+				ret.append(' ');
+			}
+
+			ret.append(String.format("%02X", bytes.get(i)));
+		}
+
+		return ret.toString();
+	}
+
+	private static byte[] bytes(String hex) {
+		String[] parts = hex.split(" ");
+		byte[] ret = new byte[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			ret[i] = (byte) Integer.parseInt(parts[i], 16);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Checks that the given packet encodes to the expected bytes, both into
+	 * a new buffer and in place into a reused direct buffer with the native
+	 * byte order.
+	 */
+	private static void assertEncodes(String expected, Packet packet) {
+		assertEquals(expected, hex(packet.bytes()));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(256)
+				.order(ByteOrder.nativeOrder());
+		direct.position(7);
+		packet.encodeInto(direct);
+		direct.flip();
+		direct.position(7);
+
+		assertEquals(expected, hex(direct));
+	}
+
+	private static <T extends Packet> T request(T packet) {
+		packet.setBulbAddress(BULB);
+		packet.setSite(SITE);
+		packet.timestamp = TIMESTAMP;
+
+		return packet;
+	}
+
+	/**
+	 * Parses the given bytes into {@code packet}, from both a heap buffer and
+	 * a little-endian direct buffer, and checks the preamble.
+	 */
+	private static <T extends Packet> T parse(T packet, String hex) {
+		byte[] data = bytes(hex);
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		direct.put(data);
+		packet.parse(direct);
+		assertPreamble(packet, data.length);
+
+		packet.parse(ByteBuffer.wrap(data));
+		assertPreamble(packet, data.length);
+
+		return packet;
+	}
+
+	private static void assertPreamble(Packet packet, int size) {
+		assertEquals(size, packet.getSize());
+		assertEquals(packet.packetType(), packet.getPacketType());
+		assertEquals(BULB, packet.getBulbAddress());
+		assertEquals(SITE, packet.getSite());
+		assertEquals(TIMESTAMP, packet.getTimestamp());
+	}
+
+	public void testEmptyRequests() {
+		Packet[] packets = {
+			new BulbLabelRequest(),
+			new GetTagsRequest(),
+			new GetWifiInfoRequest(),
+			new LightStatusRequest(),
+			new MeshFirmwareRequest(),
+			new PANGatewayRequest(),
+			new PowerStateRequest()
+		};
+		int[] types = { 0x17, 0x1A, 0x10, 0x65, 0x0E, 0x02, 0x14 };
+
+		for (int i = 0; i < packets.length; i++) {
+			String expected = packet(PROTOCOL_DEFAULT, types[i], "");
+			assertEncodes(expected, request(packets[i]));
+			assertEquals(PROTOCOL_DEFAULT,
+					parse(packets[i], expected).getProtocol());
+		}
+	}
+
+	public void testGetTagLabelsRequest() {
+		String expected = packet(PROTOCOL_DEFAULT, 0x1D,
+				"80 00 00 00 00 00 00 01");
+		assertEncodes(expected,
+				request(new GetTagLabelsRequest(0x8000000000000001L)));
+
+		GetTagLabelsRequest parsed =
+				parse(new GetTagLabelsRequest(), expected);
+		assertEquals(0x8000000000000001L, parsed.getTags());
+	}
+
+	public void testSetBulbLabelRequest() {
+		String expected = packet(PROTOCOL_DEFAULT, 0x18,
+				"4B 69 74 63 68 65 6E " + zeros(25));
+		assertEncodes(expected, request(new SetBulbLabelRequest("Kitchen")));
+
+		SetBulbLabelRequest parsed =
+				parse(new SetBulbLabelRequest(null), expected);
+		assertEquals("Kitchen", parsed.getLabel());
+	}
+
+	public void testSetDimAbsoluteRequest() {
+		String expected = packet(PROTOCOL_DEFAULT, 0x68,
+				"34 12 EF CD AB 89");
+		assertEncodes(expected,
+				request(new SetDimAbsoluteRequest(0x1234, 0x89ABCDEFL)));
+
+		SetDimAbsoluteRequest parsed =
+				parse(new SetDimAbsoluteRequest(), expected);
+		assertEquals(0x1234, parsed.getDim());
+		assertEquals(0x89ABCDEFL, parsed.getDuration());
+	}
+
+	@SuppressWarnings("deprecation")
+	public void testSetLightColorRequest() {
+		String expected = packet(PROTOCOL_SET, 0x66,
+				"00 CD AB FF FF 00 80 AC 0D EF BE AD DE");
+		assertEncodes(expected, request(new SetLightColorRequest(
+				0xABCD, 0xFFFF, 0x8000, 3500, 0xDEADBEEFL)));
+
+		SetLightColorRequest parsed =
+				parse(new SetLightColorRequest(), expected);
+		assertEquals(PROTOCOL_SET, parsed.getProtocol());
+		assertEquals(0, parsed.getStreamId());
+		assertEquals(ByteBuffer.wrap(new byte[] { 0 }), parsed.getStream());
+		assertEquals(0xABCD, parsed.getHue());
+		assertEquals(0xFFFF, parsed.getSaturation());
+		assertEquals(0x8000, parsed.getBrightness());
+		assertEquals(3500, parsed.getKelvin());
+		assertEquals(0xDEADBEEFL, parsed.getFadeTime());
+	}
+
+	public void testSetPowerStateRequest() {
+		String on = packet(PROTOCOL_SET, 0x15, "FF FF");
+		String off = packet(PROTOCOL_SET, 0x15, "00 00");
+
+		assertEncodes(on, request(new SetPowerStateRequest(PowerState.ON)));
+		assertEncodes(off, request(new SetPowerStateRequest(PowerState.OFF)));
+
+		assertEquals(PowerState.ON,
+				parse(new SetPowerStateRequest(), on).getState());
+		assertEquals(PowerState.OFF,
+				parse(new SetPowerStateRequest(), off).getState());
+	}
+
+	public void testSetTagsRequest() {
+		String expected = packet(PROTOCOL_DEFAULT, 0x1B,
+				"01 23 45 67 89 AB CD EF");
+		assertEncodes(expected,
+				request(new SetTagsRequest(0x0123456789ABCDEFL)));
+
+		assertEquals(0x0123456789ABCDEFL,
+				parse(new SetTagsRequest(), expected).getTags());
+	}
+
+	public void testBulbLabelResponse() {
+		String expected = packet(PROTOCOL_RESPONSE, 0x19,
+				"4C 69 76 69 6E 67 20 52 6F 6F 6D " + zeros(21));
+
+		BulbLabelResponse parsed = parse(new BulbLabelResponse(), expected);
+		assertEquals(PROTOCOL_RESPONSE, parsed.getProtocol());
+		assertEquals("Living Room", parsed.getLabel());
+		assertEncodes(expected, parsed);
+	}
+
+	public void testLightStatusResponse() {
+		String expected = packet(PROTOCOL_RESPONSE, 0x6B,
+				"34 12 FF FF 00 80 AC 0D 02 01 FF FF "
+				+ "44 65 73 6B " + zeros(28) + " "
+				+ "00 00 00 00 00 00 00 F0");
+
+		LightStatusResponse parsed =
+				parse(new LightStatusResponse(), expected);
+		assertEquals(0x1234, parsed.getHue());
+		assertEquals(0xFFFF, parsed.getSaturation());
+		assertEquals(0x8000, parsed.getBrightness());
+		assertEquals(3500, parsed.getKelvin());
+		assertEquals(0x0102, parsed.getDim());
+		assertEquals(PowerState.ON, parsed.getPower());
+		assertEquals("Desk", parsed.getLabel());
+		assertEquals(0xF0L, parsed.getTags());
+
+		// the power is encoded from the power field, not the hue
+		assertEncodes(expected, parsed);
+	}
+
+	public void testLightStatusResponseUnknownPower() {
+		String payload = "34 12 FF FF 00 80 AC 0D 02 01 %s "
+				+ "44 65 73 6B " + zeros(28) + " "
+				+ "00 00 00 00 00 00 00 F0";
+
+		LightStatusResponse parsed = parse(new LightStatusResponse(),
+				packet(PROTOCOL_RESPONSE, 0x6B,
+						String.format(payload, "12 34")));
+		assertNull(parsed.getPower());
+		assertEquals(0x1234, parsed.getHue());
+		assertEquals("Desk", parsed.getLabel());
+
+		// an unknown state is not kept, and encodes as off
+		assertEncodes(packet(PROTOCOL_RESPONSE, 0x6B,
+				String.format(payload, "00 00")), parsed);
+	}
+
+	public void testMeshFirmwareResponse() {
+		// months are little-endian strings, stored with their characters
+		// reversed; the version is a little-endian uint32
+		String expected = packet(PROTOCOL_RESPONSE, 0x0F,
+				"01 02 03 04 6E 75 4A 0E 05 06 07 08 63 65 44 0D "
+				+ "02 00 01 00");
+
+		MeshFirmwareResponse parsed =
+				parse(new MeshFirmwareResponse(), expected);
+		assertEquals(1, parsed.getBuildSecond());
+		assertEquals(2, parsed.getBuildMinute());
+		assertEquals(3, parsed.getBuildHour());
+		assertEquals(4, parsed.getBuildDay());
+		assertEquals("Jun", parsed.getBuildMonth());
+		assertEquals(14, parsed.getBuildYear());
+		assertEquals(5, parsed.getInstallSecond());
+		assertEquals(6, parsed.getInstallMinute());
+		assertEquals(7, parsed.getInstallHour());
+		assertEquals(8, parsed.getInstallDay());
+		assertEquals("Dec", parsed.getInstallMonth());
+		assertEquals(13, parsed.getInstallYear());
+		assertEquals(0x00010002L, parsed.getVersion());
+
+		assertEncodes(expected, parsed);
+	}
+
+	public void testPANGatewayResponse() {
+		String expected = packet(PROTOCOL_RESPONSE, 0x03, "01 7C DD 00 00");
+
+		PANGatewayResponse parsed = parse(new PANGatewayResponse(), expected);
+		assertEquals(1, parsed.getService());
+		assertEquals(56700L, parsed.getPort());
+		assertEncodes(expected, parsed);
+	}
+
+	public void testPowerStateResponse() {
+		String on = packet(PROTOCOL_RESPONSE, 0x16, "FF FF");
+		String off = packet(PROTOCOL_RESPONSE, 0x16, "00 00");
+
+		PowerStateResponse parsed = parse(new PowerStateResponse(), on);
+		assertEquals(PowerState.ON, parsed.getState());
+		assertEncodes(on, parsed);
+
+		parsed = parse(new PowerStateResponse(), off);
+		assertEquals(PowerState.OFF, parsed.getState());
+		assertEncodes(off, parsed);
+
+		// unknown states are not kept, and encode as off
+		parsed = parse(new PowerStateResponse(),
+				packet(PROTOCOL_RESPONSE, 0x16, "00 01"));
+		assertNull(parsed.getState());
+		assertEncodes(off, parsed);
+	}
+
+	public void testTagLabelsResponse() {
+		String expected = packet(PROTOCOL_RESPONSE, 0x1F,
+				"00 00 00 00 00 00 01 00 "
+				+ "55 70 73 74 61 69 72 73 " + zeros(24));
+
+		TagLabelsResponse parsed = parse(new TagLabelsResponse(), expected);
+		assertEquals(0x100L, parsed.getTags());
+		assertEquals("Upstairs", parsed.getLabel());
+		assertEncodes(expected, parsed);
+	}
+
+	public void testTagsResponse() {
+		String expected = packet(PROTOCOL_RESPONSE, 0x1C,
+				"FE DC BA 98 76 54 32 10");
+
+		TagsResponse parsed = parse(new TagsResponse(), expected);
+		assertEquals(0xFEDCBA9876543210L, parsed.getTags());
+		assertEncodes(expected, parsed);
+	}
+
+	public void testWifiInfoResponse() {
+		String expected = packet(PROTOCOL_RESPONSE, 0x11,
+				"00 00 72 C2 04 03 02 01 00 00 00 F0 00 30");
+
+		WifiInfoResponse parsed = parse(new WifiInfoResponse(), expected);
+		assertEquals(-60.5f, parsed.getSignal());
+		assertEquals(0x01020304L, parsed.getRx());
+		assertEquals(0xF0000000L, parsed.getTx());
+		assertEquals(48, parsed.getMcuTemperature());
+		assertEncodes(expected, parsed);
+	}
+
+}